@@ -0,0 +1,61 @@
+package com.matsuyoido.ddl;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * カラム数の 1/10 ずつ UK・INDEX・FK を持つテーブルを組み立てる。
+ * カラム数を 10 倍にしたときに 10 倍前後なら線形 (カラムを走査していた頃は 100 倍以上かかっていた)。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DatabaseTableBenchmark {
+
+    @Param({ "10000", "100000" })
+    public int columnSize;
+
+    private List<String> columnNames;
+
+    @Setup
+    public void setup() {
+        this.columnNames = IntStream.range(0, this.columnSize).mapToObj(i -> "col_" + i).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public DatabaseTable buildTable() {
+        DatabaseTable parent = new DatabaseTable("parent");
+        parent.addColumns(columns());
+        DatabaseTable child = new DatabaseTable("child");
+        child.addColumns(columns());
+        parent.addPrimaryKey("col_0", "col_1");
+        for (int i = 0; i + 2 < this.columnSize; i += 10) {
+            parent.addUniqueKey("uk_" + i, this.columnNames.get(i + 2), this.columnNames.get(i));
+            parent.addIndexKey("idx_" + i, this.columnNames.get(i + 1));
+            parent.addForeignKey("fk_" + i, this.columnNames.subList(i, i + 2), child, this.columnNames.subList(i, i + 2));
+        }
+        return parent;
+    }
+
+    private List<DatabaseColumn> columns() {
+        return this.columnNames.stream().map(name -> new DatabaseColumn(name, "INT")).collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.matsuyoido.plugin.er.task;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import com.matsuyoido.ddl.DatabaseTable;
+import com.matsuyoido.ddl.SqlKeywords;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * DatabaseTable -> DDL。
+ * 出力先の StringBuilder は使い回し、文の組み立てにかかる分だけを測る。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DDLRenderBenchmark {
+
+    private final SqlKeywords keywords = SqlKeywords.of(false);
+    private final Optional<String> schemaName = Optional.of("bench");
+    private final StringBuilder out = new StringBuilder(1024 * 1024);
+
+    @Benchmark
+    public int createSentence(SchemaState schema) throws IOException {
+        this.out.setLength(0);
+        for (DatabaseTable table : schema.tables) {
+            table.appendCreateSentence(this.out, this.keywords, true, this.schemaName, "\n");
+        }
+        return this.out.length();
+    }
+
+    @Benchmark
+    public int foreignKeySentence(SchemaState schema) throws IOException {
+        this.out.setLength(0);
+        for (DatabaseTable table : schema.tables) {
+            table.appendForeignKeySentence(this.out, this.keywords, this.schemaName, "\n");
+        }
+        return this.out.length();
+    }
+
+    @Benchmark
+    public int uniqueKeySentence(SchemaState schema) throws IOException {
+        this.out.setLength(0);
+        for (DatabaseTable table : schema.tables) {
+            table.appendUniqueKeySentence(this.out, this.keywords, this.schemaName, "\n");
+        }
+        return this.out.length();
+    }
+
+    @Benchmark
+    public int indexKeySentence(SchemaState schema) throws IOException {
+        this.out.setLength(0);
+        for (DatabaseTable table : schema.tables) {
+            table.appendIndexKeySentence(this.out, this.keywords, this.schemaName, "\n");
+        }
+        return this.out.length();
+    }
+
+    @Benchmark
+    public void truncateOrder(SchemaState schema, Blackhole blackhole) {
+        blackhole.consume(TableOrder.of(schema.tables).tableNames());
+    }
+
+}
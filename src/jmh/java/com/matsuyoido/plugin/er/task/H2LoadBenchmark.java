@@ -0,0 +1,36 @@
+package com.matsuyoido.plugin.er.task;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ER 図作成前の、DDL を H2 に流し込む処理。
+ * 毎回新しいインメモリ DB に流し込む (接続を閉じると DB も消える)。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class H2LoadBenchmark {
+
+    private int databaseCount = 0;
+
+    @Benchmark
+    public void loadDDL(SchemaState schema) throws SQLException, IOException {
+        ERTask.loadDDL("mem:bench" + this.databaseCount++, "bench", schema.ddlFile);
+    }
+
+}
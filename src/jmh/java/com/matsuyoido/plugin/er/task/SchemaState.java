@@ -0,0 +1,85 @@
+package com.matsuyoido.plugin.er.task;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import com.matsuyoido.LineEnd;
+import com.matsuyoido.ddl.DatabaseTable;
+import com.matsuyoido.plugin.er.DDLExtension;
+
+import org.gradle.api.logging.Logger;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.yaml.snakeyaml.Yaml;
+
+/**
+ * ベンチマーク用のスキーマ ({@link SchemaGenerator} の既定の構成で、テーブル数・カラム数だけ変える)。
+ */
+@State(Scope.Benchmark)
+public class SchemaState {
+
+    @Param({ "10", "100", "1000" })
+    public int tableCount;
+
+    @Param({ "20" })
+    public int columnCount;
+
+    Logger logger;
+    Map<String, Object> yamlMap;
+    List<DatabaseTable> tables;
+    Path workDirectory;
+    /** 生成した DDL (ER の H2 読み込み用) */
+    Path ddlFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.logger = quietLogger();
+        SchemaGenerator generator = new SchemaGenerator();
+        generator.setTableCount(this.tableCount);
+        generator.setMinColumns(this.columnCount);
+        generator.setMaxColumns(this.columnCount);
+        StringWriter yaml = new StringWriter();
+        generator.write(yaml);
+        this.yamlMap = new Yaml().load(yaml.toString());
+        this.tables = new YamlSchemaLoader(this.logger).loadYamlFile(this.yamlMap).tables;
+
+        this.workDirectory = Files.createTempDirectory("jmh");
+        this.ddlFile = this.workDirectory.resolve("ddl.sql");
+        DDLRenderer renderer = new DDLRenderer(new DDLExtension(), LineEnd.LINUX);
+        StringBuilder ddl = new StringBuilder();
+        for (DatabaseTable table : this.tables) {
+            renderer.createTable(table, ddl);
+        }
+        for (DatabaseTable table : this.tables) {
+            renderer.keys(table, ddl);
+        }
+        Files.writeString(this.ddlFile, ddl);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(this.workDirectory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /** 何も出力しない Logger */
+    private static Logger quietLogger() {
+        return (Logger) Proxy.newProxyInstance(Logger.class.getClassLoader(), new Class<?>[] { Logger.class },
+            (proxy, method, args) -> method.getReturnType() == boolean.class ? false : null);
+    }
+
+}
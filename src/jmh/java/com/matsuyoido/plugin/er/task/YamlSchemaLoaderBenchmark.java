@@ -0,0 +1,60 @@
+package com.matsuyoido.plugin.er.task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import com.matsuyoido.ddl.DatabaseColumn;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** yaml -> DatabaseTable */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class YamlSchemaLoaderBenchmark {
+
+    private YamlSchemaLoader loader;
+    /** テーブルごとの columns 定義 */
+    private List<Object> columnDefinitions;
+    private Map<String, String> domains;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup(SchemaState schema) {
+        this.loader = new YamlSchemaLoader(schema.logger);
+        this.domains = this.loader.loadDomains(schema.yamlMap);
+        this.columnDefinitions = new ArrayList<>();
+        ((Map<String, Object>) schema.yamlMap.get("tables")).values()
+            .forEach(table -> this.columnDefinitions.add(((Map<String, Object>) table).get("columns")));
+    }
+
+    @Benchmark
+    public void loadYamlFile(SchemaState schema, Blackhole blackhole) {
+        blackhole.consume(this.loader.loadYamlFile(schema.yamlMap));
+    }
+
+    @Benchmark
+    public void yamlConvertColumns(Blackhole blackhole) {
+        for (Object columns : this.columnDefinitions) {
+            List<DatabaseColumn> converted = this.loader.yamlConvertColumns(Optional.of(columns), this.domains);
+            blackhole.consume(converted);
+        }
+    }
+
+}
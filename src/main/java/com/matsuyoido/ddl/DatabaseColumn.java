@@ -1,7 +1,9 @@
 package com.matsuyoido.ddl;
 
-import static com.matsuyoido.ddl.DatabaseTable.toSentence;
-import java.util.Optional;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
 
 public class DatabaseColumn {
 
@@ -9,6 +11,8 @@ public class DatabaseColumn {
     final String name;
     /** domain定義 or 型 */
     final String type;
+    /** 型を domain で指定した場合の domain 名 (dialect ごとの型の切り替え用) */
+    private String domain;
 
     /** 論理名 */
     private String logicalName;
@@ -42,24 +46,76 @@ public class DatabaseColumn {
         this.constraints = constraints;
         return this;
     }
+    /** domain 名設定 */
+    public DatabaseColumn domain(String domain) {
+        this.domain = domain;
+        return this;
+    }
     /** デフォルト値設定 */
     public DatabaseColumn defaultValue(String value) {
         this.defaultValue = value;
         return this;
     }
 
-    /** field-name type [constraints] [COMMENT "comment-string"]  */
-    String createSentence(boolean lowerAll) {
-        return this.name + " " + this.type
-            + Optional.ofNullable(this.constraints).map(v -> " " + v).orElse("")
-            + Optional.ofNullable(this.defaultValue).map(v -> {
-                return toSentence(" DEFAULT ", lowerAll) + v;
-              }).orElse("")
-            + Optional.ofNullable(this.comment).map(v -> {
-                String commentText = '"' + Optional.ofNullable(this.logicalName).map(n -> n + ":").orElse("") + v + '"';
-                return toSentence(" COMMENT ", lowerAll) + commentText;
-              }).orElse("")
-        ;
+    /**
+     * field-name type [constraints] [DEFAULT value] [COMMENT "comment-string"]
+     * @param domainTypes domain 名 -> 型 (dialect ごとの型。無い domain は yaml の type)
+     */
+    void appendSentence(Appendable out, SqlKeywords keywords, Map<String, String> domainTypes) throws IOException {
+        out.append(this.name).append(' ').append(resolveType(domainTypes));
+        if (this.constraints != null) {
+            out.append(' ').append(this.constraints);
+        }
+        if (this.defaultValue != null) {
+            out.append(keywords.defaultValue).append(this.defaultValue);
+        }
+        if (this.comment != null && keywords.commentStyle != SqlKeywords.CommentStyle.COMMENT_ON) {
+            out.append(keywords.comment);
+            keywords.appendLiteral(out, commentText());
+        }
+    }
+
+    String resolveType(Map<String, String> domainTypes) {
+        return this.domain == null ? this.type : domainTypes.getOrDefault(this.domain, this.type);
+    }
+
+    String getLogicalName() {
+        return this.logicalName;
+    }
+
+    String getConstraints() {
+        return this.constraints;
+    }
+
+    String getDefaultValue() {
+        return this.defaultValue;
+    }
+
+    /** [logical-name:]comment。コメントが無い場合は null */
+    String commentText() {
+        if (this.comment == null) {
+            return null;
+        }
+        return this.logicalName == null ? this.comment : this.logicalName + ":" + this.comment;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        SnapshotIO.writeString(out, this.name);
+        SnapshotIO.writeString(out, this.type);
+        SnapshotIO.writeString(out, this.logicalName);
+        SnapshotIO.writeString(out, this.comment);
+        SnapshotIO.writeString(out, this.constraints);
+        SnapshotIO.writeString(out, this.defaultValue);
+        SnapshotIO.writeString(out, this.domain);
+    }
+
+    static DatabaseColumn readFrom(DataInput in) throws IOException {
+        return new DatabaseColumn(SnapshotIO.readString(in), SnapshotIO.readString(in))
+            .logicalName(SnapshotIO.readString(in))
+            .comment(SnapshotIO.readString(in))
+            .constraints(SnapshotIO.readString(in))
+            .defaultValue(SnapshotIO.readString(in))
+            .domain(SnapshotIO.readString(in));
     }
 
 }
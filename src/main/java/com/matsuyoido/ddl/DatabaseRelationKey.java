@@ -1,14 +1,15 @@
 package com.matsuyoido.ddl;
 
-import static com.matsuyoido.ddl.DatabaseTable.toSentence;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 public class DatabaseRelationKey {
 
     /** 外部キー名 */
-    private final String name;
+    final String name;
 
     /** 外部キー付与テーブル名 */
     private final String table;
@@ -35,15 +36,42 @@ public class DatabaseRelationKey {
         this.childColumns = columns;
     }
 
+    List<DatabaseColumn> getColumns() {
+        return this.columns;
+    }
+
+    List<DatabaseColumn> getChildColumns() {
+        return this.childColumns;
+    }
+
     /** ALTER TABLE table-name ADD CONSTRAINT key-name FOREIGN KEY(index_col_name, ...) REFERENCES table-name (index_col_name, ...); */
-    String sentence(boolean lowerAll, Optional<String> schema) {
-        return toSentence("ALTER TABLE ", lowerAll) + schema.map(v -> v + ".").orElse("") + this.table
-            + toSentence(" ADD CONSTRAINT ", lowerAll) + this.name
-            + toSentence(" FOREIGN KEY(", lowerAll) + this.columns.stream().map(column -> column.name).collect(Collectors.joining(", "))
-            + toSentence(") REFERENCES ", lowerAll) + schema.map(v -> v + ".").orElse("") + this.relationTableName
-            + " (" + this.childColumns.stream().map(column -> column.name).collect(Collectors.joining(", "))
-            + ");"
-        ;
+    void appendSentence(Appendable out, SqlKeywords keywords, Optional<String> schema) throws IOException {
+        out.append(keywords.alterTable);
+        DatabaseTable.appendTableName(out, schema, this.table);
+        out.append(keywords.addConstraint).append(this.name)
+           .append(keywords.foreignKey);
+        DatabaseTable.appendColumnNames(out, this.columns);
+        out.append(keywords.references);
+        DatabaseTable.appendTableName(out, schema, this.relationTableName);
+        out.append(" (");
+        DatabaseTable.appendColumnNames(out, this.childColumns);
+        out.append(");");
+    }
+
+    /** 親テーブル名は読み込み側で分かるため書かない */
+    void writeTo(DataOutput out, Map<DatabaseColumn, Integer> columnIndex, Map<DatabaseColumn, Integer> childColumnIndex) throws IOException {
+        SnapshotIO.writeString(out, this.name);
+        SnapshotIO.writeString(out, this.relationTableName);
+        SnapshotIO.writeColumnIndexes(out, this.columns, columnIndex);
+        SnapshotIO.writeColumnIndexes(out, this.childColumns, childColumnIndex);
+    }
+
+    /** 差分検出用。参照先はテーブル名・カラム名で書く */
+    void writeDefinition(DataOutput out) throws IOException {
+        SnapshotIO.writeString(out, this.name);
+        SnapshotIO.writeString(out, this.relationTableName);
+        SnapshotIO.writeColumnNames(out, this.columns);
+        SnapshotIO.writeColumnNames(out, this.childColumns);
     }
 
 }
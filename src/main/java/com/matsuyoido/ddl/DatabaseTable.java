@@ -1,13 +1,20 @@
 package com.matsuyoido.ddl;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 public class DatabaseTable {
 
@@ -19,19 +26,23 @@ public class DatabaseTable {
     private String logicalName;
 
     /** テーブルカラム */
-    private LinkedList<DatabaseColumn> columns;
+    private ArrayList<DatabaseColumn> columns;
+    /** カラム名 -> columns の位置 */
+    private Map<String, Integer> columnIndex;
 
     /** PrimaryKeyカラム */
     private LinkedList<DatabaseColumn> primaryKeyCloumns;
 
-    /** ForeignKeyカラム */
-    private List<DatabaseRelationKey> foreignKeyColumns;
+    /** FK名 -> ForeignKeyカラム (定義順) */
+    private Map<String, DatabaseRelationKey> foreignKeyColumns;
+    /** FK の参照先テーブル名 */
+    private Set<String> relationTableNames;
 
-    /** UniqueKeyカラム */
-    private List<DatabaseKey> uniqueKeyColumns;
+    /** UK名 -> UniqueKeyカラム (定義順) */
+    private Map<String, DatabaseKey> uniqueKeyColumns;
 
-    /** Indexカラム */
-    private List<DatabaseKey> indexColumns;
+    /** Index名 -> Indexカラム (定義順) */
+    private Map<String, DatabaseKey> indexColumns;
 
     public DatabaseTable(String tableName) {
         this(tableName, null);
@@ -41,11 +52,13 @@ public class DatabaseTable {
         this.name = tableName;
         this.comment = tableComment;
         
-        this.columns = new LinkedList<>();
+        this.columns = new ArrayList<>();
+        this.columnIndex = new HashMap<>();
         this.primaryKeyCloumns = new LinkedList<>();
-        this.foreignKeyColumns = new ArrayList<>();
-        this.uniqueKeyColumns = new ArrayList<>();
-        this.indexColumns = new ArrayList<>();
+        this.foreignKeyColumns = new LinkedHashMap<>();
+        this.relationTableNames = new LinkedHashSet<>();
+        this.uniqueKeyColumns = new LinkedHashMap<>();
+        this.indexColumns = new LinkedHashMap<>();
     }
 
     public DatabaseTable logicalName(String name) {
@@ -54,7 +67,14 @@ public class DatabaseTable {
     }
 
     public void addColumns(List<DatabaseColumn> columns) {
-        this.columns.addAll(columns);
+        this.columns.ensureCapacity(this.columns.size() + columns.size());
+        columns.forEach(this::addColumn);
+    }
+
+    private void addColumn(DatabaseColumn column) {
+        // 同名カラムがある場合は、先に定義したカラムを使う
+        this.columnIndex.putIfAbsent(column.name, this.columns.size());
+        this.columns.add(column);
     }
 
     // public DatabaseColumn addColumn(String columnName, String columnType) {
@@ -65,12 +85,12 @@ public class DatabaseTable {
 
     /** @return PK追加成功 */
     public boolean addPrimaryKey(String... columns) {
-        Arrays.stream(columns)
-              .map(name -> this.columns.stream().filter(column -> column.name.equals(name)).findFirst().orElse(null))
-              .filter(Objects::nonNull)
-              .forEach(column -> {
-                  this.primaryKeyCloumns.add(column);
-              });
+        for (String name : columns) {
+            Integer position = this.columnIndex.get(name);
+            if (position != null) {
+                this.primaryKeyCloumns.add(this.columns.get(position));
+            }
+        }
         if (this.primaryKeyCloumns.size() != columns.length) {
             this.primaryKeyCloumns.clear();
             return false;
@@ -81,52 +101,85 @@ public class DatabaseTable {
 
     /** @return FK追加成功 */
     public boolean addForeignKey(String keyName, List<String> columnNames, DatabaseTable table, List<String> childColumnNames) {
-        DatabaseRelationKey key = new DatabaseRelationKey(keyName, this.name, table.name);
-        List<DatabaseColumn> foreignColumns = this.columns.stream()
-                                                          .filter(column -> columnNames.contains(column.name))
-                                                          .collect(Collectors.toList());
-        List<DatabaseColumn> relationColumns = table.columns.stream()
-                                                            .filter(column -> childColumnNames.contains(column.name))
-                                                            .collect(Collectors.toList());
+        if (this.foreignKeyColumns.containsKey(keyName)) {
+            return false;
+        }
+        List<DatabaseColumn> foreignColumns = getColumns(columnNames);
+        List<DatabaseColumn> relationColumns = table.getColumns(childColumnNames);
         if (foreignColumns.size() != columnNames.size()) {
             return false;
         }
         if (relationColumns.size() != childColumnNames.size()) {
             return false;
         }
+        DatabaseRelationKey key = new DatabaseRelationKey(keyName, this.name, table.name);
         key.setColumns(foreignColumns);
         key.setChildColumns(relationColumns);
-        this.foreignKeyColumns.add(key);
+        addForeignKey(key);
         return true;
     }
 
-    /** @return UK追加成功 */
+    public boolean hasUniqueKey(String keyName) {
+        return this.uniqueKeyColumns.containsKey(keyName);
+    }
+
+    public boolean hasIndexKey(String keyName) {
+        return this.indexColumns.containsKey(keyName);
+    }
+
+    /** @return UK追加成功。同じ名前の UK がある場合は false */
     public boolean addUniqueKey(String keyName, String... uniqueColumnNames) {
-        List<DatabaseColumn> columns = getColumns(uniqueColumnNames);
-        if (columns.size() != uniqueColumnNames.length) {
-            return false;
-        }
-        DatabaseKey uniqueKey = new DatabaseKey(keyName, columns);
-        this.uniqueKeyColumns.add(uniqueKey);
-        return true;
+        return addKey(this.uniqueKeyColumns, keyName, uniqueColumnNames);
     }
 
-    /** @return Idx追加成功 */
+    /** @return Idx追加成功。同じ名前の INDEX がある場合は false */
     public boolean addIndexKey(String keyName, String... indexColumnNames) {
-        List<DatabaseColumn> columns = getColumns(indexColumnNames);
-        if (columns.size() != indexColumnNames.length) {
+        return addKey(this.indexColumns, keyName, indexColumnNames);
+    }
+
+    private boolean addKey(Map<String, DatabaseKey> keys, String keyName, String[] columnNames) {
+        if (keys.containsKey(keyName)) {
             return false;
         }
-        DatabaseKey indexKey = new DatabaseKey(keyName, columns);
-        this.indexColumns.add(indexKey);
+        List<String> names = List.of(columnNames);
+        List<DatabaseColumn> columns = getColumns(names);
+        if (columns.size() != names.size()) {
+            return false;
+        }
+        keys.put(keyName, new DatabaseKey(keyName, columns));
         return true;
     }
 
-    private List<DatabaseColumn> getColumns(String[] columnArray) {
-        List<String> names = Arrays.asList(columnArray);
-        return this.columns.stream()
-                   .filter(column -> names.contains(column.name))
-                   .collect(Collectors.toList());
+    private void addForeignKey(DatabaseRelationKey key) {
+        this.foreignKeyColumns.put(key.name, key);
+        this.relationTableNames.add(key.relationTableName);
+    }
+
+    /**
+     * 指定したカラム名のカラムを、テーブルの定義順で返す。
+     * 存在しないカラム名・重複したカラム名は含まない (呼び出し側で件数を比べる)。
+     */
+    private List<DatabaseColumn> getColumns(List<String> names) {
+        int[] positions = names.stream()
+                               .map(this.columnIndex::get)
+                               .filter(position -> position != null)
+                               .mapToInt(Integer::intValue)
+                               .sorted()
+                               .distinct()
+                               .toArray();
+        List<DatabaseColumn> columns = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            columns.add(this.columns.get(position));
+        }
+        return columns;
+    }
+
+
+    /** FK解決用に、テーブル名とカラム名だけを持つ写しを作る */
+    public DatabaseTable outline() {
+        DatabaseTable outline = new DatabaseTable(this.name);
+        this.columns.forEach(column -> outline.addColumn(new DatabaseColumn(column.name, null)));
+        return outline;
     }
 
 
@@ -136,80 +189,320 @@ public class DatabaseTable {
     public boolean hasForeignKey() {
         return !this.foreignKeyColumns.isEmpty();
     }
+    /** FK の参照先テーブル名 (定義順) */
     public Set<String> getRelationTables() {
-        return this.foreignKeyColumns.stream().map(relation -> relation.relationTableName).collect(Collectors.toSet());
+        return Collections.unmodifiableSet(this.relationTableNames);
+    }
+    /** FK 名 (定義順) */
+    public Set<String> getForeignKeyNames() {
+        return Collections.unmodifiableSet(this.foreignKeyColumns.keySet());
+    }
+    String getComment() {
+        return this.comment;
+    }
+    String getLogicalName() {
+        return this.logicalName;
+    }
+    List<DatabaseColumn> getColumnList() {
+        return Collections.unmodifiableList(this.columns);
+    }
+    /** 同名カラムがある場合は、先に定義したカラム */
+    DatabaseColumn getColumn(String columnName) {
+        Integer position = this.columnIndex.get(columnName);
+        return position == null ? null : this.columns.get(position);
+    }
+    List<DatabaseColumn> getPrimaryKeyColumns() {
+        return Collections.unmodifiableList(this.primaryKeyCloumns);
+    }
+    Map<String, DatabaseRelationKey> getForeignKeys() {
+        return Collections.unmodifiableMap(this.foreignKeyColumns);
+    }
+    Map<String, DatabaseKey> getUniqueKeys() {
+        return Collections.unmodifiableMap(this.uniqueKeyColumns);
+    }
+    Map<String, DatabaseKey> getIndexKeys() {
+        return Collections.unmodifiableMap(this.indexColumns);
     }
 
-    public List<String> createSentence(boolean existCheck, boolean lowerAll, Optional<String> schema) {
-        LinkedList<String> sentence = new LinkedList<>();
+    /**
+     * -- table-name : logical-name
+     * CREATE TABLE table-name(...);
+     * ALTER TABLE table-name ADD CONSTRAINT table-name_PK PRIMARY KEY (index_col_name, ...);
+     * 文の間は lineEnd で区切り、最後の文の後には付けない。
+     */
+    public void appendCreateSentence(Appendable out, SqlKeywords keywords, boolean existCheck, Optional<String> schema, String lineEnd) throws IOException {
+        appendCreateSentence(out, keywords, Map.of(), existCheck, schema, lineEnd);
+    }
 
-        this.columns.forEach(column -> sentence.add("  " + column.createSentence(lowerAll)));
-        if (this.comment != null && !this.comment.isBlank()) {
-            sentence.add(toSentence("  COMMENT ", lowerAll) + '"' + this.comment + '"');
+    /**
+     * @param domainTypes domain 名 -> 型 (dialect ごとの型)
+     * COMMENT ON 形式の dialect では、PK の後に COMMENT ON TABLE/COLUMN 文を続ける。
+     */
+    public void appendCreateSentence(Appendable out, SqlKeywords keywords, Map<String, String> domainTypes, boolean existCheck, Optional<String> schema, String lineEnd) throws IOException {
+        out.append("-- ").append(this.name);
+        if (this.logicalName != null) {
+            out.append(" : ").append(this.logicalName);
         }
+        out.append(lineEnd)
+           .append(existCheck ? keywords.createTableIfNotExists : keywords.createTable);
+        appendTableName(out, schema, this.name);
+        out.append('(').append(lineEnd);
 
-        sentence.replaceAll(text -> 
-            text + (sentence.getLast().equals(text) ? "" : ",")
-        );
+        boolean hasComment = this.comment != null && !this.comment.isBlank();
+        boolean hasCommentLine = hasComment && keywords.commentStyle == SqlKeywords.CommentStyle.LEGACY;
+        for (int i = 0; i < this.columns.size(); i++) {
+            out.append("  ");
+            this.columns.get(i).appendSentence(out, keywords, domainTypes);
+            if (hasCommentLine || i < this.columns.size() - 1) {
+                out.append(',');
+            }
+            out.append(lineEnd);
+        }
+        if (hasCommentLine) {
+            out.append(keywords.tableComment);
+            keywords.appendLiteral(out, this.comment);
+            out.append(lineEnd);
+        }
+        out.append(')');
+        if (hasComment && keywords.commentStyle == SqlKeywords.CommentStyle.TABLE_OPTION) {
+            out.append(keywords.tableCommentOption);
+            keywords.appendLiteral(out, this.comment);
+        }
+        out.append(';');
 
-        if (existCheck) {
-            sentence.addFirst(toSentence("CREATE TABLE IF NOT EXISTS ", lowerAll) + schema.map(v -> v + ".").orElse("") + this.name + "(");
-        } else {
-            sentence.addFirst(toSentence("CREATE TABLE ", lowerAll) + schema.map(v -> v + ".").orElse("") + this.name + "(");
+        if (!primaryKeyCloumns.isEmpty()) {
+            out.append(lineEnd);
+            appendPrimaryKey(out, keywords, schema);
         }
-        sentence.addLast(");");
+        if (keywords.commentStyle == SqlKeywords.CommentStyle.COMMENT_ON) {
+            appendCommentOnSentence(out, keywords, hasComment, schema, lineEnd);
+        }
+    }
 
-        sentence.addFirst("-- " + this.name + Optional.ofNullable(this.logicalName).map(v -> " : " + v).orElse(""));
+    /** ALTER TABLE table-name ADD CONSTRAINT table-name_PK PRIMARY KEY (index_col_name, ...); */
+    void appendPrimaryKey(Appendable out, SqlKeywords keywords, Optional<String> schema) throws IOException {
+        out.append(keywords.alterTable);
+        appendTableName(out, schema, this.name);
+        out.append(keywords.addConstraint).append(primaryKeyName())
+           .append(keywords.primaryKey);
+        appendColumnNames(out, this.primaryKeyCloumns);
+        out.append(");");
+    }
 
-        if (!primaryKeyCloumns.isEmpty()) {
-            sentence.add(toSentence("ALTER TABLE ", lowerAll) 
-                + schema.map(v -> v + ".").orElse("") + this.name
-                + toSentence(" ADD CONSTRAINT ", lowerAll) + String.format("%s_PK", this.name)
-                + toSentence(" PRIMARY KEY (", lowerAll)
-                + this.primaryKeyCloumns.stream().map(column -> column.name).collect(Collectors.joining(", "))
-                + ");" );
+    String primaryKeyName() {
+        return this.name + "_PK";
+    }
+
+    /** COMMENT ON TABLE table-name IS '...'; COMMENT ON COLUMN table-name.col_name IS '...'; */
+    private void appendCommentOnSentence(Appendable out, SqlKeywords keywords, boolean hasComment, Optional<String> schema, String lineEnd) throws IOException {
+        if (hasComment) {
+            out.append(lineEnd);
+            appendCommentOnTable(out, keywords, schema, this.comment);
+        }
+        for (DatabaseColumn column : this.columns) {
+            String commentText = column.commentText();
+            if (commentText != null) {
+                out.append(lineEnd);
+                appendCommentOnColumn(out, keywords, schema, column.name, commentText);
+            }
         }
-        return sentence;
     }
 
+    void appendCommentOnTable(Appendable out, SqlKeywords keywords, Optional<String> schema, String comment) throws IOException {
+        out.append(keywords.commentOnTable);
+        appendTableName(out, schema, this.name);
+        out.append(keywords.is);
+        keywords.appendLiteral(out, comment);
+        out.append(';');
+    }
 
-    public List<String> foreignKeySentence(boolean lowerAll, Optional<String> schema) {
-        ArrayList<String> sentence = new ArrayList<>();
-        this.foreignKeyColumns.forEach(relation -> 
-            sentence.add(relation.sentence(lowerAll, schema))
-        );
-        return sentence;
+    void appendCommentOnColumn(Appendable out, SqlKeywords keywords, Optional<String> schema, String columnName, String comment) throws IOException {
+        out.append(keywords.commentOnColumn);
+        appendTableName(out, schema, this.name);
+        out.append('.').append(columnName)
+           .append(keywords.is);
+        keywords.appendLiteral(out, comment);
+        out.append(';');
+    }
+
+    /** FK の ALTER TABLE 文。文の間は lineEnd で区切る */
+    public void appendForeignKeySentence(Appendable out, SqlKeywords keywords, Optional<String> schema, String lineEnd) throws IOException {
+        boolean first = true;
+        for (DatabaseRelationKey relation : this.foreignKeyColumns.values()) {
+            if (!first) {
+                out.append(lineEnd);
+            }
+            relation.appendSentence(out, keywords, schema);
+            first = false;
+        }
     }
 
     /** ALTER TABLE table-name ADD CONSTRAINT key-name UNIQUE (index_col_name, ...); */
-    public List<String> uniqueKeySentence(boolean lowerAll, Optional<String> schema) {
-        ArrayList<String> sentence = new ArrayList<>();
-        this.uniqueKeyColumns.forEach(constraint -> {
-            String uniqueKey = toSentence("ALTER TABLE ", lowerAll) + schema.map(v -> v + ".").orElse("") + this.name
-                + toSentence(" ADD CONSTRAINT ", lowerAll) + constraint.name
-                + toSentence(" UNIQUE (", lowerAll) + constraint.columns.stream().map(column -> column.name).collect(Collectors.joining(", "))
-                + ");"
-            ;
-            sentence.add(uniqueKey);
-        });
-        return sentence;
+    public void appendUniqueKeySentence(Appendable out, SqlKeywords keywords, Optional<String> schema, String lineEnd) throws IOException {
+        boolean first = true;
+        for (DatabaseKey constraint : this.uniqueKeyColumns.values()) {
+            if (!first) {
+                out.append(lineEnd);
+            }
+            appendUniqueKey(out, keywords, schema, constraint);
+            first = false;
+        }
     }
+
+    void appendUniqueKey(Appendable out, SqlKeywords keywords, Optional<String> schema, DatabaseKey constraint) throws IOException {
+        out.append(keywords.alterTable);
+        appendTableName(out, schema, this.name);
+        out.append(keywords.addConstraint).append(constraint.name)
+           .append(keywords.unique);
+        appendColumnNames(out, constraint.columns);
+        out.append(");");
+    }
+
     /** CREATE INDEX key-name ON table-name (index_col_name, ...); */
-    public List<String> indexKeySentence(boolean lowerAll, Optional<String> schema) {
-        ArrayList<String> sentence = new ArrayList<>();
-        this.indexColumns.forEach(constraint -> {
-            String indexKey = toSentence("CREATE INDEX ", lowerAll) + constraint.name
-                + toSentence(" ON ", lowerAll) + schema.map(v -> v + ".").orElse("") + this.name
-                + " (" + constraint.columns.stream().map(column -> column.name).collect(Collectors.joining(", "))
-                + ");"
-            ;
-            sentence.add(indexKey);
-        });
-        return sentence;
-    }
-
-    public static String toSentence(String text, boolean lowerAll) {
-        return lowerAll ? text.toLowerCase() : text;
+    public void appendIndexKeySentence(Appendable out, SqlKeywords keywords, Optional<String> schema, String lineEnd) throws IOException {
+        boolean first = true;
+        for (DatabaseKey constraint : this.indexColumns.values()) {
+            if (!first) {
+                out.append(lineEnd);
+            }
+            appendIndexKey(out, keywords, schema, constraint);
+            first = false;
+        }
+    }
+
+    void appendIndexKey(Appendable out, SqlKeywords keywords, Optional<String> schema, DatabaseKey constraint) throws IOException {
+        out.append(keywords.createIndex).append(constraint.name)
+           .append(keywords.on);
+        appendTableName(out, schema, this.name);
+        out.append(" (");
+        appendColumnNames(out, constraint.columns);
+        out.append(");");
+    }
+
+    /** [schema.]table-name */
+    public static void appendTableName(Appendable out, Optional<String> schema, String tableName) throws IOException {
+        if (schema.isPresent()) {
+            out.append(schema.get()).append('.');
+        }
+        out.append(tableName);
+    }
+
+    /** col_name, col_name, ... */
+    static void appendColumnNames(Appendable out, List<DatabaseColumn> columns) throws IOException {
+        boolean first = true;
+        for (DatabaseColumn column : columns) {
+            if (!first) {
+                out.append(", ");
+            }
+            out.append(column.name);
+            first = false;
+        }
+    }
+
+    /**
+     * テーブル一覧をバイナリ形式で書き出す (パース結果のキャッシュ用)。
+     * キーはカラムの位置で書き、FK は全テーブルの後にまとめて書く。
+     */
+    public static void writeTables(DataOutput out, List<DatabaseTable> tables) throws IOException {
+        Map<String, Map<DatabaseColumn, Integer>> columnIndexes = new HashMap<>();
+        out.writeInt(tables.size());
+        for (DatabaseTable table : tables) {
+            SnapshotIO.writeString(out, table.name);
+            SnapshotIO.writeString(out, table.comment);
+            SnapshotIO.writeString(out, table.logicalName);
+            Map<DatabaseColumn, Integer> columnIndex = new IdentityHashMap<>();
+            int position = 0;
+            out.writeInt(table.columns.size());
+            for (DatabaseColumn column : table.columns) {
+                columnIndex.putIfAbsent(column, position++);
+                column.writeTo(out);
+            }
+            columnIndexes.put(table.name, columnIndex);
+            SnapshotIO.writeColumnIndexes(out, table.primaryKeyCloumns, columnIndex);
+            writeKeys(out, table.uniqueKeyColumns.values(), columnIndex);
+            writeKeys(out, table.indexColumns.values(), columnIndex);
+        }
+        for (DatabaseTable table : tables) {
+            out.writeInt(table.foreignKeyColumns.size());
+            for (DatabaseRelationKey relation : table.foreignKeyColumns.values()) {
+                relation.writeTo(out, columnIndexes.get(table.name), columnIndexes.get(relation.relationTableName));
+            }
+        }
+    }
+
+    /**
+     * 1テーブル分の定義をバイナリ形式で書き出す (DDL 再生成要否の判定用)。
+     * FK は参照先テーブルのカラムをカラム名で書くため、このテーブル単体で完結する。
+     */
+    public void writeDefinition(DataOutput out) throws IOException {
+        SnapshotIO.writeString(out, this.name);
+        SnapshotIO.writeString(out, this.comment);
+        SnapshotIO.writeString(out, this.logicalName);
+        out.writeInt(this.columns.size());
+        for (DatabaseColumn column : this.columns) {
+            column.writeTo(out);
+        }
+        SnapshotIO.writeColumnNames(out, this.primaryKeyCloumns);
+        for (Map<String, DatabaseKey> keys : List.of(this.uniqueKeyColumns, this.indexColumns)) {
+            out.writeInt(keys.size());
+            for (DatabaseKey key : keys.values()) {
+                SnapshotIO.writeString(out, key.name);
+                SnapshotIO.writeColumnNames(out, key.columns);
+            }
+        }
+        out.writeInt(this.foreignKeyColumns.size());
+        for (DatabaseRelationKey relation : this.foreignKeyColumns.values()) {
+            relation.writeDefinition(out);
+        }
+    }
+
+    private static void writeKeys(DataOutput out, Collection<DatabaseKey> keys, Map<DatabaseColumn, Integer> columnIndex) throws IOException {
+        out.writeInt(keys.size());
+        for (DatabaseKey key : keys) {
+            SnapshotIO.writeString(out, key.name);
+            SnapshotIO.writeColumnIndexes(out, key.columns, columnIndex);
+        }
+    }
+
+    /** {@link #writeTables(DataOutput, List)} で書いたテーブル一覧を読む */
+    public static List<DatabaseTable> readTables(DataInput in) throws IOException {
+        int size = in.readInt();
+        List<DatabaseTable> tables = new ArrayList<>(size);
+        Map<String, List<DatabaseColumn>> columnLists = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            DatabaseTable table = new DatabaseTable(SnapshotIO.readString(in), SnapshotIO.readString(in))
+                    .logicalName(SnapshotIO.readString(in));
+            int columnSize = in.readInt();
+            List<DatabaseColumn> columns = new ArrayList<>(columnSize);
+            for (int j = 0; j < columnSize; j++) {
+                columns.add(DatabaseColumn.readFrom(in));
+            }
+            table.addColumns(columns);
+            columnLists.put(table.name, columns);
+            table.primaryKeyCloumns.addAll(SnapshotIO.readColumnIndexes(in, columns));
+            readKeys(in, columns).forEach(key -> table.uniqueKeyColumns.put(key.name, key));
+            readKeys(in, columns).forEach(key -> table.indexColumns.put(key.name, key));
+            tables.add(table);
+        }
+        for (DatabaseTable table : tables) {
+            int foreignKeySize = in.readInt();
+            for (int j = 0; j < foreignKeySize; j++) {
+                DatabaseRelationKey relation = new DatabaseRelationKey(SnapshotIO.readString(in), table.name, SnapshotIO.readString(in));
+                relation.setColumns(SnapshotIO.readColumnIndexes(in, columnLists.get(table.name)));
+                relation.setChildColumns(SnapshotIO.readColumnIndexes(in, columnLists.get(relation.relationTableName)));
+                table.addForeignKey(relation);
+            }
+        }
+        return tables;
+    }
+
+    private static List<DatabaseKey> readKeys(DataInput in, List<DatabaseColumn> columns) throws IOException {
+        int size = in.readInt();
+        List<DatabaseKey> keys = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            keys.add(new DatabaseKey(SnapshotIO.readString(in), SnapshotIO.readColumnIndexes(in, columns)));
+        }
+        return keys;
     }
 
 }
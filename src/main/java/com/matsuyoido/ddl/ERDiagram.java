@@ -0,0 +1,326 @@
+package com.matsuyoido.ddl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * テーブル定義から ER 図 (SVG, HTML) を書く。データベース・schemaspy を使わず、外部のファイルも読まない。
+ * テーブルごとに、カラム (PK・FK・UK・INDEX の印, 型, 論理名) と UK・INDEX の定義を表示する。
+ * FK は、FK を持つテーブルから参照先テーブルへの矢印にする (同じテーブル間の FK は1本にまとめる)。
+ */
+public class ERDiagram {
+
+    private static final double FONT_SIZE = 12;
+    /** 等幅フォントの半角1文字の幅 */
+    private static final double CHAR_WIDTH = 7.2;
+    private static final double ROW_HEIGHT = 18;
+    private static final double PADDING = 8;
+    private static final double COLUMN_GAP = 12;
+    private static final String STYLE = String.join("\n",
+        ".er-table rect.box { fill: #ffffff; stroke: #4a6785; }",
+        ".er-table rect.header { fill: #dde7f0; stroke: #4a6785; }",
+        ".er-table .name { font-weight: bold; }",
+        ".er-table .logical, .er-table .type { fill: #555555; }",
+        ".er-table .pk { font-weight: bold; }",
+        ".er-table .marker { fill: #b35900; font-size: 10px; }",
+        ".er-table .key { fill: #555555; font-size: 11px; }",
+        ".er-table line.separator { stroke: #c0ccd8; }",
+        ".er-relation { fill: none; stroke: #7a8a99; stroke-width: 1.2; }",
+        ".er-relation:hover { stroke: #d9534f; stroke-width: 2; }",
+        "#er-arrow path { fill: #7a8a99; }");
+
+    private final String title;
+    private final List<TableBox> boxes = new ArrayList<>();
+    private final List<Relation> relations = new ArrayList<>();
+    private final ERLayout layout = new ERLayout();
+
+    /** @param title 図と HTML のタイトル */
+    public ERDiagram(String title, List<DatabaseTable> tables) {
+        this.title = title;
+        Map<String, Integer> tableIndex = new HashMap<>();
+        for (DatabaseTable table : tables) {
+            if (tableIndex.containsKey(table.getName())) {
+                continue;
+            }
+            TableBox box = new TableBox(table);
+            tableIndex.put(table.getName(), this.boxes.size());
+            this.boxes.add(box);
+            this.layout.addNode(box.width, box.height);
+        }
+        // 同じテーブル間の FK は1本の矢印にまとめる
+        Map<String, Relation> relationByTables = new LinkedHashMap<>();
+        for (TableBox box : this.boxes) {
+            for (DatabaseRelationKey key : box.table.getForeignKeys().values()) {
+                Integer to = tableIndex.get(key.relationTableName);
+                if (to == null) {
+                    continue;
+                }
+                int from = tableIndex.get(box.table.getName());
+                relationByTables.computeIfAbsent(from + "->" + to, name -> new Relation(this.layout.addEdge(from, to)))
+                                .keyNames.add(key.name);
+            }
+        }
+        this.relations.addAll(relationByTables.values());
+        this.layout.layout();
+    }
+
+    /** SVG だけのファイル (スタイルを含む) */
+    public void writeSvg(Appendable out) throws IOException {
+        out.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        appendSvg(out);
+    }
+
+    /** SVG を埋め込んだ HTML (1ファイルで表示できる) */
+    public void writeHtml(Appendable out) throws IOException {
+        out.append("<!DOCTYPE html>\n")
+           .append("<html>\n<head>\n<meta charset=\"UTF-8\">\n<title>");
+        appendEscaped(out, this.title);
+        out.append("</title>\n<style>\n")
+           .append("body { margin: 0; font-family: sans-serif; }\n")
+           .append("header { padding: 8px 16px; background: #4a6785; color: #ffffff; }\n")
+           .append("header h1 { margin: 0; font-size: 20px; }\n")
+           .append("nav { padding: 4px 16px; font-size: 13px; }\n")
+           .append("nav a { margin-right: 12px; }\n")
+           .append(".diagram { overflow: auto; }\n")
+           .append("</style>\n</head>\n<body>\n<header>\n<h1>");
+        appendEscaped(out, this.title);
+        out.append("</h1>\n<div>").append(String.valueOf(this.boxes.size())).append(" tables, ")
+           .append(String.valueOf(this.relations.size())).append(" relations</div>\n</header>\n<nav>\n");
+        for (TableBox box : this.boxes) {
+            out.append("<a href=\"#").append(box.id).append("\">");
+            appendEscaped(out, box.table.getName());
+            out.append("</a>\n");
+        }
+        out.append("</nav>\n<div class=\"diagram\">\n");
+        appendSvg(out);
+        out.append("</div>\n</body>\n</html>\n");
+    }
+
+    private void appendSvg(Appendable out) throws IOException {
+        out.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(number(this.layout.width()))
+           .append("\" height=\"").append(number(this.layout.height()))
+           .append("\" viewBox=\"0 0 ").append(number(this.layout.width())).append(' ').append(number(this.layout.height()))
+           .append("\" font-family=\"monospace\" font-size=\"").append(number(FONT_SIZE)).append("\">\n")
+           .append("<style>\n").append(STYLE).append("\n</style>\n")
+           .append("<defs><marker id=\"er-arrow\" viewBox=\"0 0 10 10\" refX=\"10\" refY=\"5\" markerWidth=\"8\" markerHeight=\"8\" orient=\"auto\">")
+           .append("<path d=\"M0,0 L10,5 L0,10 z\"/></marker></defs>\n");
+        // 線の上にテーブルを描く
+        for (Relation relation : this.relations) {
+            relation.append(out);
+        }
+        for (int i = 0; i < this.boxes.size(); i++) {
+            ERLayout.Node node = this.layout.node(i);
+            this.boxes.get(i).append(out, node.x, node.y);
+        }
+        out.append("</svg>\n");
+    }
+
+    /** テーブル1つの箱。カラムの行の後に、UK・INDEX の定義の行を続ける */
+    private static class TableBox {
+        final DatabaseTable table;
+        final String id;
+        final List<String[]> columnRows = new ArrayList<>();
+        final List<String> keyRows = new ArrayList<>();
+        final Set<DatabaseColumn> primaryKeyColumns = Collections.newSetFromMap(new IdentityHashMap<>());
+        /** 列 (印, カラム名, 型, 論理名) の x */
+        final double[] offsets = new double[4];
+        final double headerHeight;
+        final double width;
+        final double height;
+
+        TableBox(DatabaseTable table) {
+            this.table = table;
+            this.id = "table-" + table.getName();
+            this.primaryKeyColumns.addAll(table.getPrimaryKeyColumns());
+            Map<DatabaseColumn, String> markers = markers(table);
+            for (DatabaseColumn column : table.getColumnList()) {
+                String logicalName = column.getLogicalName();
+                this.columnRows.add(new String[] {
+                    markers.getOrDefault(column, ""), column.name, column.type == null ? "" : column.type, logicalName == null ? "" : logicalName
+                });
+            }
+            appendKeyRows("UK", table.getUniqueKeys());
+            appendKeyRows("IX", table.getIndexKeys());
+
+            double[] columnWidths = new double[4];
+            for (String[] row : this.columnRows) {
+                for (int i = 0; i < row.length; i++) {
+                    columnWidths[i] = Math.max(columnWidths[i], textWidth(row[i]));
+                }
+            }
+            double x = PADDING;
+            double contentWidth = 0;
+            for (int i = 0; i < columnWidths.length; i++) {
+                this.offsets[i] = x;
+                contentWidth = Math.max(contentWidth, x + columnWidths[i] + PADDING);
+                x += columnWidths[i] + (columnWidths[i] > 0 ? COLUMN_GAP : 0);
+            }
+            contentWidth = Math.max(contentWidth, textWidth(table.getName()) + PADDING * 2);
+            if (table.getLogicalName() != null) {
+                contentWidth = Math.max(contentWidth, textWidth(table.getLogicalName()) + PADDING * 2);
+            }
+            for (String keyRow : this.keyRows) {
+                contentWidth = Math.max(contentWidth, textWidth(keyRow) + PADDING * 2);
+            }
+            this.width = Math.ceil(contentWidth);
+            this.headerHeight = ROW_HEIGHT * (table.getLogicalName() == null ? 1 : 2) + 4;
+            this.height = this.headerHeight + ROW_HEIGHT * (this.columnRows.size() + this.keyRows.size()) + PADDING;
+        }
+
+        /** カラム -> "PK FK UK IX" のうち当てはまるもの */
+        private static Map<DatabaseColumn, String> markers(DatabaseTable table) {
+            Map<DatabaseColumn, StringBuilder> markers = new IdentityHashMap<>();
+            table.getPrimaryKeyColumns().forEach(column -> addMarker(markers, column, "PK"));
+            table.getForeignKeys().values().forEach(key -> key.getColumns().forEach(column -> addMarker(markers, column, "FK")));
+            table.getUniqueKeys().values().forEach(key -> key.columns.forEach(column -> addMarker(markers, column, "UK")));
+            table.getIndexKeys().values().forEach(key -> key.columns.forEach(column -> addMarker(markers, column, "IX")));
+            Map<DatabaseColumn, String> result = new IdentityHashMap<>();
+            markers.forEach((column, marker) -> result.put(column, marker.toString()));
+            return result;
+        }
+
+        private static void addMarker(Map<DatabaseColumn, StringBuilder> markers, DatabaseColumn column, String marker) {
+            StringBuilder text = markers.computeIfAbsent(column, key -> new StringBuilder());
+            if (text.indexOf(marker) < 0) {
+                text.append(text.length() == 0 ? "" : " ").append(marker);
+            }
+        }
+
+        private void appendKeyRows(String marker, Map<String, DatabaseKey> keys) {
+            for (DatabaseKey key : keys.values()) {
+                StringBuilder row = new StringBuilder(marker).append(' ').append(key.name).append(" (");
+                for (int i = 0; i < key.columns.size(); i++) {
+                    row.append(i == 0 ? "" : ", ").append(key.columns.get(i).name);
+                }
+                this.keyRows.add(row.append(')').toString());
+            }
+        }
+
+        void append(Appendable out, double x, double y) throws IOException {
+            out.append("<g class=\"er-table\" id=\"");
+            appendEscaped(out, this.id);
+            out.append("\" transform=\"translate(").append(number(x)).append(',').append(number(y)).append(")\">\n")
+               .append("<rect class=\"box\" width=\"").append(number(this.width)).append("\" height=\"").append(number(this.height)).append("\"/>\n")
+               .append("<rect class=\"header\" width=\"").append(number(this.width)).append("\" height=\"").append(number(this.headerHeight)).append("\"/>\n");
+            double baseline = ROW_HEIGHT - 4;
+            appendText(out, "name", PADDING, baseline, this.table.getName());
+            if (this.table.getLogicalName() != null) {
+                baseline += ROW_HEIGHT;
+                appendText(out, "logical", PADDING, baseline, this.table.getLogicalName());
+            }
+            baseline = this.headerHeight + ROW_HEIGHT - 4;
+            List<DatabaseColumn> columns = this.table.getColumnList();
+            for (int i = 0; i < this.columnRows.size(); i++) {
+                String[] row = this.columnRows.get(i);
+                appendText(out, "marker", this.offsets[0], baseline, row[0]);
+                appendText(out, this.primaryKeyColumns.contains(columns.get(i)) ? "pk" : "column", this.offsets[1], baseline, row[1]);
+                appendText(out, "type", this.offsets[2], baseline, row[2]);
+                appendText(out, "logical", this.offsets[3], baseline, row[3]);
+                baseline += ROW_HEIGHT;
+            }
+            if (!this.keyRows.isEmpty()) {
+                double separator = baseline - ROW_HEIGHT + 4;
+                out.append("<line class=\"separator\" x1=\"0\" y1=\"").append(number(separator))
+                   .append("\" x2=\"").append(number(this.width)).append("\" y2=\"").append(number(separator)).append("\"/>\n");
+            }
+            for (String keyRow : this.keyRows) {
+                appendText(out, "key", PADDING, baseline, keyRow);
+                baseline += ROW_HEIGHT;
+            }
+            out.append("</g>\n");
+        }
+
+        private static void appendText(Appendable out, String styleClass, double x, double y, String text) throws IOException {
+            if (text.isEmpty()) {
+                return;
+            }
+            out.append("<text class=\"").append(styleClass).append("\" x=\"").append(number(x)).append("\" y=\"").append(number(y)).append("\">");
+            appendEscaped(out, text);
+            out.append("</text>\n");
+        }
+    }
+
+    /** テーブル間の FK の矢印。名前はツールチップに出す */
+    private static class Relation {
+        final ERLayout.Edge edge;
+        final List<String> keyNames = new ArrayList<>();
+
+        Relation(ERLayout.Edge edge) {
+            this.edge = edge;
+        }
+
+        /** 上下の移動は滑らかな曲線、自己参照は折れ線にする */
+        void append(Appendable out) throws IOException {
+            List<double[]> points = this.edge.points;
+            if (points.isEmpty()) {
+                return;
+            }
+            StringBuilder path = new StringBuilder("M").append(number(points.get(0)[0])).append(',').append(number(points.get(0)[1]));
+            for (int i = 1; i < points.size(); i++) {
+                double[] start = points.get(i - 1);
+                double[] end = points.get(i);
+                if (this.edge.isSelfLoop() || start[0] == end[0]) {
+                    path.append(" L").append(number(end[0])).append(',').append(number(end[1]));
+                } else {
+                    double middle = (start[1] + end[1]) / 2;
+                    path.append(" C").append(number(start[0])).append(',').append(number(middle))
+                        .append(' ').append(number(end[0])).append(',').append(number(middle))
+                        .append(' ').append(number(end[0])).append(',').append(number(end[1]));
+                }
+            }
+            out.append("<path class=\"er-relation\" d=\"").append(path).append("\" marker-end=\"url(#er-arrow)\"><title>");
+            appendEscaped(out, String.join(", ", this.keyNames));
+            out.append("</title></path>\n");
+        }
+    }
+
+    /** 全角の文字は半角2文字分として数える */
+    static double textWidth(String text) {
+        double units = 0;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            boolean halfWidth = codePoint < 0x1100 || (codePoint >= 0xFF61 && codePoint <= 0xFF9F);
+            units += halfWidth ? 1 : 2;
+            i += Character.charCount(codePoint);
+        }
+        return units * CHAR_WIDTH;
+    }
+
+    /** 出力を安定させるため、小数は1桁まで */
+    private static String number(double value) {
+        double rounded = Math.round(value * 10) / 10.0;
+        return rounded == Math.rint(rounded) ? String.valueOf((long) rounded) : String.format(Locale.ROOT, "%.1f", rounded);
+    }
+
+    private static void appendEscaped(Appendable out, String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&':
+                    out.append("&amp;");
+                    break;
+                case '<':
+                    out.append("&lt;");
+                    break;
+                case '>':
+                    out.append("&gt;");
+                    break;
+                case '"':
+                    out.append("&quot;");
+                    break;
+                default:
+                    out.append(c);
+                    break;
+            }
+        }
+    }
+
+}
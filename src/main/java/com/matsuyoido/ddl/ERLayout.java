@@ -0,0 +1,554 @@
+package com.matsuyoido.ddl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * ER 図のテーブルの配置 (階層型のグラフレイアウト)。
+ * <ol>
+ * <li>FK の循環は、一部の辺を逆向きに扱って取り除く</li>
+ * <li>参照されるテーブルが上になるように層に分ける。層の幅に上限を設け (全体が横長 2:1 程度になる幅)、入りきらないテーブルは下の層にずらす。
+ * 2層以上離れる辺には、間の層ごとに中継点を置く</li>
+ * <li>上下の層の並び順の重心で並べ替え、辺の交差が一番少ない並び順を使う</li>
+ * <li>つながるノードに寄せながら、重ならないように x 座標を決める</li>
+ * </ol>
+ * 他のテーブルとつながらないテーブルは、最後に下に並べる。
+ */
+class ERLayout {
+
+    static final double MARGIN = 20;
+    private static final double NODE_GAP = 40;
+    private static final double DUMMY_GAP = 12;
+    private static final double LAYER_GAP = 70;
+    /** つながらないテーブルを並べる幅の最小値 */
+    private static final double MIN_ROW_WIDTH = 1200;
+    private static final double SELF_LOOP_SIZE = 20;
+    private static final int ORDER_ITERATIONS = 12;
+    private static final int POSITION_ITERATIONS = 8;
+    /** 全体の 幅 / 高さ の目安 */
+    private static final double ASPECT_RATIO = 2;
+
+    /** テーブル、または辺の中継点 (幅・高さ 0) */
+    static class Node {
+        final double width;
+        final double height;
+        final boolean dummy;
+        double x;
+        double y;
+        int layer;
+        /** 層の中の位置 */
+        int order;
+        final List<Node> upper = new ArrayList<>();
+        final List<Node> lower = new ArrayList<>();
+        /** 上の辺・下の辺につながる辺 (ポートの割り当て用) */
+        final List<Edge> topEdges = new ArrayList<>();
+        final List<Edge> bottomEdges = new ArrayList<>();
+
+        Node(double width, double height, boolean dummy) {
+            this.width = width;
+            this.height = height;
+            this.dummy = dummy;
+        }
+
+        double center() {
+            return this.x + this.width / 2;
+        }
+    }
+
+    /** FK を持つテーブル (from) から、参照先テーブル (to) への辺 */
+    static class Edge {
+        final int from;
+        final int to;
+        /** 上のノードから下のノードへの経路 (両端はテーブル) */
+        private final List<Node> chain = new ArrayList<>();
+        /** from から to への折れ線 */
+        final List<double[]> points = new ArrayList<>();
+
+        Edge(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        boolean isSelfLoop() {
+            return this.from == this.to;
+        }
+    }
+
+    private final List<Node> nodes = new ArrayList<>();
+    private final List<Edge> edges = new ArrayList<>();
+    private final List<List<Node>> layers = new ArrayList<>();
+    /** 層ごとの一番高いテーブルの高さ */
+    private double[] layerHeights = new double[0];
+    private double width;
+    private double height;
+
+    /** @return ノード番号 (追加した順) */
+    int addNode(double nodeWidth, double nodeHeight) {
+        this.nodes.add(new Node(nodeWidth, nodeHeight, false));
+        return this.nodes.size() - 1;
+    }
+
+    /** 同じノード間の辺は、呼び出し側で1つにまとめる */
+    Edge addEdge(int from, int to) {
+        Edge edge = new Edge(from, to);
+        this.edges.add(edge);
+        return edge;
+    }
+
+    Node node(int index) {
+        return this.nodes.get(index);
+    }
+
+    double width() {
+        return this.width;
+    }
+
+    double height() {
+        return this.height;
+    }
+
+    void layout() {
+        int size = this.nodes.size();
+        List<List<Integer>> parents = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            parents.add(new ArrayList<>());
+        }
+        boolean[] connected = new boolean[size];
+        for (Edge edge : this.edges) {
+            if (!edge.isSelfLoop()) {
+                parents.get(edge.from).add(edge.to);
+                connected[edge.from] = true;
+                connected[edge.to] = true;
+            }
+        }
+        boolean[][] reversed = removeCycles(parents);
+        assignLayers(parents, reversed, connected);
+        List<Node> graphNodes = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (connected[i]) {
+                graphNodes.add(this.nodes.get(i));
+            }
+        }
+        buildLayers(graphNodes);
+        orderLayers();
+        double graphBottom = assignCoordinates();
+        placeUnconnected(connected, graphBottom);
+        routeEdges();
+        computeSize();
+    }
+
+    /**
+     * 定義順に深さ優先で辿り、辿っている途中のノードに戻る辺を逆向きに扱う。
+     * @return [ノード][parents の位置] が逆向きか
+     */
+    private boolean[][] removeCycles(List<List<Integer>> parents) {
+        int size = parents.size();
+        boolean[][] reversed = new boolean[size][];
+        for (int i = 0; i < size; i++) {
+            reversed[i] = new boolean[parents.get(i).size()];
+        }
+        // 0: 未訪問, 1: 辿っている途中, 2: 訪問済み
+        int[] state = new int[size];
+        int[] next = new int[size];
+        List<Integer> stack = new ArrayList<>();
+        for (int start = 0; start < size; start++) {
+            if (state[start] != 0) {
+                continue;
+            }
+            stack.add(start);
+            state[start] = 1;
+            while (!stack.isEmpty()) {
+                int current = stack.get(stack.size() - 1);
+                if (next[current] == parents.get(current).size()) {
+                    state[current] = 2;
+                    stack.remove(stack.size() - 1);
+                    continue;
+                }
+                int position = next[current]++;
+                int parent = parents.get(current).get(position);
+                if (state[parent] == 1) {
+                    reversed[current][position] = true;
+                } else if (state[parent] == 0) {
+                    state[parent] = 1;
+                    stack.add(parent);
+                }
+            }
+        }
+        return reversed;
+    }
+
+    /**
+     * 参照先から順に、参照先の一番下の層より下で、幅に空きのある一番上の層に入れる。
+     * 層の幅の上限は、テーブルの面積の合計から決める (1つのテーブルの幅よりは狭くしない)。
+     */
+    private void assignLayers(List<List<Integer>> parents, boolean[][] reversed, boolean[] connected) {
+        int size = parents.size();
+        List<List<Integer>> children = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            children.add(new ArrayList<>());
+        }
+        int[] parentCount = new int[size];
+        for (int child = 0; child < size; child++) {
+            for (int position = 0; position < parents.get(child).size(); position++) {
+                int parent = parents.get(child).get(position);
+                if (reversed[child][position]) {
+                    children.get(child).add(parent);
+                    parentCount[parent]++;
+                } else {
+                    children.get(parent).add(child);
+                    parentCount[child]++;
+                }
+            }
+        }
+        double area = 0;
+        double maxLayerWidth = 0;
+        List<Integer> queue = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Node node = this.nodes.get(i);
+            node.layer = 0;
+            if (connected[i]) {
+                area += (node.width + NODE_GAP) * (node.height + LAYER_GAP);
+                maxLayerWidth = Math.max(maxLayerWidth, node.width);
+                if (parentCount[i] == 0) {
+                    queue.add(i);
+                }
+            }
+        }
+        maxLayerWidth = Math.max(maxLayerWidth, Math.sqrt(area * ASPECT_RATIO));
+        List<Double> layerWidths = new ArrayList<>();
+        for (int head = 0; head < queue.size(); head++) {
+            Node node = this.nodes.get(queue.get(head));
+            while (node.layer < layerWidths.size() && layerWidths.get(node.layer) > 0
+                    && layerWidths.get(node.layer) + node.width > maxLayerWidth) {
+                node.layer++;
+            }
+            while (layerWidths.size() <= node.layer) {
+                layerWidths.add(0.0);
+            }
+            layerWidths.set(node.layer, layerWidths.get(node.layer) + node.width + NODE_GAP);
+            for (int child : children.get(queue.get(head))) {
+                Node childNode = this.nodes.get(child);
+                childNode.layer = Math.max(childNode.layer, node.layer + 1);
+                if (--parentCount[child] == 0) {
+                    queue.add(child);
+                }
+            }
+        }
+    }
+
+    /** 層ごとにノードを並べ、2層以上離れる辺には中継点を置く */
+    private void buildLayers(List<Node> graphNodes) {
+        for (Node node : graphNodes) {
+            layerOf(node.layer).add(node);
+        }
+        for (Edge edge : this.edges) {
+            if (edge.isSelfLoop()) {
+                continue;
+            }
+            Node from = this.nodes.get(edge.from);
+            Node to = this.nodes.get(edge.to);
+            Node upper = from.layer < to.layer ? from : to;
+            Node lower = upper == from ? to : from;
+            edge.chain.add(upper);
+            Node previous = upper;
+            for (int layer = upper.layer + 1; layer < lower.layer; layer++) {
+                Node dummy = new Node(0, 0, true);
+                dummy.layer = layer;
+                layerOf(layer).add(dummy);
+                link(previous, dummy);
+                edge.chain.add(dummy);
+                previous = dummy;
+            }
+            link(previous, lower);
+            edge.chain.add(lower);
+            upper.bottomEdges.add(edge);
+            lower.topEdges.add(edge);
+        }
+        for (List<Node> layer : this.layers) {
+            renumber(layer);
+        }
+    }
+
+    private List<Node> layerOf(int layer) {
+        while (this.layers.size() <= layer) {
+            this.layers.add(new ArrayList<>());
+        }
+        return this.layers.get(layer);
+    }
+
+    private static void link(Node upper, Node lower) {
+        upper.lower.add(lower);
+        lower.upper.add(upper);
+    }
+
+    private static void renumber(List<Node> layer) {
+        for (int i = 0; i < layer.size(); i++) {
+            layer.get(i).order = i;
+        }
+    }
+
+    /** 上から下・下から上に交互に重心で並べ替え、交差が一番少なかった並び順にする */
+    private void orderLayers() {
+        List<List<Node>> best = copyLayers();
+        long bestCrossings = countCrossings();
+        for (int iteration = 0; iteration < ORDER_ITERATIONS && bestCrossings > 0; iteration++) {
+            if (iteration % 2 == 0) {
+                for (int layer = 1; layer < this.layers.size(); layer++) {
+                    sortByBarycenter(this.layers.get(layer), true);
+                }
+            } else {
+                for (int layer = this.layers.size() - 2; layer >= 0; layer--) {
+                    sortByBarycenter(this.layers.get(layer), false);
+                }
+            }
+            long crossings = countCrossings();
+            if (crossings < bestCrossings) {
+                bestCrossings = crossings;
+                best = copyLayers();
+            }
+        }
+        for (int layer = 0; layer < this.layers.size(); layer++) {
+            this.layers.set(layer, best.get(layer));
+            renumber(best.get(layer));
+        }
+    }
+
+    private List<List<Node>> copyLayers() {
+        List<List<Node>> copy = new ArrayList<>(this.layers.size());
+        for (List<Node> layer : this.layers) {
+            copy.add(new ArrayList<>(layer));
+        }
+        return copy;
+    }
+
+    /** つながるノードが無い場合は今の位置のまま (同じ重心なら今の順番) */
+    private static void sortByBarycenter(List<Node> layer, boolean byUpper) {
+        double[] barycenters = new double[layer.size()];
+        for (Node node : layer) {
+            List<Node> neighbors = byUpper ? node.upper : node.lower;
+            double sum = 0;
+            for (Node neighbor : neighbors) {
+                sum += neighbor.order;
+            }
+            barycenters[node.order] = neighbors.isEmpty() ? node.order : sum / neighbors.size();
+        }
+        layer.sort(Comparator.comparingDouble(node -> barycenters[node.order]));
+        renumber(layer);
+    }
+
+    /** 隣り合う層の間の辺の交差数 (下の層の位置の転倒数) */
+    private long countCrossings() {
+        long crossings = 0;
+        for (int layer = 0; layer + 1 < this.layers.size(); layer++) {
+            List<int[]> segments = new ArrayList<>();
+            for (Node upper : this.layers.get(layer)) {
+                for (Node lower : upper.lower) {
+                    segments.add(new int[] { upper.order, lower.order });
+                }
+            }
+            segments.sort(Comparator.<int[]>comparingInt(segment -> segment[0]).thenComparingInt(segment -> segment[1]));
+            int lowerSize = this.layers.get(layer + 1).size();
+            // Fenwick tree: 下の層の位置ごとの、処理済みの辺の数
+            long[] tree = new long[lowerSize + 1];
+            long processed = 0;
+            for (int[] segment : segments) {
+                long notGreater = 0;
+                for (int i = segment[1] + 1; i > 0; i -= i & -i) {
+                    notGreater += tree[i];
+                }
+                crossings += processed - notGreater;
+                for (int i = segment[1] + 1; i <= lowerSize; i += i & -i) {
+                    tree[i]++;
+                }
+                processed++;
+            }
+        }
+        return crossings;
+    }
+
+    /** @return 層の一番下の y */
+    private double assignCoordinates() {
+        // 最初は、層ごとに詰めて中央に揃える
+        double[] packedWidths = new double[this.layers.size()];
+        double maxPackedWidth = 0;
+        for (int i = 0; i < this.layers.size(); i++) {
+            for (Node node : this.layers.get(i)) {
+                packedWidths[i] += node.width + (node.dummy ? DUMMY_GAP : NODE_GAP);
+            }
+            maxPackedWidth = Math.max(maxPackedWidth, packedWidths[i]);
+        }
+        double y = MARGIN;
+        this.layerHeights = new double[this.layers.size()];
+        for (int i = 0; i < this.layers.size(); i++) {
+            double x = MARGIN + (maxPackedWidth - packedWidths[i]) / 2;
+            for (Node node : this.layers.get(i)) {
+                node.y = y;
+                node.x = x;
+                x += node.width + (node.dummy ? DUMMY_GAP : NODE_GAP);
+                this.layerHeights[i] = Math.max(this.layerHeights[i], node.height);
+            }
+            y += this.layerHeights[i] + LAYER_GAP;
+        }
+        for (int iteration = 0; iteration < POSITION_ITERATIONS; iteration++) {
+            boolean byUpper = iteration % 2 == 0;
+            for (int i = 0; i < this.layers.size(); i++) {
+                placeTowardNeighbors(this.layers.get(byUpper ? i : this.layers.size() - 1 - i), byUpper);
+            }
+        }
+        double minX = Double.MAX_VALUE;
+        for (List<Node> layer : this.layers) {
+            if (!layer.isEmpty()) {
+                minX = Math.min(minX, layer.get(0).x);
+            }
+        }
+        double shift = MARGIN - minX;
+        double bottom = MARGIN;
+        for (List<Node> layer : this.layers) {
+            for (Node node : layer) {
+                node.x += shift;
+                bottom = Math.max(bottom, node.y + node.height);
+            }
+        }
+        return this.layers.isEmpty() ? 0 : bottom;
+    }
+
+    /**
+     * つながるノードの中心の中央値に寄せる。
+     * 並び順と重ならない間隔を守ったまま、寄せたい位置からのずれ (二乗和) が最小になる位置にする。
+     * 左端からの詰めた位置を引くと「単調増加」の制約になるため、隣り合う違反をまとめて平均する方法 (PAV) で解ける。
+     */
+    private static void placeTowardNeighbors(List<Node> layer, boolean byUpper) {
+        int size = layer.size();
+        double[] offsets = new double[size];
+        double[] targets = new double[size];
+        for (int i = 0; i < size; i++) {
+            Node node = layer.get(i);
+            offsets[i] = i == 0 ? 0 : offsets[i - 1] + layer.get(i - 1).width + gap(layer.get(i - 1), node);
+            List<Node> neighbors = byUpper ? node.upper : node.lower;
+            double desired = node.x;
+            if (!neighbors.isEmpty()) {
+                double[] centers = new double[neighbors.size()];
+                for (int j = 0; j < centers.length; j++) {
+                    centers[j] = neighbors.get(j).center();
+                }
+                Arrays.sort(centers);
+                int middle = centers.length / 2;
+                desired = (centers.length % 2 == 1 ? centers[middle] : (centers[middle - 1] + centers[middle]) / 2) - node.width / 2;
+            }
+            targets[i] = desired - offsets[i];
+        }
+        // ブロック (まとめて同じ値にする範囲) の値と大きさ
+        double[] blockValues = new double[size];
+        int[] blockSizes = new int[size];
+        int blockCount = 0;
+        for (int i = 0; i < size; i++) {
+            blockValues[blockCount] = targets[i];
+            blockSizes[blockCount] = 1;
+            blockCount++;
+            while (blockCount > 1 && blockValues[blockCount - 2] > blockValues[blockCount - 1]) {
+                int merged = blockSizes[blockCount - 2] + blockSizes[blockCount - 1];
+                blockValues[blockCount - 2] = (blockValues[blockCount - 2] * blockSizes[blockCount - 2] + blockValues[blockCount - 1] * blockSizes[blockCount - 1]) / merged;
+                blockSizes[blockCount - 2] = merged;
+                blockCount--;
+            }
+        }
+        int i = 0;
+        for (int block = 0; block < blockCount; block++) {
+            for (int j = 0; j < blockSizes[block]; j++, i++) {
+                layer.get(i).x = blockValues[block] + offsets[i];
+            }
+        }
+    }
+
+    private static double gap(Node left, Node right) {
+        return left.dummy || right.dummy ? DUMMY_GAP : NODE_GAP;
+    }
+
+    /** 他のテーブルとつながらないテーブルを、グラフの下に左から並べる */
+    private void placeUnconnected(boolean[] connected, double graphBottom) {
+        double rowWidth = MIN_ROW_WIDTH;
+        for (List<Node> layer : this.layers) {
+            if (!layer.isEmpty()) {
+                Node last = layer.get(layer.size() - 1);
+                rowWidth = Math.max(rowWidth, last.x + last.width);
+            }
+        }
+        double x = MARGIN;
+        double y = graphBottom == 0 ? MARGIN : graphBottom + LAYER_GAP;
+        double rowHeight = 0;
+        for (int i = 0; i < this.nodes.size(); i++) {
+            if (connected[i]) {
+                continue;
+            }
+            Node node = this.nodes.get(i);
+            if (x > MARGIN && x + node.width > rowWidth) {
+                x = MARGIN;
+                y += rowHeight + NODE_GAP;
+                rowHeight = 0;
+            }
+            node.x = x;
+            node.y = y;
+            x += node.width + SELF_LOOP_SIZE + NODE_GAP;
+            rowHeight = Math.max(rowHeight, node.height);
+        }
+    }
+
+    /** 辺の両端は、テーブルの上下の辺に、相手の方向の順で等間隔に割り当てる */
+    private void routeEdges() {
+        for (Node node : this.nodes) {
+            node.bottomEdges.sort(Comparator.comparingDouble(edge -> edge.chain.get(1).center()));
+            node.topEdges.sort(Comparator.comparingDouble(edge -> edge.chain.get(edge.chain.size() - 2).center()));
+        }
+        for (Edge edge : this.edges) {
+            if (edge.isSelfLoop()) {
+                Node node = this.nodes.get(edge.from);
+                double right = node.x + node.width;
+                double top = node.y + Math.min(SELF_LOOP_SIZE, node.height / 3);
+                double bottom = top + SELF_LOOP_SIZE;
+                edge.points.add(new double[] { right, top });
+                edge.points.add(new double[] { right + SELF_LOOP_SIZE, top });
+                edge.points.add(new double[] { right + SELF_LOOP_SIZE, bottom });
+                edge.points.add(new double[] { right, bottom });
+                continue;
+            }
+            Node upper = edge.chain.get(0);
+            Node lower = edge.chain.get(edge.chain.size() - 1);
+            edge.points.add(new double[] { port(upper, upper.bottomEdges, edge), upper.y + upper.height });
+            // 中継点では、層の高さの分だけまっすぐ通す
+            for (Node dummy : edge.chain.subList(1, edge.chain.size() - 1)) {
+                edge.points.add(new double[] { dummy.x, dummy.y });
+                edge.points.add(new double[] { dummy.x, dummy.y + this.layerHeights[dummy.layer] });
+            }
+            edge.points.add(new double[] { port(lower, lower.topEdges, edge), lower.y });
+            // from (FK を持つテーブル) を先頭にする
+            if (this.nodes.get(edge.from) == upper) {
+                Collections.reverse(edge.points);
+            }
+        }
+    }
+
+    private static double port(Node node, List<Edge> portEdges, Edge edge) {
+        return node.x + node.width * (portEdges.indexOf(edge) + 1) / (portEdges.size() + 1);
+    }
+
+    private void computeSize() {
+        double right = 0;
+        double bottom = 0;
+        for (Node node : this.nodes) {
+            right = Math.max(right, node.x + node.width);
+            bottom = Math.max(bottom, node.y + node.height);
+        }
+        for (Edge edge : this.edges) {
+            for (double[] point : edge.points) {
+                right = Math.max(right, point[0]);
+                bottom = Math.max(bottom, point[1]);
+            }
+        }
+        this.width = right + MARGIN;
+        this.height = bottom + MARGIN;
+    }
+
+}
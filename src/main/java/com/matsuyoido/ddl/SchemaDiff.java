@@ -0,0 +1,397 @@
+package com.matsuyoido.ddl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * 前のバージョンのテーブル定義から、今のバージョンにする DDL (migration) を書く。
+ * カラム・キーは出力する文 (dialect の型・キーワード) で比べるため、domain の型だけ変わった場合も差分になる。
+ * FK の依存で失敗しないよう、次の順に書く。
+ * <ol>
+ * <li>消す・変わる FK を消す (カラムの変更・PK の変更の影響を受ける FK も、消して作り直す)</li>
+ * <li>消す・変わる UK・INDEX・PK を消す</li>
+ * <li>テーブルを消す</li>
+ * <li>テーブルを作る</li>
+ * <li>カラムを追加・変更・削除する</li>
+ * <li>PK・UK・INDEX を作る</li>
+ * <li>FK を作る</li>
+ * </ol>
+ */
+public class SchemaDiff {
+
+    private final Map<String, DatabaseTable> previousTables;
+    private final Map<String, String> previousDomainTypes;
+    private final Map<String, DatabaseTable> currentTables;
+    private final Map<String, String> currentDomainTypes;
+    private final SqlKeywords keywords;
+    private final Optional<String> schema;
+    private final String lineEnd;
+
+    /** テーブル名 -> 定義が変わるカラム名 (両方のバージョンにあるテーブル) */
+    private final Map<String, Set<String>> modifiedColumns = new HashMap<>();
+    /** PK が変わるテーブル名 */
+    private final Set<String> primaryKeyChangedTables = new HashSet<>();
+    /** 消して作り直す FK (テーブル名 + "." + FK名) */
+    private final Set<String> recreatedForeignKeys = new HashSet<>();
+
+    /**
+     * @param previousDomainTypes 前のバージョンの domain 名 -> dialect の型
+     * @param currentDomainTypes 今のバージョンの domain 名 -> dialect の型
+     */
+    public SchemaDiff(List<DatabaseTable> previousTables, Map<String, String> previousDomainTypes,
+                      List<DatabaseTable> currentTables, Map<String, String> currentDomainTypes,
+                      SqlKeywords keywords, Optional<String> schema, String lineEnd) {
+        this.previousTables = byName(previousTables);
+        this.previousDomainTypes = previousDomainTypes;
+        this.currentTables = byName(currentTables);
+        this.currentDomainTypes = currentDomainTypes;
+        this.keywords = keywords;
+        this.schema = schema;
+        this.lineEnd = lineEnd;
+    }
+
+    private static Map<String, DatabaseTable> byName(List<DatabaseTable> tables) {
+        Map<String, DatabaseTable> tableMap = new LinkedHashMap<>();
+        tables.forEach(table -> tableMap.putIfAbsent(table.getName(), table));
+        return tableMap;
+    }
+
+    /**
+     * 差分の DDL を書く。文の後には lineEnd を付け、手順の間は空行で区切る。
+     * @return 差分があったか
+     */
+    public boolean append(Appendable out) throws IOException {
+        for (DatabaseTable current : this.currentTables.values()) {
+            DatabaseTable previous = this.previousTables.get(current.getName());
+            if (previous != null) {
+                this.modifiedColumns.put(current.getName(), modifiedColumnNames(previous, current));
+                if (!columnNames(previous.getPrimaryKeyColumns()).equals(columnNames(current.getPrimaryKeyColumns()))) {
+                    this.primaryKeyChangedTables.add(current.getName());
+                }
+            }
+        }
+
+        List<StringBuilder> steps = List.of(dropForeignKeys(), dropKeys(), dropTables(), createTables(), alterColumns(), addKeys(), addForeignKeys());
+        boolean changed = false;
+        for (StringBuilder step : steps) {
+            if (step.length() > 0) {
+                out.append(step).append(this.lineEnd);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private StringBuilder dropForeignKeys() throws IOException {
+        StringBuilder step = new StringBuilder();
+        for (DatabaseTable previous : this.previousTables.values()) {
+            DatabaseTable current = this.currentTables.get(previous.getName());
+            for (DatabaseRelationKey relation : previous.getForeignKeys().values()) {
+                boolean drop;
+                if (current == null) {
+                    drop = true;
+                } else {
+                    DatabaseRelationKey currentRelation = current.getForeignKeys().get(relation.name);
+                    if (currentRelation == null || !foreignKeySentence(relation).equals(foreignKeySentence(currentRelation))) {
+                        drop = true;
+                    } else if (isAffected(previous.getName(), relation)) {
+                        drop = true;
+                        this.recreatedForeignKeys.add(previous.getName() + "." + relation.name);
+                    } else {
+                        drop = false;
+                    }
+                }
+                if (drop) {
+                    alterTable(step, previous).append(this.keywords.dropForeignKey).append(relation.name).append(';').append(this.lineEnd);
+                }
+            }
+        }
+        return step;
+    }
+
+    /** FK のカラム・参照先のカラムの定義が変わる、または参照先の PK が変わる */
+    private boolean isAffected(String tableName, DatabaseRelationKey relation) {
+        if (this.primaryKeyChangedTables.contains(relation.relationTableName)) {
+            return true;
+        }
+        Set<String> modified = this.modifiedColumns.getOrDefault(tableName, Set.of());
+        Set<String> childModified = this.modifiedColumns.getOrDefault(relation.relationTableName, Set.of());
+        return relation.getColumns().stream().anyMatch(column -> modified.contains(column.name))
+            || relation.getChildColumns().stream().anyMatch(column -> childModified.contains(column.name));
+    }
+
+    private StringBuilder dropKeys() throws IOException {
+        StringBuilder step = new StringBuilder();
+        for (DatabaseTable previous : this.previousTables.values()) {
+            DatabaseTable current = this.currentTables.get(previous.getName());
+            if (current == null) {
+                continue;
+            }
+            for (DatabaseKey key : previous.getUniqueKeys().values()) {
+                DatabaseKey currentKey = current.getUniqueKeys().get(key.name);
+                if (currentKey == null || !uniqueKeySentence(previous, key).equals(uniqueKeySentence(current, currentKey))) {
+                    alterTable(step, previous).append(this.keywords.dropUnique).append(key.name).append(';').append(this.lineEnd);
+                }
+            }
+            for (DatabaseKey key : previous.getIndexKeys().values()) {
+                DatabaseKey currentKey = current.getIndexKeys().get(key.name);
+                if (currentKey == null || !indexKeySentence(previous, key).equals(indexKeySentence(current, currentKey))) {
+                    step.append(this.keywords.dropIndex);
+                    if (this.keywords.dropIndexOnTable) {
+                        step.append(key.name).append(this.keywords.on);
+                        DatabaseTable.appendTableName(step, this.schema, previous.getName());
+                    } else {
+                        DatabaseTable.appendTableName(step, this.schema, key.name);
+                    }
+                    step.append(';').append(this.lineEnd);
+                }
+            }
+            if (this.primaryKeyChangedTables.contains(previous.getName()) && !previous.getPrimaryKeyColumns().isEmpty()) {
+                alterTable(step, previous);
+                if (this.keywords.dropPrimaryKey != null) {
+                    step.append(this.keywords.dropPrimaryKey);
+                } else {
+                    step.append(this.keywords.dropConstraint).append(previous.primaryKeyName());
+                }
+                step.append(';').append(this.lineEnd);
+            }
+        }
+        return step;
+    }
+
+    /** FK は先に消しているため、参照の順番は気にしなくてよい */
+    private StringBuilder dropTables() throws IOException {
+        StringBuilder step = new StringBuilder();
+        List<DatabaseTable> tables = new ArrayList<>(this.previousTables.values());
+        Collections.reverse(tables);
+        for (DatabaseTable previous : tables) {
+            if (!this.currentTables.containsKey(previous.getName())) {
+                step.append(this.keywords.dropTable);
+                DatabaseTable.appendTableName(step, this.schema, previous.getName());
+                step.append(';').append(this.lineEnd);
+            }
+        }
+        return step;
+    }
+
+    private StringBuilder createTables() throws IOException {
+        StringBuilder step = new StringBuilder();
+        for (DatabaseTable current : this.currentTables.values()) {
+            if (!this.previousTables.containsKey(current.getName())) {
+                current.appendCreateSentence(step, this.keywords, this.currentDomainTypes, false, this.schema, this.lineEnd);
+                step.append(this.lineEnd);
+            }
+        }
+        return step;
+    }
+
+    private StringBuilder alterColumns() throws IOException {
+        StringBuilder step = new StringBuilder();
+        for (DatabaseTable current : this.currentTables.values()) {
+            DatabaseTable previous = this.previousTables.get(current.getName());
+            if (previous == null) {
+                continue;
+            }
+            Set<String> modified = this.modifiedColumns.get(current.getName());
+            for (DatabaseColumn column : uniqueColumns(current)) {
+                DatabaseColumn previousColumn = previous.getColumn(column.name);
+                if (previousColumn == null) {
+                    alterTable(step, current).append(this.keywords.addColumn);
+                    column.appendSentence(step, this.keywords, this.currentDomainTypes);
+                    step.append(';').append(this.lineEnd);
+                    if (column.commentText() != null) {
+                        appendColumnComment(step, current, column);
+                    }
+                } else {
+                    if (modified.contains(column.name)) {
+                        modifyColumn(step, current, previousColumn, column);
+                    }
+                    if (this.keywords.commentStyle == SqlKeywords.CommentStyle.COMMENT_ON
+                        && !Objects.equals(previousColumn.commentText(), column.commentText())) {
+                        appendColumnComment(step, current, column);
+                    }
+                }
+            }
+            for (DatabaseColumn column : uniqueColumns(previous)) {
+                if (current.getColumn(column.name) == null) {
+                    alterTable(step, current).append(this.keywords.dropColumn).append(column.name).append(';').append(this.lineEnd);
+                }
+            }
+            if (!Objects.equals(blankToNull(previous.getComment()), blankToNull(current.getComment()))) {
+                appendTableComment(step, current, Optional.ofNullable(blankToNull(current.getComment())).orElse(""));
+            }
+        }
+        return step;
+    }
+
+    private void modifyColumn(StringBuilder step, DatabaseTable table, DatabaseColumn previous, DatabaseColumn current) throws IOException {
+        if (!this.keywords.modifyColumnByClause) {
+            alterTable(step, table).append(this.keywords.modifyColumn);
+            current.appendSentence(step, this.keywords, this.currentDomainTypes);
+            step.append(';').append(this.lineEnd);
+            return;
+        }
+        // PostgreSQL: 型・NOT NULL・DEFAULT を別々に変える (options の NOT NULL 以外の制約は変えない)
+        String type = current.resolveType(this.currentDomainTypes);
+        if (!type.equals(previous.resolveType(this.previousDomainTypes))) {
+            alterColumn(step, table, current).append(this.keywords.type).append(type).append(';').append(this.lineEnd);
+        }
+        boolean notNull = isNotNull(current);
+        if (notNull != isNotNull(previous)) {
+            alterColumn(step, table, current).append(notNull ? this.keywords.setNotNull : this.keywords.dropNotNull).append(';').append(this.lineEnd);
+        }
+        if (!Objects.equals(previous.getDefaultValue(), current.getDefaultValue())) {
+            alterColumn(step, table, current);
+            if (current.getDefaultValue() == null) {
+                step.append(this.keywords.dropDefault);
+            } else {
+                step.append(this.keywords.setDefault).append(current.getDefaultValue());
+            }
+            step.append(';').append(this.lineEnd);
+        }
+    }
+
+    private StringBuilder addKeys() throws IOException {
+        StringBuilder step = new StringBuilder();
+        for (DatabaseTable current : this.currentTables.values()) {
+            DatabaseTable previous = this.previousTables.get(current.getName());
+            if (previous != null && this.primaryKeyChangedTables.contains(current.getName()) && !current.getPrimaryKeyColumns().isEmpty()) {
+                current.appendPrimaryKey(step, this.keywords, this.schema);
+                step.append(this.lineEnd);
+            }
+            for (DatabaseKey key : current.getUniqueKeys().values()) {
+                DatabaseKey previousKey = previous == null ? null : previous.getUniqueKeys().get(key.name);
+                String sentence = uniqueKeySentence(current, key);
+                if (previousKey == null || !sentence.equals(uniqueKeySentence(previous, previousKey))) {
+                    step.append(sentence).append(this.lineEnd);
+                }
+            }
+            for (DatabaseKey key : current.getIndexKeys().values()) {
+                DatabaseKey previousKey = previous == null ? null : previous.getIndexKeys().get(key.name);
+                String sentence = indexKeySentence(current, key);
+                if (previousKey == null || !sentence.equals(indexKeySentence(previous, previousKey))) {
+                    step.append(sentence).append(this.lineEnd);
+                }
+            }
+        }
+        return step;
+    }
+
+    private StringBuilder addForeignKeys() throws IOException {
+        StringBuilder step = new StringBuilder();
+        for (DatabaseTable current : this.currentTables.values()) {
+            DatabaseTable previous = this.previousTables.get(current.getName());
+            for (DatabaseRelationKey relation : current.getForeignKeys().values()) {
+                DatabaseRelationKey previousRelation = previous == null ? null : previous.getForeignKeys().get(relation.name);
+                String sentence = foreignKeySentence(relation);
+                if (previousRelation == null
+                    || !sentence.equals(foreignKeySentence(previousRelation))
+                    || this.recreatedForeignKeys.contains(current.getName() + "." + relation.name)) {
+                    step.append(sentence).append(this.lineEnd);
+                }
+            }
+        }
+        return step;
+    }
+
+    /** 両方のバージョンにあり、定義 (型・制約・デフォルト値、MySQL はコメントも) が変わるカラム */
+    private Set<String> modifiedColumnNames(DatabaseTable previous, DatabaseTable current) throws IOException {
+        Set<String> names = new HashSet<>();
+        for (DatabaseColumn column : uniqueColumns(current)) {
+            DatabaseColumn previousColumn = previous.getColumn(column.name);
+            if (previousColumn != null && !columnSentence(previousColumn, this.previousDomainTypes).equals(columnSentence(column, this.currentDomainTypes))) {
+                names.add(column.name);
+            }
+        }
+        return names;
+    }
+
+    /** 同名カラムは先に定義したものだけ */
+    private static List<DatabaseColumn> uniqueColumns(DatabaseTable table) {
+        List<DatabaseColumn> columns = new ArrayList<>();
+        for (DatabaseColumn column : table.getColumnList()) {
+            if (table.getColumn(column.name) == column) {
+                columns.add(column);
+            }
+        }
+        return columns;
+    }
+
+    private String columnSentence(DatabaseColumn column, Map<String, String> domainTypes) throws IOException {
+        StringBuilder sentence = new StringBuilder();
+        column.appendSentence(sentence, this.keywords, domainTypes);
+        return sentence.toString();
+    }
+
+    private String foreignKeySentence(DatabaseRelationKey relation) throws IOException {
+        StringBuilder sentence = new StringBuilder();
+        relation.appendSentence(sentence, this.keywords, this.schema);
+        return sentence.toString();
+    }
+
+    private String uniqueKeySentence(DatabaseTable table, DatabaseKey key) throws IOException {
+        StringBuilder sentence = new StringBuilder();
+        table.appendUniqueKey(sentence, this.keywords, this.schema, key);
+        return sentence.toString();
+    }
+
+    private String indexKeySentence(DatabaseTable table, DatabaseKey key) throws IOException {
+        StringBuilder sentence = new StringBuilder();
+        table.appendIndexKey(sentence, this.keywords, this.schema, key);
+        return sentence.toString();
+    }
+
+    private void appendColumnComment(StringBuilder step, DatabaseTable table, DatabaseColumn column) throws IOException {
+        if (this.keywords.commentStyle == SqlKeywords.CommentStyle.COMMENT_ON) {
+            table.appendCommentOnColumn(step, this.keywords, this.schema, column.name, Optional.ofNullable(column.commentText()).orElse(""));
+            step.append(this.lineEnd);
+        }
+    }
+
+    private void appendTableComment(StringBuilder step, DatabaseTable table, String comment) throws IOException {
+        if (this.keywords.commentStyle == SqlKeywords.CommentStyle.COMMENT_ON) {
+            table.appendCommentOnTable(step, this.keywords, this.schema, comment);
+        } else {
+            alterTable(step, table).append(this.keywords.commentStyle == SqlKeywords.CommentStyle.TABLE_OPTION
+                ? this.keywords.tableCommentOption
+                : this.keywords.comment);
+            this.keywords.appendLiteral(step, comment);
+            step.append(';');
+        }
+        step.append(this.lineEnd);
+    }
+
+    private StringBuilder alterTable(StringBuilder step, DatabaseTable table) throws IOException {
+        step.append(this.keywords.alterTable);
+        DatabaseTable.appendTableName(step, this.schema, table.getName());
+        return step;
+    }
+
+    private StringBuilder alterColumn(StringBuilder step, DatabaseTable table, DatabaseColumn column) throws IOException {
+        return alterTable(step, table).append(this.keywords.modifyColumn).append(column.name);
+    }
+
+    private static boolean isNotNull(DatabaseColumn column) {
+        return column.getConstraints() != null && column.getConstraints().toUpperCase().contains("NOT NULL");
+    }
+
+    private static String blankToNull(String text) {
+        return text == null || text.isBlank() ? null : text;
+    }
+
+    private static List<String> columnNames(List<DatabaseColumn> columns) {
+        List<String> names = new ArrayList<>(columns.size());
+        columns.forEach(column -> names.add(column.name));
+        return names;
+    }
+
+}
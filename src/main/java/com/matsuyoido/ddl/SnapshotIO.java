@@ -0,0 +1,65 @@
+package com.matsuyoido.ddl;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * バイナリ形式の読み書き補助 (パース結果キャッシュ用)
+ */
+final class SnapshotIO {
+
+    private SnapshotIO() {
+    }
+
+    /** null は長さ -1 として書く */
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** カラムを、テーブルカラム内の位置で書く */
+    static void writeColumnIndexes(DataOutput out, List<DatabaseColumn> columns, Map<DatabaseColumn, Integer> columnIndex) throws IOException {
+        out.writeInt(columns.size());
+        for (DatabaseColumn column : columns) {
+            out.writeInt(columnIndex.get(column));
+        }
+    }
+
+    /** カラムを名前で書く (他テーブルのカラムを参照する場合) */
+    static void writeColumnNames(DataOutput out, List<DatabaseColumn> columns) throws IOException {
+        out.writeInt(columns.size());
+        for (DatabaseColumn column : columns) {
+            writeString(out, column.name);
+        }
+    }
+
+    static List<DatabaseColumn> readColumnIndexes(DataInput in, List<DatabaseColumn> tableColumns) throws IOException {
+        int size = in.readInt();
+        List<DatabaseColumn> columns = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            columns.add(tableColumns.get(in.readInt()));
+        }
+        return columns;
+    }
+
+}
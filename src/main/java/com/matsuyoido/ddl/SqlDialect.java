@@ -0,0 +1,27 @@
+package com.matsuyoido.ddl;
+
+import java.util.Optional;
+
+/**
+ * DDL を出力するデータベースの種類。
+ * 名前 (小文字) は ddl ブロックの dialects、yaml の domains の型指定、出力先のディレクトリ名に使う。
+ */
+public enum SqlDialect {
+    MYSQL,
+    POSTGRESQL,
+    H2;
+
+    public String getName() {
+        return name().toLowerCase();
+    }
+
+    public static Optional<SqlDialect> of(String name) {
+        for (SqlDialect dialect : values()) {
+            if (dialect.getName().equalsIgnoreCase(name.trim())) {
+                return Optional.of(dialect);
+            }
+        }
+        return Optional.empty();
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.matsuyoido.ddl;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * DDL に書くキーワード。
+ * lowerAll・dialect の指定ごとに1度だけ作っておき、出力のたびに変換しない。
+ * dialect を指定しない場合は、従来の (dialect 指定がなかった頃の) DDL になる。
+ */
+public final class SqlKeywords {
+
+    /** コメントの書き方 */
+    enum CommentStyle {
+        /** カラム: COMMENT "..."、テーブル: カラム定義の後に COMMENT "..." (従来の DDL) */
+        LEGACY,
+        /** カラム: COMMENT '...'、テーブル: テーブルオプションの COMMENT='...' (MySQL) */
+        TABLE_OPTION,
+        /** CREATE TABLE の後に COMMENT ON TABLE/COLUMN ... IS '...'; (PostgreSQL, H2) */
+        COMMENT_ON
+    }
+
+    private static final SqlKeywords UPPER = new SqlKeywords(Optional.empty(), false);
+    private static final SqlKeywords LOWER = new SqlKeywords(Optional.empty(), true);
+    private static final Map<SqlDialect, SqlKeywords> DIALECT_UPPER = new EnumMap<>(SqlDialect.class);
+    private static final Map<SqlDialect, SqlKeywords> DIALECT_LOWER = new EnumMap<>(SqlDialect.class);
+    static {
+        for (SqlDialect dialect : SqlDialect.values()) {
+            DIALECT_UPPER.put(dialect, new SqlKeywords(Optional.of(dialect), false));
+            DIALECT_LOWER.put(dialect, new SqlKeywords(Optional.of(dialect), true));
+        }
+    }
+
+    public final Optional<SqlDialect> dialect;
+    final CommentStyle commentStyle;
+    /** 文字列リテラルの引用符 */
+    final char quote;
+
+    final String createTable;
+    final String createTableIfNotExists;
+    /** テーブルコメント (カラムと同じインデント) */
+    final String tableComment;
+    final String tableCommentOption;
+    final String comment;
+    final String commentOnTable;
+    final String commentOnColumn;
+    final String is;
+    final String defaultValue;
+    final String alterTable;
+    final String addConstraint;
+    final String primaryKey;
+    final String foreignKey;
+    final String references;
+    final String unique;
+    final String createIndex;
+    final String on;
+    // 差分 (migration) 用
+    final String addColumn;
+    final String dropColumn;
+    /** MySQL (と従来の DDL) は MODIFY、それ以外は ALTER COLUMN */
+    final String modifyColumn;
+    /** PostgreSQL は型・NOT NULL・DEFAULT を別々に変える */
+    final boolean modifyColumnByClause;
+    final String type;
+    final String setNotNull;
+    final String dropNotNull;
+    final String setDefault;
+    final String dropDefault;
+    final String dropConstraint;
+    final String dropForeignKey;
+    final String dropUnique;
+    /** 制約名で消す dialect は null */
+    final String dropPrimaryKey;
+    final String dropIndex;
+    /** DROP INDEX にテーブル名が要る (MySQL) */
+    final boolean dropIndexOnTable;
+    /** dialect 指定時は null (TRUNCATE TABLE は書かない) */
+    public final String truncateTable;
+    public final String dropTable;
+    /** 循環参照がある場合に DROP TABLE に付ける。付けない場合は空文字 */
+    public final String dropCascade;
+    /** 循環参照がある場合に、DROP TABLE の前に FK を消す (dialect 指定なし) */
+    public final String alterTableIfExists;
+    public final String dropConstraintIfExists;
+    /** 参照整合性チェックを止められない場合は null (MySQL 以外) */
+    public final String disableReferentialIntegrity;
+    public final String enableReferentialIntegrity;
+
+    private SqlKeywords(Optional<SqlDialect> dialect, boolean lowerAll) {
+        this.dialect = dialect;
+        this.commentStyle = dialect.map(value -> value == SqlDialect.MYSQL ? CommentStyle.TABLE_OPTION : CommentStyle.COMMENT_ON)
+                                   .orElse(CommentStyle.LEGACY);
+        this.quote = dialect.isPresent() ? '\'' : '"';
+        this.createTable = text("CREATE TABLE ", lowerAll);
+        this.createTableIfNotExists = text("CREATE TABLE IF NOT EXISTS ", lowerAll);
+        this.tableComment = text("  COMMENT ", lowerAll);
+        this.tableCommentOption = text(" COMMENT=", lowerAll);
+        this.comment = text(" COMMENT ", lowerAll);
+        this.commentOnTable = text("COMMENT ON TABLE ", lowerAll);
+        this.commentOnColumn = text("COMMENT ON COLUMN ", lowerAll);
+        this.is = text(" IS ", lowerAll);
+        this.defaultValue = text(" DEFAULT ", lowerAll);
+        this.alterTable = text("ALTER TABLE ", lowerAll);
+        this.addConstraint = text(" ADD CONSTRAINT ", lowerAll);
+        this.primaryKey = text(" PRIMARY KEY (", lowerAll);
+        this.foreignKey = text(" FOREIGN KEY(", lowerAll);
+        this.references = text(") REFERENCES ", lowerAll);
+        this.unique = text(" UNIQUE (", lowerAll);
+        this.createIndex = text("CREATE INDEX ", lowerAll);
+        this.on = text(" ON ", lowerAll);
+        boolean mysql = dialect.isEmpty() || dialect.get() == SqlDialect.MYSQL;
+        this.addColumn = text(" ADD COLUMN ", lowerAll);
+        this.dropColumn = text(" DROP COLUMN ", lowerAll);
+        this.modifyColumn = text(mysql ? " MODIFY " : " ALTER COLUMN ", lowerAll);
+        this.modifyColumnByClause = dialect.filter(SqlDialect.POSTGRESQL::equals).isPresent();
+        this.type = text(" TYPE ", lowerAll);
+        this.setNotNull = text(" SET NOT NULL", lowerAll);
+        this.dropNotNull = text(" DROP NOT NULL", lowerAll);
+        this.setDefault = text(" SET DEFAULT ", lowerAll);
+        this.dropDefault = text(" DROP DEFAULT", lowerAll);
+        this.dropConstraint = text(" DROP CONSTRAINT ", lowerAll);
+        this.dropForeignKey = mysql ? text(" DROP FOREIGN KEY ", lowerAll) : this.dropConstraint;
+        this.dropUnique = mysql ? text(" DROP INDEX ", lowerAll) : this.dropConstraint;
+        this.dropPrimaryKey = mysql ? text(" DROP PRIMARY KEY", lowerAll) : null;
+        this.dropIndex = text("DROP INDEX ", lowerAll);
+        this.dropIndexOnTable = mysql;
+        this.truncateTable = dialect.isPresent() ? null : text("TRUNCATE TABLE IF EXISTS ", lowerAll);
+        this.dropTable = text("DROP TABLE IF EXISTS ", lowerAll);
+        // DROP TABLE は参照整合性チェックを止めても参照されていると失敗するため、MySQL 以外は CASCADE にする
+        this.dropCascade = dialect.filter(value -> value != SqlDialect.MYSQL).map(value -> text(" CASCADE", lowerAll)).orElse("");
+        this.alterTableIfExists = text("ALTER TABLE IF EXISTS ", lowerAll);
+        this.dropConstraintIfExists = text(" DROP CONSTRAINT IF EXISTS ", lowerAll);
+        if (dialect.filter(SqlDialect.MYSQL::equals).isPresent()) {
+            this.disableReferentialIntegrity = text("SET FOREIGN_KEY_CHECKS = 0;", lowerAll);
+            this.enableReferentialIntegrity = text("SET FOREIGN_KEY_CHECKS = 1;", lowerAll);
+        } else {
+            this.disableReferentialIntegrity = null;
+            this.enableReferentialIntegrity = null;
+        }
+    }
+
+    public static SqlKeywords of(boolean lowerAll) {
+        return lowerAll ? LOWER : UPPER;
+    }
+
+    public static SqlKeywords of(Optional<SqlDialect> dialect, boolean lowerAll) {
+        if (dialect.isEmpty()) {
+            return of(lowerAll);
+        }
+        return (lowerAll ? DIALECT_LOWER : DIALECT_UPPER).get(dialect.get());
+    }
+
+    /** 'text' (dialect 指定時は ' を '' にする) */
+    void appendLiteral(Appendable out, String text) throws IOException {
+        out.append(this.quote);
+        if (this.dialect.isPresent() && text.indexOf('\'') >= 0) {
+            out.append(text.replace("'", "''"));
+        } else {
+            out.append(text);
+        }
+        out.append(this.quote);
+    }
+
+    private static String text(String text, boolean lowerAll) {
+        return lowerAll ? text.toLowerCase() : text;
+    }
+
+}
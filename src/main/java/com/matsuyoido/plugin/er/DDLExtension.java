@@ -1,14 +1,23 @@
 package com.matsuyoido.plugin.er;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class DDLExtension implements Serializable {
     private static final long serialVersionUID = 7893508411315218645L;
 
     File yaml;
+    List<File> yamlFiles = new ArrayList<>();
     File outDir;
     String fileName;
 
@@ -17,12 +26,68 @@ public class DDLExtension implements Serializable {
     boolean existCheck = false;
     boolean truncate = false;
     boolean lowerAll = false;
+    boolean streaming = false;
+    boolean cache = true;
+    /** 前のバージョンの yaml (差分の DDL 用) */
+    File previousYaml;
+    List<File> previousYamlFiles = new ArrayList<>();
+    /** 前のバージョンの git リビジョン (previousYaml が無い場合、yaml をこのリビジョンから読む) */
+    String previousRevision;
+    /** 出力する dialect 名 (mysql, postgresql, h2)。空なら従来の DDL を1つ出力する */
+    List<String> dialects = new ArrayList<>();
 
 
     public File getYamlFile() {
         return this.yaml;
     }
 
+    public void setYamlFiles(Iterable<File> files) {
+        this.yamlFiles = new ArrayList<>();
+        files.forEach(this.yamlFiles::add);
+    }
+
+    public void setPreviousYamlFiles(Iterable<File> files) {
+        this.previousYamlFiles = new ArrayList<>();
+        files.forEach(this.previousYamlFiles::add);
+    }
+
+    public void setDialects(Iterable<String> dialects) {
+        this.dialects = new ArrayList<>();
+        dialects.forEach(this.dialects::add);
+    }
+
+    /** yaml (ファイル or ディレクトリ) と yamlFiles を展開し、読み込み順 (パス順) に並べたもの */
+    public List<File> getYamlSources() {
+        return expandYamlSources(this.yaml, this.yamlFiles);
+    }
+
+    /** previousYaml と previousYamlFiles を、getYamlSources と同じように展開したもの */
+    public List<File> getPreviousYamlSources() {
+        return expandYamlSources(this.previousYaml, this.previousYamlFiles);
+    }
+
+    /** ディレクトリは配下の yml/yaml に展開し、パス順に並べる (er ブロックの yaml も同じ) */
+    static List<File> expandYamlSources(File yaml, List<File> yamlFiles) {
+        return Stream.concat(Stream.ofNullable(yaml), yamlFiles.stream())
+                     .map(file -> file.toPath().toAbsolutePath().normalize())
+                     .flatMap(path -> Files.isDirectory(path) ? findYamlFiles(path) : Stream.of(path))
+                     .distinct()
+                     .sorted()
+                     .map(Path::toFile)
+                     .collect(Collectors.toList());
+    }
+
+    private static Stream<Path> findYamlFiles(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.filter(Files::isRegularFile)
+                        .filter(path -> path.toString().endsWith(".yml") || path.toString().endsWith(".yaml"))
+                        .collect(Collectors.toList())
+                        .stream();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     public File getOutputDir() {
         return this.outDir;
     }
@@ -47,4 +112,25 @@ public class DDLExtension implements Serializable {
         return this.lowerAll;
     }
 
+    public boolean isStreaming() {
+        return this.streaming;
+    }
+
+    public boolean isUseCache() {
+        return this.cache;
+    }
+
+    public List<String> getDialects() {
+        return this.dialects;
+    }
+
+    public Optional<String> getPreviousRevision() {
+        return Optional.ofNullable(this.previousRevision).filter(Predicate.not(String::isBlank));
+    }
+
+    /** 前のバージョンとの差分の DDL を出力する？ */
+    public boolean isIncludeMigration() {
+        return !getPreviousYamlSources().isEmpty() || getPreviousRevision().isPresent();
+    }
+
 }
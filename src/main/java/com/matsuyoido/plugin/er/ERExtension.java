@@ -2,6 +2,8 @@ package com.matsuyoido.plugin.er;
 
 import java.io.File;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.Predicate;
 
@@ -12,12 +14,18 @@ import groovy.lang.Closure;
 public class ERExtension implements Serializable {
     private static final long serialVersionUID = 5026119737380019192L;
 
-    private final Project project;
+    /** db {} の設定用。タスクの設定としては保存しない */
+    private final transient Project project;
     ERDbExtension db;
     String version;
     String schema;
     File ddl;
+    /** ddl の代わりに yaml を指定したら、DDL ファイルを経由せずに yaml から H2 にテーブルを作る */
+    File yaml;
+    List<File> yamlFiles = new ArrayList<>();
     File outDir;
+    /** 'native' なら schemaspy を使わずに yaml から ER 図を書く */
+    String renderer;
 
     ERExtension(Project project) {
         this.project = project;
@@ -44,6 +52,20 @@ public class ERExtension implements Serializable {
         return this.ddl;
     }
 
+    public void setYamlFiles(Iterable<File> files) {
+        this.yamlFiles = new ArrayList<>();
+        files.forEach(this.yamlFiles::add);
+    }
+
+    /** yaml と yamlFiles を、ddl ブロックと同じように展開したもの */
+    public List<File> getYamlSources() {
+        return DDLExtension.expandYamlSources(this.yaml, this.yamlFiles);
+    }
+
+    public boolean isNativeRenderer() {
+        return "native".equalsIgnoreCase(this.renderer);
+    }
+
     public File getOutputDirectory() {
         return this.outDir;
     }
@@ -1,10 +1,16 @@
 package com.matsuyoido.plugin.er;
 
+import java.io.File;
+
 import com.matsuyoido.plugin.er.task.ERTask;
 import com.matsuyoido.plugin.er.task.YamlDDLTask;
+import com.matsuyoido.plugin.er.task.YamlDDLWatchTask;
 
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.dsl.RepositoryHandler;
 import org.gradle.api.tasks.TaskContainer;
 
 public class MainPlugin implements Plugin<Project> {
@@ -21,19 +27,62 @@ public class MainPlugin implements Plugin<Project> {
                                          .getByType(RootExtension.class);
 
         if (!extension.getDDLConfig().isEmpty()) {
-            YamlDDLTask task = taskContainer.create("ddl", YamlDDLTask.class);
-            // always run
-            task.getOutputs().upToDateWhen(t -> false);
-            // group
-            task.setGroup("database");
+            taskContainer.register("ddl", YamlDDLTask.class, task -> {
+                task.getDDLConfig().set(extension.getDDLConfig());
+                task.getLineEnd().set(extension.getLineEnd());
+                task.getCacheSize().set(extension.getCacheSize());
+                task.getDdlParallelism().set(extension.getDdlParallelism());
+                task.getCacheDirectory().set(project.getLayout().getBuildDirectory().dir("yamlER/cache"));
+                task.getProjectDirectory().set(project.getLayout().getProjectDirectory());
+                // group
+                task.setGroup("database");
+            });
+            taskContainer.register("ddlWatch", YamlDDLWatchTask.class, task -> {
+                task.getDDLConfig().set(extension.getDDLConfig());
+                task.getLineEnd().set(extension.getLineEnd());
+                task.getCacheSize().set(extension.getCacheSize());
+                task.getDdlParallelism().set(extension.getDdlParallelism());
+                task.getCacheDirectory().set(project.getLayout().getBuildDirectory().dir("yamlER/cache"));
+                // always run (outputs are not declared)
+                // group
+                task.setGroup("database");
+            });
         }
         if (!extension.getERConfig().isEmpty()) {
-            ERTask task = taskContainer.create("er", ERTask.class);
-            // always run
-            task.getOutputs().upToDateWhen(t -> false);
-            // group
-            task.setGroup("database");
+            if (project.getRepositories().isEmpty()) {
+                addDefaultRepositories(project.getRepositories());
+            }
+            taskContainer.register("er", ERTask.class, task -> {
+                task.getERConfig().set(extension.getERConfig());
+                task.getErParallelism().set(extension.getErParallelism());
+                task.getErWorker().set(extension.isErWorker());
+                task.getSchemaspyDirectory().set(project.getRootProject().getLayout().getProjectDirectory().dir("gradle/plugin"));
+                task.getLayoutCacheDirectory().set(new File(project.getGradle().getGradleUserHomeDir(), "caches/yamlER/schemaspy-layout"));
+                // schemaspy, driver は jar 1つだけ (依存は含めない) を、タスクの実行時に解決する
+                for (String notation : ERTask.dependencyNotations(extension.getERConfig())) {
+                    Dependency dependency = project.getDependencies().create(notation);
+                    ((ModuleDependency) dependency).setTransitive(false);
+                    task.getDependencyJars().put(notation, project.getConfigurations().detachedConfiguration(dependency));
+                }
+                // always run (outputs are not declared)
+                // group
+                task.setGroup("database");
+            });
         }
     }
 
+    /**
+     * repositories を宣言していないプロジェクト用。schemaspy の GitHub リリース (以前ダウンロードしていた jar) と Maven Central。
+     * ミラー・ローカルのリポジトリを使う場合は、build.gradle の repositories に宣言する。
+     */
+    private void addDefaultRepositories(RepositoryHandler repositories) {
+        repositories.ivy(repository -> {
+            repository.setName("schemaspyReleases");
+            repository.setUrl("https://github.com/schemaspy/schemaspy/releases/download");
+            repository.patternLayout(layout -> layout.artifact("v[revision]/[module]-[revision].[ext]"));
+            repository.metadataSources(sources -> sources.artifact());
+        });
+        repositories.mavenCentral();
+    }
+
 }
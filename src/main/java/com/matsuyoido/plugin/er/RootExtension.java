@@ -20,6 +20,14 @@ public class RootExtension implements Serializable {
 
     private final Project project;
     private LineEnd lineEnd = LineEnd.PLATFORM;
+    /** MB */
+    private int cacheSize = 64;
+    /** er ブロックの同時実行数 */
+    private int erParallelism = Runtime.getRuntime().availableProcessors();
+    /** schemaspy を常駐する worker プロセスで実行する */
+    private boolean erWorker = false;
+    /** ddl ブロック内の、テーブルごとの DDL 生成の並列数 */
+    private int ddlParallelism = Runtime.getRuntime().availableProcessors();
     private List<DDLExtension> ddl = new ArrayList<>();
     private List<ERExtension> er = new ArrayList<>();
 
@@ -54,6 +62,22 @@ public class RootExtension implements Serializable {
         }
     }
 
+    public void setCacheSize(int megaBytes) {
+        this.cacheSize = megaBytes;
+    }
+
+    public void setErParallelism(int parallelism) {
+        this.erParallelism = parallelism;
+    }
+
+    public void setErWorker(boolean erWorker) {
+        this.erWorker = erWorker;
+    }
+
+    public void setDdlParallelism(int parallelism) {
+        this.ddlParallelism = parallelism;
+    }
+
 
     public List<DDLExtension> getDDLConfig() {
         return Collections.unmodifiableList(this.ddl);
@@ -67,4 +91,21 @@ public class RootExtension implements Serializable {
         return this.lineEnd;
     }
 
+    /** @return MB */
+    public int getCacheSize() {
+        return this.cacheSize;
+    }
+
+    public int getErParallelism() {
+        return this.erParallelism;
+    }
+
+    public boolean isErWorker() {
+        return this.erWorker;
+    }
+
+    public int getDdlParallelism() {
+        return this.ddlParallelism;
+    }
+
 }
@@ -0,0 +1,357 @@
+package com.matsuyoido.plugin.er.task;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.matsuyoido.LineEnd;
+import com.matsuyoido.ddl.DatabaseTable;
+import com.matsuyoido.ddl.SqlDialect;
+import com.matsuyoido.plugin.er.DDLExtension;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+
+/**
+ * ddl ブロック1つ分の DDL 生成。
+ * Worker からも呼ぶため、Project には触らない。
+ */
+class DDLGenerator {
+
+    /** これより少ないテーブル数なら、並列にしない (スレッドを用意する方が遅い) */
+    static final int PARALLEL_THRESHOLD = 256;
+
+    private final String logFormat = "[YamlDDL] %s";
+    private final Logger log;
+    private final LineEnd lineEnd;
+    private final File cacheDir;
+    private final long cacheSize;
+    private final File temporaryDir;
+    private final int parallelism;
+    /** watch 中だけ。ある場合はパース結果のキャッシュ (ファイル) の代わりに使う */
+    private final Optional<YamlFileCache> yamlFileCache;
+
+    /**
+     * @param cacheSize キャッシュの上限 (byte)
+     * @param parallelism テーブルごとの DDL 生成の並列数
+     */
+    DDLGenerator(Logger logger, LineEnd lineEnd, File cacheDir, long cacheSize, File temporaryDir, int parallelism) {
+        this(logger, lineEnd, cacheDir, cacheSize, temporaryDir, parallelism, Optional.empty());
+    }
+
+    DDLGenerator(Logger logger, LineEnd lineEnd, File cacheDir, long cacheSize, File temporaryDir, int parallelism, Optional<YamlFileCache> yamlFileCache) {
+        this.log = logger;
+        this.lineEnd = lineEnd;
+        this.cacheDir = cacheDir;
+        this.cacheSize = cacheSize;
+        this.temporaryDir = temporaryDir;
+        this.parallelism = parallelism;
+        this.yamlFileCache = yamlFileCache;
+    }
+
+    void generate(DDLExtension extension) {
+        try {
+            List<File> yamlFiles = extension.getYamlSources();
+            File outputDir = extension.getOutputDir();
+            if (yamlFiles.isEmpty() || outputDir == null) {
+                log.warn(String.format(logFormat, "extension is invalid."));
+                log.warn(getExtensionRequiredSetting());
+                return;
+            }
+            Optional<File> notFoundFile = yamlFiles.stream().filter(file -> !file.exists()).findFirst();
+            if (notFoundFile.isPresent()) {
+                log.warn(String.format(logFormat, "yaml file not found: {}"), notFoundFile.get().getCanonicalPath());
+                return;
+            }
+            if (!outputDir.exists()) {
+                outputDir.mkdirs();
+            }
+            if (extension.isStreaming()) {
+                if (!extension.getDialects().isEmpty()) {
+                    log.warn(String.format(logFormat, "dialects is not supported in streaming mode, ignored: " + extension.getDialects()));
+                }
+                if (extension.isIncludeMigration()) {
+                    log.warn(String.format(logFormat, "migration is not supported in streaming mode, ignored."));
+                }
+                StreamingDDLGenerator generator = new StreamingDDLGenerator(log, new DDLRenderer(extension, this.lineEnd), extension.isIncludeTruncateTable(), this.temporaryDir);
+                if (!generator.generate(yamlFiles, version -> resolveOutputFile(extension, version))) {
+                    log.warn(String.format(logFormat, "yaml file content is empty."));
+                }
+                return;
+            }
+            DefinitionCache cache = new DefinitionCache(log, new File(this.cacheDir, "definition"), this.cacheSize);
+            Optional<String> cacheKey = extension.isUseCache() && this.yamlFileCache.isEmpty() ? Optional.of(cache.key(yamlFiles)) : Optional.empty();
+            Optional<DatabaseDefinition> cachedDatabase = cacheKey.flatMap(cache::load);
+            DatabaseDefinition database;
+            if (cachedDatabase.isPresent()) {
+                database = cachedDatabase.get();
+            } else {
+                YamlSchemaLoader loader = new YamlSchemaLoader(log);
+                Map<String, Object> yamlMap = this.yamlFileCache.isPresent()
+                    ? this.yamlFileCache.get().read(loader, yamlFiles)
+                    : loader.readYamlFiles(yamlFiles);
+                if (yamlMap.isEmpty()) {
+                    log.warn(String.format(logFormat, "yaml file content is empty."));
+                    return;
+                }
+                database = loader.loadYamlFile(yamlMap);
+                cacheKey.ifPresent(key -> cache.store(key, database, loader.getWarnings()));
+            }
+
+            Optional<DatabaseDefinition> previousDatabase = extension.isIncludeMigration()
+                ? Optional.of(loadPrevious(extension, yamlFiles))
+                : Optional.empty();
+            Optional<TableOrder> truncateOrder = extension.isIncludeTruncateTable()
+                ? Optional.of(truncateOrder(log, database.tables))
+                : Optional.empty();
+            List<SqlDialect> dialects = resolveDialects(extension);
+            if (dialects.isEmpty()) {
+                render(extension, database, previousDatabase, Optional.empty(), truncateOrder, this.parallelism);
+            } else if (dialects.size() == 1 || this.parallelism <= 1) {
+                for (SqlDialect dialect : dialects) {
+                    render(extension, database, previousDatabase, Optional.of(dialect), truncateOrder, this.parallelism);
+                }
+            } else {
+                renderDialects(extension, database, previousDatabase, dialects, truncateOrder);
+            }
+        } catch (IOException e) {
+            log.error(String.format(logFormat, "yaml file load error: " + extension.getYamlSources().stream().map(File::getName).collect(Collectors.joining(", "))), e);
+            throw new GradleException(e.getMessage(), e);
+        }
+    }
+
+    /** 1つの dialect (empty なら従来の DDL) の DDL ファイルを出力する */
+    private void render(DDLExtension extension, DatabaseDefinition database, Optional<DatabaseDefinition> previousDatabase,
+                        Optional<SqlDialect> dialect, Optional<TableOrder> truncateOrder, int parallelism) throws IOException {
+        // 改行は '\n' で作り、出力時に設定の改行コードにする
+        DDLRenderer renderer = new DDLRenderer(extension, LineEnd.LINUX, dialect, dialect.map(database::domainTypes).orElseGet(Map::of));
+        Optional<FragmentCache> fragmentCache = extension.isUseCache()
+            ? Optional.of(new FragmentCache(log, fragmentIndexFile(extension, dialect), renderer).load())
+            : Optional.empty();
+
+        File outputFile = resolveOutputFile(extension, database.version, dialect);
+        outputFile.getParentFile().mkdirs();
+        try (DDLSink sink = new DDLSink(outputFile, this.lineEnd)) {
+            if (truncateOrder.isPresent()) {
+                renderer.truncate(truncateOrder.get(), sink);
+            }
+            if (fragmentCache.isPresent() || isParallel(database.tables, parallelism)) {
+                Function<DatabaseTable, FragmentCache.Fragment> render = fragmentCache.isPresent()
+                    ? fragmentCache.get()::render
+                    : table -> new FragmentCache.Fragment(null, renderer.createTable(table), renderer.keys(table));
+                List<FragmentCache.Fragment> fragments = renderTables(database.tables, render, parallelism);
+                fragmentCache.ifPresent(FragmentCache::store);
+                for (FragmentCache.Fragment fragment : fragments) {
+                    sink.append(fragment.createTable);
+                }
+                for (FragmentCache.Fragment fragment : fragments) {
+                    sink.append(fragment.keys);
+                }
+            } else {
+                // キャッシュしない場合は、文字列を作らず sink に直接書く
+                for (DatabaseTable table : database.tables) {
+                    renderer.createTable(table, sink);
+                }
+                for (DatabaseTable table : database.tables) {
+                    renderer.keys(table, sink);
+                }
+            }
+            logCommitted(log, outputFile, sink.commit());
+        }
+        if (previousDatabase.isPresent()) {
+            File migrationFile = resolveMigrationFile(extension, database.version, dialect);
+            try (DDLSink sink = new DDLSink(migrationFile, this.lineEnd)) {
+                renderer.migration(previousDatabase.get(), database, sink);
+                logCommitted(log, migrationFile, sink.commit());
+            }
+        }
+    }
+
+    /**
+     * 前のバージョンの定義。previousYaml が無い場合は、yaml を previousRevision から読む。
+     * 前のバージョンに yaml が無い場合は、テーブルが無いものとして扱う (全て CREATE TABLE になる)。
+     */
+    private DatabaseDefinition loadPrevious(DDLExtension extension, List<File> yamlFiles) throws IOException {
+        List<File> previousFiles = extension.getPreviousYamlSources();
+        if (previousFiles.isEmpty()) {
+            String revision = extension.getPreviousRevision().get();
+            File revisionDir = new File(this.temporaryDir, "revision-" + UUID.randomUUID());
+            try {
+                previousFiles = new GitRevisionReader(log).read(revision, yamlFiles, revisionDir);
+                return loadDefinition(previousFiles);
+            } finally {
+                for (File file : Optional.ofNullable(revisionDir.listFiles()).orElseGet(() -> new File[0])) {
+                    file.delete();
+                }
+                revisionDir.delete();
+            }
+        }
+        Optional<File> notFoundFile = previousFiles.stream().filter(file -> !file.exists()).findFirst();
+        if (notFoundFile.isPresent()) {
+            throw new IOException("previous yaml file not found: " + notFoundFile.get().getCanonicalPath());
+        }
+        return loadDefinition(previousFiles);
+    }
+
+    private DatabaseDefinition loadDefinition(List<File> yamlFiles) throws IOException {
+        if (yamlFiles.isEmpty()) {
+            return new DatabaseDefinition(Optional.empty(), List.of(), Map.of());
+        }
+        YamlSchemaLoader loader = new YamlSchemaLoader(log);
+        return loader.loadYamlFile(loader.readYamlFiles(yamlFiles));
+    }
+
+    /**
+     * パースした1つの DatabaseDefinition から、dialect ごとの DDL ファイルを並列に出力する。
+     * テーブルごとの並列数は dialect 数で分ける。
+     */
+    private void renderDialects(DDLExtension extension, DatabaseDefinition database, Optional<DatabaseDefinition> previousDatabase,
+                                List<SqlDialect> dialects, Optional<TableOrder> truncateOrder) throws IOException {
+        int tableParallelism = Math.max(1, this.parallelism / dialects.size());
+        ForkJoinPool pool = new ForkJoinPool(Math.min(dialects.size(), this.parallelism));
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (SqlDialect dialect : dialects) {
+                tasks.add(pool.submit(() -> {
+                    try {
+                        render(extension, database, previousDatabase, Optional.of(dialect), truncateOrder, tableParallelism);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+            // 1つ失敗しても、他の dialect の出力が終わるまで待ってから失敗させる
+            RuntimeException failure = null;
+            for (ForkJoinTask<?> task : tasks) {
+                try {
+                    task.join();
+                } catch (RuntimeException e) {
+                    failure = failure == null ? e : failure;
+                }
+            }
+            if (failure instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) failure).getCause();
+            } else if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** 知らない dialect 名は警告して無視する */
+    private List<SqlDialect> resolveDialects(DDLExtension extension) {
+        List<SqlDialect> dialects = new ArrayList<>();
+        for (String name : extension.getDialects()) {
+            Optional<SqlDialect> dialect = SqlDialect.of(name);
+            if (dialect.isEmpty()) {
+                log.warn(String.format(logFormat, "unknown dialect, ignored: " + name));
+            } else if (!dialects.contains(dialect.get())) {
+                dialects.add(dialect.get());
+            }
+        }
+        return dialects;
+    }
+
+    private static boolean isParallel(List<DatabaseTable> tables, int parallelism) {
+        return parallelism > 1 && tables.size() >= PARALLEL_THRESHOLD;
+    }
+
+    /**
+     * テーブルごとの DDL を作る。テーブル数が多い場合は ForkJoinPool で並列に作る。
+     * 結果はテーブルの定義順 (並列でも順番は変わらない)。
+     */
+    List<FragmentCache.Fragment> renderTables(List<DatabaseTable> tables, Function<DatabaseTable, FragmentCache.Fragment> render) {
+        return renderTables(tables, render, this.parallelism);
+    }
+
+    private static List<FragmentCache.Fragment> renderTables(List<DatabaseTable> tables, Function<DatabaseTable, FragmentCache.Fragment> render, int parallelism) {
+        if (!isParallel(tables, parallelism)) {
+            return tables.stream().map(render).collect(Collectors.toList());
+        }
+        // 1テーブルずつでは投入の方が重いため、まとめて渡す
+        int chunkSize = Math.max(PARALLEL_THRESHOLD / 4, tables.size() / (parallelism * 4) + 1);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<List<FragmentCache.Fragment>>> tasks = new ArrayList<>();
+            for (int start = 0; start < tables.size(); start += chunkSize) {
+                List<DatabaseTable> chunk = tables.subList(start, Math.min(start + chunkSize, tables.size()));
+                tasks.add(pool.submit(() -> chunk.stream().map(render).collect(Collectors.toList())));
+            }
+            List<FragmentCache.Fragment> fragments = new ArrayList<>(tables.size());
+            for (ForkJoinTask<List<FragmentCache.Fragment>> task : tasks) {
+                fragments.addAll(task.join());
+            }
+            return fragments;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    static TableOrder truncateOrder(Logger log, Collection<DatabaseTable> tables) {
+        TableOrder order = TableOrder.of(tables);
+        if (order.hasCycle()) {
+            log.warn(String.format("[YamlDDL] %s", "circular foreign key reference, these tables are dropped regardless of the reference order: " + String.join(", ", order.cyclicTables)));
+        }
+        return order;
+    }
+
+    static void logCommitted(Logger log, File outputFile, boolean updated) throws IOException {
+        if (updated) {
+            log.lifecycle(String.format("[YamlDDL] %s", "ddl file created: " + outputFile.getCanonicalPath()));
+        } else {
+            log.lifecycle(String.format("[YamlDDL] %s", "ddl file not changed: " + outputFile.getCanonicalPath()));
+        }
+    }
+
+    static File resolveOutputFile(DDLExtension extension, Optional<String> version) {
+        return resolveOutputFile(extension, version, Optional.empty());
+    }
+
+    /** dialect を指定した場合は、outDir の dialect 名のディレクトリに出力する */
+    static File resolveOutputFile(DDLExtension extension, Optional<String> version, Optional<SqlDialect> dialect) {
+        String outputFileName = extension.getFileName().orElse("ddl") + version.map(ver -> "-" + ver).orElse("") + ".sql";
+        Path outputDir = extension.getOutputDir().toPath();
+        return (dialect.isPresent() ? outputDir.resolve(dialect.get().getName()) : outputDir).resolve(outputFileName).toFile();
+    }
+
+    /** 前のバージョンとの差分の DDL。 ddl[-version]-migration.sql */
+    static File resolveMigrationFile(DDLExtension extension, Optional<String> version, Optional<SqlDialect> dialect) {
+        File outputFile = resolveOutputFile(extension, version, dialect);
+        String outputFileName = outputFile.getName();
+        return new File(outputFile.getParentFile(), outputFileName.substring(0, outputFileName.length() - ".sql".length()) + "-migration.sql");
+    }
+
+    /** 出力先ごとに、前回の DDL 断片を持つ */
+    private File fragmentIndexFile(DDLExtension extension, Optional<SqlDialect> dialect) throws IOException {
+        String output = extension.getOutputDir().getCanonicalPath() + File.separator + dialect.map(value -> value.getName() + File.separator).orElse("") + extension.getFileName().orElse("ddl");
+        return new File(new File(this.cacheDir, "fragment"), UUID.nameUUIDFromBytes(output.getBytes(StandardCharsets.UTF_8)) + ".bin");
+    }
+
+    private String getExtensionRequiredSetting() {
+        return String.join(System.lineSeparator(),
+            "ddl task extension required minimum setting.",
+            "******************************************************",
+            "yamlER {",
+            "    ddl {",
+            "      yaml = file('database yaml file path')",
+            "      outDir = file('ddl file output directory path')",
+            "    }",
+            "}",
+            "******************************************************"
+        );
+    }
+
+}
@@ -0,0 +1,211 @@
+package com.matsuyoido.plugin.er.task;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import com.matsuyoido.LineEnd;
+import com.matsuyoido.ddl.DatabaseTable;
+import com.matsuyoido.ddl.SchemaDiff;
+import com.matsuyoido.ddl.SqlDialect;
+import com.matsuyoido.ddl.SqlKeywords;
+import com.matsuyoido.plugin.er.DDLExtension;
+
+/**
+ * DatabaseTable -> DDL 文字列。
+ * Appendable を受け取るメソッドは、出力先へ直接書き込む (文字列を作らない)。
+ */
+class DDLRenderer {
+
+    private final boolean existCheck;
+    private final boolean lowerAll;
+    private final SqlKeywords keywords;
+    /** domain 名 -> dialect の型 */
+    private final Map<String, String> domainTypes;
+    private final Optional<String> schema;
+    private final String lineEnd;
+
+    DDLRenderer(DDLExtension extension, LineEnd lineEnd) {
+        this(extension, lineEnd, Optional.empty(), Map.of());
+    }
+
+    DDLRenderer(DDLExtension extension, LineEnd lineEnd, Optional<SqlDialect> dialect, Map<String, String> domainTypes) {
+        this.existCheck = extension.isIncludeExistCheck();
+        this.lowerAll = extension.isAllCharacterLowerCase();
+        this.keywords = SqlKeywords.of(dialect, this.lowerAll);
+        this.domainTypes = domainTypes;
+        this.schema = extension.getSchema();
+        this.lineEnd = lineEnd.get();
+    }
+
+    /** 出力結果に影響する設定 (キャッシュの判定用) */
+    String options() {
+        String options = String.join(",", String.valueOf(this.existCheck), String.valueOf(this.lowerAll), this.schema.orElse(""), this.lineEnd);
+        if (this.keywords.dialect.isEmpty()) {
+            return options;
+        }
+        return String.join(",", options, this.keywords.dialect.get().getName(), new TreeMap<>(this.domainTypes).toString());
+    }
+
+    /** CREATE TABLE + PK */
+    String createTable(DatabaseTable table) {
+        return render(out -> createTable(table, out));
+    }
+
+    void createTable(DatabaseTable table, Appendable out) throws IOException {
+        table.appendCreateSentence(out, this.keywords, this.domainTypes, this.existCheck, this.schema, this.lineEnd);
+        out.append(this.lineEnd);
+    }
+
+    /** FK + UK + INDEX */
+    String keys(DatabaseTable table) {
+        return render(out -> keys(table, out));
+    }
+
+    void keys(DatabaseTable table, Appendable out) throws IOException {
+        foreignKeys(table, out);
+        constraints(table, out);
+    }
+
+    void foreignKeys(DatabaseTable table, Appendable out) throws IOException {
+        out.append(this.lineEnd);
+        table.appendForeignKeySentence(out, this.keywords, this.schema, this.lineEnd);
+        out.append(this.lineEnd);
+    }
+
+    /** UK + INDEX */
+    String constraints(DatabaseTable table) {
+        return render(out -> constraints(table, out));
+    }
+
+    void constraints(DatabaseTable table, Appendable out) throws IOException {
+        out.append(this.lineEnd);
+        table.appendUniqueKeySentence(out, this.keywords, this.schema, this.lineEnd);
+        out.append(this.lineEnd)
+           .append(this.lineEnd);
+        table.appendIndexKeySentence(out, this.keywords, this.schema, this.lineEnd);
+        out.append(this.lineEnd);
+    }
+
+    /**
+     * TRUNCATE TABLE + DROP TABLE。
+     * 循環参照がある場合は、循環しているテーブルの FK を消してから、参照するテーブルから順に DROP TABLE だけ書く。
+     * dialect 指定時は、参照するテーブルから順に DROP TABLE だけ書く。
+     */
+    void truncate(TableOrder order, Appendable out) throws IOException {
+        if (this.keywords.truncateTable == null) {
+            drop(order, out);
+            return;
+        }
+        if (order.hasCycle()) {
+            dropCycle(order, out);
+            return;
+        }
+        List<String> tableNames = order.tableNames();
+        for (String tableName : tableNames) {
+            out.append(this.keywords.truncateTable);
+            DatabaseTable.appendTableName(out, this.schema, tableName);
+            out.append(';').append(this.lineEnd);
+        }
+        out.append(this.lineEnd);
+        for (String tableName : tableNames) {
+            out.append(this.keywords.dropTable);
+            DatabaseTable.appendTableName(out, this.schema, tableName);
+            out.append(';').append(this.lineEnd);
+        }
+        out.append(this.lineEnd);
+    }
+
+    /**
+     * dialect 指定なしで循環参照がある場合。
+     * FK を消せば循環はなくなるため、参照整合性チェックを止めずに (H2 でも DROP TABLE は止まらない) 逆順に消す。
+     */
+    private void dropCycle(TableOrder order, Appendable out) throws IOException {
+        out.append("-- circular foreign key reference: ")
+           .append(String.join(", ", order.cyclicTables))
+           .append(this.lineEnd);
+        for (Map.Entry<String, List<String>> table : order.cyclicForeignKeys.entrySet()) {
+            for (String keyName : table.getValue()) {
+                out.append(this.keywords.alterTableIfExists);
+                DatabaseTable.appendTableName(out, this.schema, table.getKey());
+                out.append(this.keywords.dropConstraintIfExists).append(keyName).append(';').append(this.lineEnd);
+            }
+        }
+        out.append(this.lineEnd);
+        List<String> tableNames = new ArrayList<>(order.tableNames());
+        Collections.reverse(tableNames);
+        for (String tableName : tableNames) {
+            out.append(this.keywords.dropTable);
+            DatabaseTable.appendTableName(out, this.schema, tableName);
+            out.append(';').append(this.lineEnd);
+        }
+        out.append(this.lineEnd);
+    }
+
+    /**
+     * 循環参照がある場合、MySQL は参照整合性チェックを止め、
+     * それ以外は DROP TABLE ... CASCADE にする (PostgreSQL, H2)。
+     */
+    private void drop(TableOrder order, Appendable out) throws IOException {
+        List<String> tableNames = new ArrayList<>(order.tableNames());
+        Collections.reverse(tableNames);
+        boolean disable = order.hasCycle() && this.keywords.disableReferentialIntegrity != null;
+        if (order.hasCycle()) {
+            out.append("-- circular foreign key reference: ")
+               .append(String.join(", ", order.cyclicTables))
+               .append(this.lineEnd);
+        }
+        if (disable) {
+            out.append(this.keywords.disableReferentialIntegrity)
+               .append(this.lineEnd);
+        }
+        for (String tableName : tableNames) {
+            out.append(this.keywords.dropTable);
+            DatabaseTable.appendTableName(out, this.schema, tableName);
+            if (order.hasCycle()) {
+                out.append(this.keywords.dropCascade);
+            }
+            out.append(';').append(this.lineEnd);
+        }
+        if (disable) {
+            out.append(this.keywords.enableReferentialIntegrity)
+               .append(this.lineEnd);
+        }
+        out.append(this.lineEnd);
+    }
+
+    /** 前のバージョンから今のバージョンにする DDL (差分だけ) */
+    void migration(DatabaseDefinition previous, DatabaseDefinition current, Appendable out) throws IOException {
+        out.append("-- migration: ")
+           .append(previous.version.orElse("previous"))
+           .append(" -> ")
+           .append(current.version.orElse("current"))
+           .append(this.lineEnd)
+           .append(this.lineEnd);
+        Map<String, String> previousDomainTypes = this.keywords.dialect.map(previous::domainTypes).orElseGet(Map::of);
+        SchemaDiff diff = new SchemaDiff(previous.tables, previousDomainTypes, current.tables, this.domainTypes, this.keywords, this.schema, this.lineEnd);
+        if (!diff.append(out)) {
+            out.append("-- no changes").append(this.lineEnd);
+        }
+    }
+
+    private static String render(Rendering rendering) {
+        StringBuilder text = new StringBuilder(256);
+        try {
+            rendering.render(text);
+        } catch (IOException e) {
+            // StringBuilder への書き込みでは発生しない
+            throw new IllegalStateException(e);
+        }
+        return text.toString();
+    }
+
+    private interface Rendering {
+        void render(Appendable out) throws IOException;
+    }
+
+}
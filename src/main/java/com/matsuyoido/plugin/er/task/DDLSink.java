@@ -0,0 +1,177 @@
+package com.matsuyoido.plugin.er.task;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import com.matsuyoido.LineEnd;
+
+/**
+ * DDL の出力先。
+ * 出力ファイルと同じディレクトリの一時ファイルに書きながら SHA-256 を計算し、
+ * {@link #commit()} で既存ファイルと同じ内容なら一時ファイルを捨てる (既存ファイルの更新日時を変えない)。
+ * 違う場合は rename で置き換える。
+ */
+class DDLSink implements Appendable, Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File outputFile;
+    private final Path tempFile;
+    private final FileChannel channel;
+    private final String lineEnd;
+    private final MessageDigest digest;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+    private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE * 3);
+    private long size = 0;
+    private boolean committed = false;
+
+    /**
+     * @param lineEnd {@link #append(CharSequence)} の '\n' をこの改行コードにする
+     */
+    DDLSink(File outputFile, LineEnd lineEnd) throws IOException {
+        this.outputFile = outputFile;
+        this.lineEnd = lineEnd.get();
+        this.digest = sha256();
+        this.tempFile = Files.createTempFile(outputFile.getAbsoluteFile().getParentFile().toPath(), outputFile.getName(), ".tmp");
+        this.channel = FileChannel.open(this.tempFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /** 文字列を書く。'\n' は改行コードに置き換える */
+    @Override
+    public DDLSink append(CharSequence text) throws IOException {
+        CharSequence value = text == null ? "null" : text;
+        return append(value, 0, value.length());
+    }
+
+    @Override
+    public DDLSink append(CharSequence text, int start, int end) throws IOException {
+        CharSequence value = text == null ? "null" : text;
+        for (int i = start; i < end; i++) {
+            append(value.charAt(i));
+        }
+        return this;
+    }
+
+    @Override
+    public DDLSink append(char c) throws IOException {
+        if (c == '\n') {
+            for (int j = 0; j < this.lineEnd.length(); j++) {
+                put(this.lineEnd.charAt(j));
+            }
+        } else {
+            put(c);
+        }
+        return this;
+    }
+
+    /** エンコード済み (改行コード変換済み) のバイト列をそのまま書く */
+    DDLSink write(ByteBuffer source) throws IOException {
+        encode(false);
+        flushBytes();
+        this.digest.update(source.duplicate());
+        this.size += source.remaining();
+        while (source.hasRemaining()) {
+            this.channel.write(source);
+        }
+        return this;
+    }
+
+    /** @return true: 出力ファイルを更新した。false: 既存ファイルと同じ内容のため更新しなかった */
+    boolean commit() throws IOException {
+        encode(true);
+        flushBytes();
+        this.channel.close();
+        this.committed = true;
+        byte[] hash = this.digest.digest();
+        if (this.outputFile.isFile() && this.outputFile.length() == this.size && Arrays.equals(hash, hashOf(this.outputFile))) {
+            Files.delete(this.tempFile);
+            return false;
+        }
+        Files.move(this.tempFile, this.outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    /** commit していなければ一時ファイルを捨てる */
+    @Override
+    public void close() throws IOException {
+        if (!this.committed) {
+            this.channel.close();
+            Files.deleteIfExists(this.tempFile);
+        }
+    }
+
+    private void put(char c) throws IOException {
+        if (!this.chars.hasRemaining()) {
+            encode(false);
+        }
+        this.chars.put(c);
+    }
+
+    private void encode(boolean endOfInput) throws IOException {
+        this.chars.flip();
+        while (true) {
+            CoderResult result = this.encoder.encode(this.chars, this.bytes, endOfInput);
+            if (result.isOverflow()) {
+                flushBytes();
+            } else if (result.isError()) {
+                result.throwException();
+            } else {
+                break;
+            }
+        }
+        if (endOfInput) {
+            while (this.encoder.flush(this.bytes).isOverflow()) {
+                flushBytes();
+            }
+        }
+        // サロゲートペアの片割れは次回に持ち越す
+        this.chars.compact();
+    }
+
+    private void flushBytes() throws IOException {
+        this.bytes.flip();
+        this.digest.update(this.bytes.duplicate());
+        this.size += this.bytes.remaining();
+        while (this.bytes.hasRemaining()) {
+            this.channel.write(this.bytes);
+        }
+        this.bytes.clear();
+    }
+
+    private static byte[] hashOf(File file) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream input = Files.newInputStream(file.toPath())) {
+            int length;
+            while ((length = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, length);
+            }
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.matsuyoido.plugin.er.task;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.matsuyoido.plugin.er.DDLExtension;
+
+import org.gradle.api.logging.Logger;
+
+/**
+ * yaml の変更を WatchService で待ち、変更のあった ddl ブロックの DDL を出力し直す。
+ * ddl ブロックごとに yaml のパース結果をメモリに持ち、変更のあったファイルだけパースし直す。
+ * (テーブルごとの DDL は、cache が有効なら変更のあったテーブルだけ作り直す)
+ */
+class DDLWatcher {
+
+    /** 保存直後の連続したイベントをまとめる時間 */
+    private static final long QUIET_MILLIS = 50;
+
+    private final String logFormat = "[YamlDDL] %s";
+    private final Logger log;
+    private final List<WatchedDDL> watchedList;
+    /** 監視中のディレクトリ */
+    private final Set<Path> directories = new HashSet<>();
+
+    /**
+     * @param generatorFactory ddl ブロックごとの yaml のパース結果を受け取って、DDLGenerator を作る
+     */
+    DDLWatcher(Logger logger, List<DDLExtension> ddlConfig, Function<YamlFileCache, DDLGenerator> generatorFactory) {
+        this.log = logger;
+        this.watchedList = ddlConfig.stream().map(extension -> {
+            YamlFileCache yamlFileCache = new YamlFileCache();
+            return new WatchedDDL(extension, yamlFileCache, generatorFactory.apply(yamlFileCache));
+        }).collect(Collectors.toList());
+    }
+
+    /**
+     * 全 ddl ブロックの DDL を出力してから、スレッドが割り込まれるまで yaml を監視する。
+     */
+    void watch() throws IOException, InterruptedException {
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            for (WatchedDDL watched : this.watchedList) {
+                registerParents(watchService, watched.sources);
+                registerParents(watchService, watched.previousSources);
+                generate(watched);
+            }
+            log.lifecycle(String.format(logFormat, "watching " + this.directories.size() + " directories. (stop: Ctrl+C)"));
+            while (!Thread.currentThread().isInterrupted()) {
+                Set<Path> changedPaths = new HashSet<>();
+                boolean overflow = collectEvents(watchService.take(), watchService, changedPaths);
+                WatchKey key;
+                while ((key = watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    overflow |= collectEvents(key, watchService, changedPaths);
+                }
+                for (WatchedDDL watched : this.watchedList) {
+                    List<File> sources = watched.extension.getYamlSources();
+                    boolean sourcesChanged = !sources.equals(watched.sources);
+                    List<File> changedFiles = Stream.concat(sources.stream(), watched.sources.stream())
+                                                    .filter(file -> changedPaths.contains(file.toPath()))
+                                                    .distinct()
+                                                    .collect(Collectors.toList());
+                    if (overflow || sourcesChanged || !changedFiles.isEmpty() || watched.affectedBy(changedPaths)) {
+                        watched.yamlFileCache.invalidate(overflow ? watched.sources : changedFiles);
+                        watched.sources = sources;
+                        registerParents(watchService, sources);
+                        generate(watched);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            log.lifecycle(String.format(logFormat, "watch stopped."));
+            throw e;
+        }
+    }
+
+    /** @return イベントを取りこぼした場合は true */
+    private boolean collectEvents(WatchKey key, WatchService watchService, Set<Path> changedPaths) throws IOException {
+        Path directory = (Path) key.watchable();
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context()).toAbsolutePath().normalize();
+            changedPaths.add(path);
+            // yaml のディレクトリ配下に作られたディレクトリも監視する
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                try (Stream<Path> paths = Files.walk(path)) {
+                    for (Path child : (Iterable<Path>) paths.filter(Files::isDirectory)::iterator) {
+                        register(watchService, child);
+                    }
+                }
+            }
+        }
+        if (!key.reset()) {
+            this.directories.remove(directory);
+        }
+        return overflow;
+    }
+
+    private void registerParents(WatchService watchService, List<File> files) throws IOException {
+        for (File file : files) {
+            register(watchService, file.toPath().getParent());
+        }
+    }
+
+    private void register(WatchService watchService, Path directory) throws IOException {
+        if (directory != null && Files.isDirectory(directory) && this.directories.add(directory)) {
+            directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        }
+    }
+
+    /** yaml が壊れている (保存途中など) 場合もエラーを出して監視は続ける */
+    private void generate(WatchedDDL watched) {
+        long start = System.nanoTime();
+        try {
+            watched.generator.generate(watched.extension);
+            log.lifecycle(String.format(logFormat, "ddl generated in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms"
+                + " (parsed yaml files: " + watched.yamlFileCache.getLastParsedCount() + " / " + watched.sources.size() + ")"));
+        } catch (RuntimeException e) {
+            log.error(String.format(logFormat, "ddl generate failed, waiting for next change: " + e.getMessage()));
+            log.debug(String.format(logFormat, "Error stacktrace."), e);
+        }
+    }
+
+    private static class WatchedDDL {
+        private final DDLExtension extension;
+        private final YamlFileCache yamlFileCache;
+        private final DDLGenerator generator;
+        /** 前回の出力に使った yaml */
+        private List<File> sources;
+        private final List<File> previousSources;
+
+        private WatchedDDL(DDLExtension extension, YamlFileCache yamlFileCache, DDLGenerator generator) {
+            this.extension = extension;
+            this.yamlFileCache = yamlFileCache;
+            this.generator = generator;
+            this.sources = new ArrayList<>(extension.getYamlSources());
+            this.previousSources = extension.getPreviousYamlSources();
+        }
+
+        /** 前のバージョンの yaml (previousYaml) が変わった場合も、差分の DDL を出力し直す */
+        private boolean affectedBy(Set<Path> changedPaths) {
+            return this.previousSources.stream().map(File::toPath).anyMatch(changedPaths::contains);
+        }
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.matsuyoido.plugin.er.task;
+
+import java.io.File;
+import java.util.List;
+
+import com.matsuyoido.LineEnd;
+import com.matsuyoido.plugin.er.DDLExtension;
+
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
+
+/**
+ * ddl ブロック1つ分を Worker で実行する。(Gradle 5.6 以上)
+ */
+public abstract class DDLWorkAction implements WorkAction<DDLWorkAction.Parameters> {
+
+    public interface Parameters extends WorkParameters {
+        Property<DDLExtension> getExtension();
+        Property<LineEnd> getLineEnd();
+        Property<File> getCacheDir();
+        /** byte */
+        Property<Long> getCacheSize();
+        Property<File> getTemporaryDir();
+        Property<Integer> getParallelism();
+    }
+
+    /**
+     * ブロックごとに Worker へ渡し、--max-workers の範囲で並列に実行する
+     * @param parallelism 全ブロック合計のスレッド数。ブロックごとのスレッド数は、これをブロック数で割った数
+     */
+    static void submitAll(WorkerExecutor workerExecutor, List<DDLExtension> ddlConfig, LineEnd lineEnd, File cacheDir, long cacheSize, File temporaryDir, int parallelism) {
+        WorkQueue queue = workerExecutor.noIsolation();
+        int blockParallelism = blockParallelism(parallelism, ddlConfig.size());
+        ddlConfig.forEach(ddl -> queue.submit(DDLWorkAction.class, parameters -> {
+            parameters.getExtension().set(ddl);
+            parameters.getLineEnd().set(lineEnd);
+            parameters.getCacheDir().set(cacheDir);
+            parameters.getCacheSize().set(cacheSize);
+            parameters.getTemporaryDir().set(temporaryDir);
+            parameters.getParallelism().set(blockParallelism);
+        }));
+        queue.await();
+    }
+
+    /** ブロックを並列に実行しても、合計で parallelism を超えるスレッドを作らない */
+    static int blockParallelism(int parallelism, int blockCount) {
+        return Math.max(1, parallelism / Math.max(1, blockCount));
+    }
+
+    @Override
+    public void execute() {
+        Parameters parameters = getParameters();
+        new DDLGenerator(Logging.getLogger(YamlDDLTask.class),
+                         parameters.getLineEnd().get(),
+                         parameters.getCacheDir().get(),
+                         parameters.getCacheSize().get(),
+                         parameters.getTemporaryDir().get(),
+                         parameters.getParallelism().get())
+            .generate(parameters.getExtension().get());
+    }
+
+}
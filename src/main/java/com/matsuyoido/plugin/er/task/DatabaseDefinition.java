@@ -1,19 +1,29 @@
 package com.matsuyoido.plugin.er.task;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import com.matsuyoido.ddl.DatabaseTable;
+import com.matsuyoido.ddl.SqlDialect;
 
 public class DatabaseDefinition {
 
     final Optional<String> version;
     final List<DatabaseTable> tables;
+    /** dialect -> (domain 名 -> 型) */
+    final Map<SqlDialect, Map<String, String>> dialectDomains;
 
 
-    DatabaseDefinition(Optional<String> version, List<DatabaseTable> tables) {
+    DatabaseDefinition(Optional<String> version, List<DatabaseTable> tables, Map<SqlDialect, Map<String, String>> dialectDomains) {
         this.version = version;
         this.tables = tables;
+        this.dialectDomains = dialectDomains;
+    }
+
+    /** domain 名 -> dialect の型 */
+    Map<String, String> domainTypes(SqlDialect dialect) {
+        return this.dialectDomains.getOrDefault(dialect, Map.of());
     }
 
 }
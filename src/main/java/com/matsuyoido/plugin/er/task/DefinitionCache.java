@@ -0,0 +1,185 @@
+package com.matsuyoido.plugin.er.task;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.matsuyoido.ddl.DatabaseTable;
+import com.matsuyoido.ddl.SqlDialect;
+
+import org.gradle.api.logging.Logger;
+
+/**
+ * パース済み DatabaseDefinition のキャッシュ。
+ * yaml の内容とプラグインのバージョンから作ったハッシュをキーに、バイナリ形式で保存する。
+ * パース時の warn も一緒に保存し、キャッシュから読んだときに出し直す。
+ * 合計サイズが上限を超えたら、最後に使ってから時間が経ったものから消す。
+ */
+class DefinitionCache {
+
+    /** 保存形式を変えたら上げる */
+    private static final int FORMAT_VERSION = 3;
+    private static final String CACHE_FILE_SUFFIX = ".bin";
+
+    private final String logFormat = "[YamlDDL] %s";
+    private final Logger log;
+    private final File cacheDir;
+    private final long maxSize;
+
+    /**
+     * @param maxSize キャッシュディレクトリの上限 (byte)
+     */
+    DefinitionCache(Logger logger, File cacheDir, long maxSize) {
+        this.log = logger;
+        this.cacheDir = cacheDir;
+        this.maxSize = maxSize;
+    }
+
+    /** yaml の内容 (読み込み順) + プラグインのバージョンの SHA-256 */
+    String key(List<File> yamlFiles) throws IOException {
+        MessageDigest digest = sha256();
+        digest.update((pluginVersion() + ":" + FORMAT_VERSION).getBytes(StandardCharsets.UTF_8));
+        byte[] buffer = new byte[64 * 1024];
+        for (File yamlFile : yamlFiles) {
+            digest.update(yamlFile.getName().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            try (InputStream input = Files.newInputStream(yamlFile.toPath())) {
+                int length;
+                while ((length = input.read(buffer)) != -1) {
+                    digest.update(buffer, 0, length);
+                }
+            }
+            digest.update((byte) 0);
+        }
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(String.format("%02x", b));
+        }
+        return key.toString();
+    }
+
+    Optional<DatabaseDefinition> load(String key) {
+        File cacheFile = cacheFile(key);
+        if (!cacheFile.isFile()) {
+            return Optional.empty();
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile.toPath())))) {
+            Optional<String> version = input.readBoolean() ? Optional.of(input.readUTF()) : Optional.empty();
+            List<DatabaseTable> tables = DatabaseTable.readTables(input);
+            Map<SqlDialect, Map<String, String>> dialectDomains = new EnumMap<>(SqlDialect.class);
+            int dialectSize = input.readInt();
+            for (int i = 0; i < dialectSize; i++) {
+                SqlDialect dialect = SqlDialect.valueOf(input.readUTF());
+                Map<String, String> domainTypes = new LinkedHashMap<>();
+                int domainSize = input.readInt();
+                for (int j = 0; j < domainSize; j++) {
+                    domainTypes.put(input.readUTF(), input.readUTF());
+                }
+                dialectDomains.put(dialect, domainTypes);
+            }
+            List<String> warnings = new ArrayList<>();
+            int warningSize = input.readInt();
+            for (int i = 0; i < warningSize; i++) {
+                warnings.add(input.readUTF());
+            }
+            cacheFile.setLastModified(System.currentTimeMillis());
+            log.info(String.format(logFormat, "parsed yaml loaded from cache: " + cacheFile.getName()));
+            warnings.forEach(log::warn);
+            return Optional.of(new DatabaseDefinition(version, tables, dialectDomains));
+        } catch (IOException | RuntimeException e) {
+            log.warn(String.format(logFormat, "cache file is broken, ignored: " + cacheFile.getName()));
+            log.debug(String.format(logFormat, "Error stacktrace."), e);
+            cacheFile.delete();
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * キャッシュの保存に失敗しても、タスクは失敗させない
+     * @param warnings パース時に出力した warn
+     */
+    void store(String key, DatabaseDefinition definition, List<String> warnings) {
+        File tempFile = null;
+        try {
+            this.cacheDir.mkdirs();
+            tempFile = File.createTempFile(key, ".tmp", this.cacheDir);
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile.toPath())))) {
+                output.writeBoolean(definition.version.isPresent());
+                if (definition.version.isPresent()) {
+                    output.writeUTF(definition.version.get());
+                }
+                DatabaseTable.writeTables(output, definition.tables);
+                output.writeInt(definition.dialectDomains.size());
+                for (Map.Entry<SqlDialect, Map<String, String>> dialect : definition.dialectDomains.entrySet()) {
+                    output.writeUTF(dialect.getKey().name());
+                    output.writeInt(dialect.getValue().size());
+                    for (Map.Entry<String, String> domain : dialect.getValue().entrySet()) {
+                        output.writeUTF(domain.getKey());
+                        output.writeUTF(domain.getValue());
+                    }
+                }
+                output.writeInt(warnings.size());
+                for (String warning : warnings) {
+                    output.writeUTF(warning);
+                }
+            }
+            Files.move(tempFile.toPath(), cacheFile(key).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            evict();
+        } catch (IOException e) {
+            log.warn(String.format(logFormat, "cache file save error: " + e.getMessage()));
+            log.debug(String.format(logFormat, "Error stacktrace."), e);
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    private void evict() {
+        File[] cacheFiles = this.cacheDir.listFiles((dir, name) -> name.endsWith(CACHE_FILE_SUFFIX));
+        if (cacheFiles == null) {
+            return;
+        }
+        Arrays.sort(cacheFiles, Comparator.comparingLong(File::lastModified).reversed());
+        long totalSize = 0;
+        for (File cacheFile : cacheFiles) {
+            totalSize += cacheFile.length();
+            if (totalSize > this.maxSize && cacheFile.delete()) {
+                log.info(String.format(logFormat, "cache file evicted: " + cacheFile.getName()));
+            }
+        }
+    }
+
+    private File cacheFile(String key) {
+        return new File(this.cacheDir, key + CACHE_FILE_SUFFIX);
+    }
+
+    static String pluginVersion() {
+        return Optional.ofNullable(DefinitionCache.class.getPackage().getImplementationVersion()).orElse("dev");
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.matsuyoido.plugin.er.task;
+
+import java.io.Reader;
+import java.util.List;
+import java.util.Optional;
+
+import com.matsuyoido.LineEnd;
+import com.matsuyoido.ddl.DatabaseTable;
+import com.matsuyoido.ddl.SqlDialect;
+import com.matsuyoido.plugin.er.DDLExtension;
+
+/**
+ * DatabaseDefinition の DDL を、1テーブルずつ作りながら読ませる Reader。
+ * DDL 全体を文字列にもファイルにもしない。CREATE TABLE (PK, コメント) を全て読ませてから、UK・INDEX・FK を読ませる。
+ */
+class DefinitionDDLReader extends Reader {
+
+    private final DDLRenderer renderer;
+    private final List<DatabaseTable> tables;
+    /** 次に作る DDL。テーブル数未満なら CREATE TABLE、以降はキー */
+    private int next;
+    private String current = "";
+    private int position;
+
+    DefinitionDDLReader(DatabaseDefinition database, SqlDialect dialect) {
+        // スキーマ名は接続先で指定するため、DDL には付けない
+        this.renderer = new DDLRenderer(new DDLExtension(), LineEnd.LINUX, Optional.of(dialect), database.domainTypes(dialect));
+        this.tables = database.tables;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) {
+        while (this.position == this.current.length()) {
+            if (this.next == this.tables.size() * 2) {
+                return -1;
+            }
+            DatabaseTable table = this.tables.get(this.next % this.tables.size());
+            this.current = this.next < this.tables.size() ? this.renderer.createTable(table) : this.renderer.keys(table);
+            this.position = 0;
+            this.next++;
+        }
+        int count = Math.min(length, this.current.length() - this.position);
+        this.current.getChars(this.position, this.position + count, buffer, offset);
+        this.position += count;
+        return count;
+    }
+
+    @Override
+    public void close() {
+        // 閉じるものはない
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.matsuyoido.plugin.er.task;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import com.matsuyoido.plugin.er.ERDbExtension;
+import com.matsuyoido.plugin.er.ERExtension;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.logging.Logger;
+
+/**
+ * schemaspy と JDBC ドライバーの jar を、MainPlugin で作った detached configuration から取り出す。
+ * Gradle のキャッシュ・--offline・チェックサムの検証・プロジェクトの repositories (ミラー、ローカルのリポジトリ) がそのまま使える。
+ */
+class ERDependencyResolver {
+
+    /** version を指定しなかった場合の schemaspy */
+    static final String DEFAULT_SCHEMASPY_VERSION = "6.1.0";
+
+    private final String logFormat = "[ER] %s";
+    private final Map<String, FileCollection> dependencyJars;
+    private final Logger log;
+    /** 依存の記法 -> jar (1回のタスク実行の中で使い回す) */
+    private final Map<String, File> resolved = new HashMap<>();
+
+    ERDependencyResolver(Map<String, FileCollection> dependencyJars, Logger logger) {
+        this.dependencyJars = dependencyJars;
+        this.log = logger;
+    }
+
+    /** er ブロックの設定で必要になる依存 (H2 はプラグインに組み込んだものを使う) */
+    static Set<String> notations(List<ERExtension> erConfig) {
+        Set<String> notations = new LinkedHashSet<>();
+        for (ERExtension extension : erConfig) {
+            if (extension.isNativeRenderer()) {
+                continue;
+            }
+            notations.add(schemaspyNotation(extension.getSchemaspyVersion()));
+            if (needsDriver(extension)) {
+                driverNotation(extension.getDbSetting()).ifPresent(notations::add);
+            }
+        }
+        return notations;
+    }
+
+    /** 実際のデータベースに接続し、ドライバーの jar を指定していない */
+    static boolean needsDriver(ERExtension extension) {
+        ERDbExtension databaseConnectExtension = extension.getDbSetting();
+        return extension.getDDLFile() == null && extension.getYamlSources().isEmpty()
+            && databaseConnectExtension != null && !databaseConnectExtension.isNotEnoughSetting()
+            && databaseConnectExtension.getDriverFile().isEmpty();
+    }
+
+    static String schemaspyNotation(Optional<String> version) {
+        return "org.schemaspy:schemaspy:" + version.orElse(DEFAULT_SCHEMASPY_VERSION);
+    }
+
+    /** @return ドライバーのダウンロードに対応していない type なら empty */
+    static Optional<String> driverNotation(ERDbExtension databaseConnectExtension) {
+        String databaseVersion = databaseConnectExtension.getDatabaseVersion().get();
+        switch (databaseConnectExtension.getDatabaseType()) {
+            case "mysql":
+                return Optional.of("mysql:mysql-connector-java:" + databaseVersion);
+            case "pgsql":
+                return Optional.of("org.postgresql:postgresql:" + databaseVersion);
+            case "mariadb":
+                return Optional.of("org.mariadb.jdbc:mariadb-java-client:" + databaseVersion);
+            default:
+                return Optional.empty();
+        }
+    }
+
+    File resolveSchemaspy(Optional<String> version) {
+        String notation = schemaspyNotation(version);
+        try {
+            File jarFile = resolve(notation);
+            log.lifecycle(String.format(logFormat, "use schemaspy: " + jarFile.getName()));
+            return jarFile;
+        } catch (GradleException e) {
+            log.error(String.format(logFormat, "schemaspy version not supported: " + version.orElse(DEFAULT_SCHEMASPY_VERSION)));
+            log.lifecycle(String.format(logFormat, "check -> https://github.com/schemaspy/schemaspy/releases"));
+            throw e;
+        }
+    }
+
+    File resolveDriver(ERDbExtension databaseConnectExtension) {
+        String notation = driverNotation(databaseConnectExtension).orElseThrow(() -> {
+            log.error(String.format(logFormat, "please connecting driver file specify."));
+            return new GradleException("driver download not supported.");
+        });
+        try {
+            return resolve(notation);
+        } catch (GradleException e) {
+            log.error(String.format(logFormat, "driver jar resolve error: " + notation));
+            throw e;
+        }
+    }
+
+    /** Gradle の管理するスレッド (タスクのスレッド) から呼ぶこと */
+    synchronized File resolve(String notation) {
+        File jarFile = this.resolved.get(notation);
+        if (jarFile != null) {
+            return jarFile;
+        }
+        FileCollection configuration = this.dependencyJars.get(notation);
+        if (configuration == null) {
+            throw new GradleException(notation + " is not registered.");
+        }
+        try {
+            jarFile = configuration.getSingleFile();
+        } catch (RuntimeException e) {
+            log.debug(String.format(logFormat, "Error stacktrace."), e);
+            throw new GradleException(notation + " could not be resolved from the project repositories." + System.lineSeparator() + e.getMessage(), e);
+        }
+        this.resolved.put(notation, jarFile);
+        return jarFile;
+    }
+
+}
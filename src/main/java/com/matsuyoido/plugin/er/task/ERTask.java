@@ -1,73 +1,286 @@
 package com.matsuyoido.plugin.er.task;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
+import java.io.Writer;
 import java.net.URISyntaxException;
-import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import javax.inject.Inject;
+
+import com.matsuyoido.ddl.ERDiagram;
+import com.matsuyoido.ddl.SqlDialect;
 import com.matsuyoido.plugin.er.ERDbExtension;
 import com.matsuyoido.plugin.er.ERExtension;
-import com.matsuyoido.plugin.er.RootExtension;
 
+import org.gradle.api.DefaultTask;
 import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileCollection;
 import org.gradle.api.logging.Logger;
-import org.gradle.api.tasks.JavaExec;
-import org.gradle.process.internal.ExecException;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.util.GradleVersion;
+import org.gradle.workers.WorkerExecutionException;
+import org.gradle.workers.WorkerExecutor;
 import org.h2.jdbcx.JdbcDataSource;
 
-import groovy.json.JsonSlurper;
-
 /**
  * ERTask
  */
-public class ERTask extends JavaExec {
+public class ERTask extends DefaultTask {
     private final String logFormat = "[ER] %s";
-    private final Logger log = getProject().getLogger();
-    private final Path schemaspyExecuteDir = getProject().getRootProject().getProjectDir().toPath().resolve("gradle/plugin");
+    private final Logger log = getLogger();
+
+    // 設定は MainPlugin で RootExtension から繋ぐ。実行時には Project に触らない (configuration cache のため)
+    private final ListProperty<ERExtension> erConfig = getProject().getObjects().listProperty(ERExtension.class);
+    private final Property<Integer> erParallelism = getProject().getObjects().property(Integer.class);
+    /** schemaspy のテンプレートを変更する場合の置き場所 (layout フォルダ) と、worker で jar を展開する場所 */
+    private final DirectoryProperty schemaspyDirectory = getProject().getObjects().directoryProperty();
+    /** プラグインに入れたテンプレートを展開する場所 (ワークスペース・ビルド間で共有する) */
+    private final DirectoryProperty layoutCacheDirectory = getProject().getObjects().directoryProperty();
+    private final Property<Boolean> erWorker = getProject().getObjects().property(Boolean.class);
+    /** schemaspy を実行する java の JVM 引数 */
+    private final ListProperty<String> jvmArgs = getProject().getObjects().listProperty(String.class);
+    /** schemaspy を実行する java。設定しなければ Gradle と同じ java */
+    private final Property<String> executable = getProject().getObjects().property(String.class);
+    /** 依存の記法 -> schemaspy, driver の jar (MainPlugin で detached configuration を設定する) */
+    private final Map<String, FileCollection> dependencyJars = new HashMap<>();
+    private final ERDependencyResolver dependencies = new ERDependencyResolver(this.dependencyJars, log);
+    private final WorkerExecutor workerExecutor;
+
+    @Inject
+    public ERTask(WorkerExecutor workerExecutor) {
+        this.workerExecutor = workerExecutor;
+    }
 
     @Override
     public String getDescription() {
         return "DDL to ER.";
     }
 
-    @Override
-    public String getMain() {
-        return "-jar";
+    @Internal
+    public ListProperty<ERExtension> getERConfig() {
+        return this.erConfig;
     }
 
-    @Override
+    @Internal
+    public Property<Integer> getErParallelism() {
+        return this.erParallelism;
+    }
+
+    @Internal
+    public DirectoryProperty getSchemaspyDirectory() {
+        return this.schemaspyDirectory;
+    }
+
+    @Internal
+    public DirectoryProperty getLayoutCacheDirectory() {
+        return this.layoutCacheDirectory;
+    }
+
+    @Internal
+    public Property<Boolean> getErWorker() {
+        return this.erWorker;
+    }
+
+    @Internal
+    public ListProperty<String> getJvmArgs() {
+        return this.jvmArgs;
+    }
+
+    @Internal
+    public Property<String> getExecutable() {
+        return this.executable;
+    }
+
+    @Internal
+    public Map<String, FileCollection> getDependencyJars() {
+        return this.dependencyJars;
+    }
+
+    /** er ブロックの設定で必要になる依存 (getDependencyJars に設定するもの) */
+    public static Set<String> dependencyNotations(List<ERExtension> erConfig) {
+        return ERDependencyResolver.notations(erConfig);
+    }
+
+    private Path schemaspyExecuteDir() {
+        return this.schemaspyDirectory.get().getAsFile().toPath();
+    }
+
+    @TaskAction
     public void exec() {
-        setWorkingDir(schemaspyExecuteDir.toFile());
+        final List<ERExtension> erConfig = this.erConfig.get();
+        // 依存の解決は Gradle のスレッドでしかできないため、並列に実行する前に済ませる
+        for (ERExtension extension : erConfig) {
+            resolveDependencies(extension);
+        }
+        if (this.erWorker.getOrElse(false)) {
+            if (GradleVersion.current().compareTo(GradleVersion.version("5.6")) < 0) {
+                log.warn(String.format(logFormat, "erWorker requires gradle 5.6 or later, schemaspy is executed by java -jar."));
+            } else {
+                int javaVersion = workerJavaVersion();
+                if (javaVersion < SchemaspyWorkQueue.SECURITY_MANAGER_REMOVED) {
+                    executeInWorker(erConfig, javaVersion);
+                    return;
+                }
+                // schemaspy の System.exit を止められない
+                log.warn(String.format(logFormat, "erWorker requires java " + (SchemaspyWorkQueue.SECURITY_MANAGER_REMOVED - 1) + " or earlier (SecurityManager), schemaspy is executed by java -jar. java version: " + javaVersion));
+            }
+        }
+        int parallelism = Math.max(1, Math.min(this.erParallelism.get(), erConfig.size()));
+        if (parallelism == 1) {
+            for (int i = 0; i < erConfig.size(); i++) {
+                executeSchemaspy(erConfig.get(i), runDirectory(i));
+            }
+            return;
+        }
+
+        // er ブロックは互いに独立しているため、並列に実行する (H2 のポート・DB・作業ディレクトリは実行ごとに分ける)
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < erConfig.size(); i++) {
+                ERExtension erExtension = erConfig.get(i);
+                File runDirectory = runDirectory(i);
+                tasks.add(pool.submit(() -> executeSchemaspy(erExtension, runDirectory)));
+            }
+            // 1つ失敗しても、他の実行が終わるまで待ってから失敗させる
+            RuntimeException failure = null;
+            for (ForkJoinTask<?> task : tasks) {
+                try {
+                    task.join();
+                } catch (RuntimeException e) {
+                    failure = failure == null ? e : failure;
+                }
+            }
+            if (failure != null) {
+                throw failure instanceof GradleException ? failure : new GradleException(failure.getMessage(), failure);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * schemaspy を常駐する worker プロセスで実行する。
+     * worker への登録はタスクのスレッドでしかできないため、H2 の準備は順番に行い、schemaspy の実行だけを worker で並列にする。
+     * H2 の停止と作業ディレクトリの削除は、全ての schemaspy が終わってから行う。
+     */
+    private void executeInWorker(List<ERExtension> erConfig, int javaVersion) {
+        SchemaspyWorkQueue workQueue = new SchemaspyWorkQueue(this.workerExecutor, this.jvmArgs.getOrElse(List.of()), Optional.ofNullable(this.executable.getOrNull()), javaVersion, schemaspyExecuteDir().toFile());
+        List<Runnable> afterRun = new ArrayList<>();
+        try {
+            for (int i = 0; i < erConfig.size(); i++) {
+                executeSchemaspy(erConfig.get(i), runDirectory(i), workQueue::submit, afterRun);
+            }
+            workQueue.await();
+        } catch (WorkerExecutionException e) {
+            log.error(String.format(logFormat, "schemaspy execute error."), e);
+            throw new GradleException(e.getMessage(), e);
+        } finally {
+            runAfter(afterRun);
+        }
+    }
+
+    /** worker プロセスの java のバージョン。SchemaspyWorkQueue は Gradle 5.6 以上でだけ読み込む */
+    private int workerJavaVersion() {
+        try {
+            return SchemaspyWorkQueue.javaVersion(Optional.ofNullable(this.executable.getOrNull()));
+        } catch (IOException e) {
+            log.error(String.format(logFormat, "java version check error: " + this.executable.getOrNull()), e);
+            throw new GradleException(e.getMessage(), e);
+        }
+    }
+
+    private void resolveDependencies(ERExtension extension) {
+        if (extension.isNativeRenderer()) {
+            return;
+        }
+        this.dependencies.resolveSchemaspy(extension.getSchemaspyVersion());
+        if (ERDependencyResolver.needsDriver(extension)) {
+            this.dependencies.resolveDriver(extension.getDbSetting());
+        }
+    }
+
+    /** 実行ごとの作業ディレクトリ (テンプレート, H2 のデータベースファイル) */
+    private File runDirectory(int index) {
+        return new File(getTemporaryDir(), "run" + index);
+    }
+
+    /** schemaspy の実行 (java -jar に渡す引数, 作業ディレクトリ) */
+    @FunctionalInterface
+    private interface SchemaspyLaunch {
+        void launch(List<String> applicationArgs, File workingDirectory);
+    }
 
-        final RootExtension extension = getProject().getExtensions().getByType(RootExtension.class);
-        extension.getERConfig()
-                 .forEach(this::executeSchemaspy);
+    private void executeSchemaspy(ERExtension extension, File runDirectory) {
+        List<Runnable> afterRun = new ArrayList<>();
+        try {
+            executeSchemaspy(extension, runDirectory, this::executeJar, afterRun);
+        } finally {
+            runAfter(afterRun);
+        }
+    }
+
+    /** 登録と逆の順番で後片付けする (H2 の停止 -> 作業ディレクトリの削除) */
+    private void runAfter(List<Runnable> afterRun) {
+        for (int i = afterRun.size() - 1; i >= 0; i--) {
+            afterRun.get(i).run();
+        }
     }
 
-    private void executeSchemaspy(ERExtension extension) {
+    /**
+     * @param launch schemaspy を実行する。終わるのを待たなくてもよい
+     * @param afterRun schemaspy が終わった後の後片付けを登録する
+     */
+    private void executeSchemaspy(ERExtension extension, File runDirectory, SchemaspyLaunch launch, List<Runnable> afterRun) {
         String schemaName = extension.getSchema().orElse("dbtest");
-        boolean isH2Mode = extension.getDDLFile() != null;
-        if (isH2Mode && !extension.getDDLFile().exists()) {
+        List<File> yamlFiles = extension.getYamlSources();
+        boolean isYamlMode = !yamlFiles.isEmpty();
+        boolean isH2Mode = isYamlMode || extension.getDDLFile() != null;
+        if (isYamlMode) {
+            if (extension.getDDLFile() != null) {
+                log.warn(String.format(logFormat, "both yaml and ddl are set, ddl is ignored: " + extension.getDDLFile().getName()));
+            }
+            Optional<File> notFoundFile = yamlFiles.stream().filter(file -> !file.exists()).findFirst();
+            if (notFoundFile.isPresent()) {
+                log.error(String.format(logFormat, "yaml file not found: " + notFoundFile.get().toPath()));
+                throw new GradleException("yaml file not found.");
+            }
+        } else if (isH2Mode && !extension.getDDLFile().exists()) {
             log.error(String.format(logFormat, "ddl file not found: " + extension.getDDLFile().toPath()));
             throw new GradleException("ddl file not found.");
         }
+        if (extension.isNativeRenderer()) {
+            if (!isYamlMode) {
+                log.error(String.format(logFormat, "renderer 'native' requires yaml."));
+                throw new GradleException("yaml setting not found.");
+            }
+            executeNative(extension, yamlFiles);
+            return;
+        }
         ERDbExtension databaseConnectExtension = extension.getDbSetting();
         if (!isH2Mode && (databaseConnectExtension == null || databaseConnectExtension.isNotEnoughSetting())) {
             log.error(String.format(logFormat, "extension setting is wrong."));
@@ -75,12 +288,9 @@ public class ERTask extends JavaExec {
             throw new GradleException("db setting not found.");
         }
 
-        String schemaspyJarPath = getSchemaspyJarPath(getVersion(extension.getSchemaspyVersion()));
+        String schemaspyJarPath = this.dependencies.resolveSchemaspy(extension.getSchemaspyVersion()).getAbsolutePath();
         List<String> applicationArgs = new ArrayList<>();
-        Runnable jarRun = () -> {
-            setArgs(applicationArgs);
-            super.exec();
-        };
+        Runnable jarRun = () -> launch.launch(applicationArgs, runDirectory);
 
         applicationArgs.add(schemaspyJarPath);
         // https://schemaspy.readthedocs.io/en/latest/configuration/commandline.html
@@ -96,54 +306,139 @@ public class ERTask extends JavaExec {
             log.error(String.format(logFormat, "output directory setup error."), e);
             throw new GradleException(e.getMessage(), e);
         }
-        setupTemplateFile(applicationArgs, schemaName);
+        deleteDirectory(runDirectory.toPath());
+        afterRun.add(() -> deleteDirectory(runDirectory.toPath()));
+        runDirectory.mkdirs();
+        setupTemplateFile(applicationArgs, schemaName, extension.getSchemaspyVersion(), runDirectory.toPath());
 
         if (isH2Mode) {
-            executeForH2ByMemory(schemaName, extension.getDDLFile().toPath(), applicationArgs, jarRun);
+            SchemaLoad schemaLoad = isYamlMode
+                ? h2url -> loadDefinition(h2url, schemaName, loadYaml(yamlFiles), Optional.of(log))
+                : h2url -> loadDDL(h2url, schemaName, extension.getDDLFile().toPath(), Optional.of(log));
+            executeForH2ByMemory(schemaName, schemaLoad, applicationArgs, jarRun, runDirectory.toPath(), afterRun);
         } else {
             executeForConnectDatabase(schemaName, databaseConnectExtension, applicationArgs, jarRun);
         }
     }
 
-    private void setupTemplateFile(List<String> applicationArgs, String schemaName) {
-        Path templateFolderPath = schemaspyExecuteDir.resolve("layout");
+    /** schemaspy・H2 を使わずに、yaml の定義から ER 図 (index.html, er.svg) を書く */
+    private void executeNative(ERExtension extension, List<File> yamlFiles) {
+        File outputDirectory = extension.getOutputDirectory();
+        outputDirectory.mkdirs();
+        try {
+            DatabaseDefinition database = loadYaml(yamlFiles);
+            String title = extension.getSchema().orElse("ER") + database.version.map(version -> " " + version).orElse("");
+            ERDiagram diagram = new ERDiagram(title, database.tables);
+            try (Writer writer = Files.newBufferedWriter(outputDirectory.toPath().resolve("er.svg"), StandardCharsets.UTF_8)) {
+                diagram.writeSvg(writer);
+            }
+            try (Writer writer = Files.newBufferedWriter(outputDirectory.toPath().resolve("index.html"), StandardCharsets.UTF_8)) {
+                diagram.writeHtml(writer);
+            }
+            log.lifecycle(String.format(logFormat, "er diagram written: " + outputDirectory.getCanonicalPath()));
+        } catch (IOException e) {
+            log.error(String.format(logFormat, "er diagram write error."), e);
+            throw new GradleException(e.getMessage(), e);
+        }
+    }
+
+    /** テンプレートを作業ディレクトリに写し、スキーマ名を埋め込む */
+    private void setupTemplateFile(List<String> applicationArgs, String schemaName, Optional<String> schemaspyVersion, Path runDirectory) {
+        Path templateFolderPath = findTemplateFolder(schemaspyVersion);
+        Path runTemplateFolderPath = runDirectory.resolve("layout");
+        try (Stream<Path> paths = Files.walk(templateFolderPath)) {
+            for (Path path : paths.collect(Collectors.toList())) {
+                Path copyPath = runTemplateFolderPath.resolve(templateFolderPath.relativize(path).toString());
+                if (Files.isDirectory(path)) {
+                    Files.createDirectories(copyPath);
+                } else {
+                    Files.copy(path, copyPath, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        } catch (IOException e) {
+            log.error(String.format(logFormat, "copy template file error."), e);
+            throw new GradleException(e.getMessage(), e);
+        }
+        changeTemplateFile(runTemplateFolderPath, schemaName);
         applicationArgs.add("-template");
-        applicationArgs.add("." + File.separator + "layout");
+        // worker プロセスでは作業ディレクトリを変えられないため、絶対パスにする
+        applicationArgs.add(runTemplateFolderPath.toString());
+    }
 
-        File templateFolder = templateFolderPath.toFile();
-        if (templateFolder.exists()) {
-            return;
+    /** layout フォルダを置いていればそれを、なければプラグインに入れたテンプレートを使う */
+    private Path findTemplateFolder(Optional<String> schemaspyVersion) {
+        Path templateFolderPath = schemaspyExecuteDir().resolve("layout");
+        if (Files.isDirectory(templateFolderPath)) {
+            return templateFolderPath;
         }
         try {
-            log.lifecycle(String.format(logFormat, "try download template files."));
-            templateFolder.mkdirs();
-            List<String> layoutFilePathList = findLayoutFile();
-            for (String layoutFilePath : layoutFilePathList) {
-                Path filePath = templateFolderPath.resolve(layoutFilePath.replace("src/main/resources/layout/", ""));
-                filePath.getParent().toFile().mkdirs();
-                String downloadLayoutFile = "https://raw.githubusercontent.com/schemaspy/schemaspy/master/" + layoutFilePath;
-                URL url = new URL(downloadLayoutFile);
-                log.debug(String.format(logFormat, "[Start] template file download from [" + url + "]"));
-                Files.copy(url.openStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-                log.debug(String.format(logFormat, "[Complete] template file download: " + filePath));
+            return SchemaspyLayout.extract(this.layoutCacheDirectory.get().getAsFile().toPath(), schemaspyVersion);
+        } catch (GradleException e) {
+            log.error(String.format(logFormat, "template file setup error."), e);
+            throw e;
+        }
+    }
+
+    private void executeJar(List<String> applicationArgs, File workingDirectory) {
+        List<String> command = new ArrayList<>();
+        command.add(Optional.ofNullable(this.executable.getOrNull()).orElseGet(() -> Path.of(System.getProperty("java.home"), "bin", "java").toString()));
+        command.addAll(this.jvmArgs.getOrElse(List.of()));
+        command.add("-jar");
+        command.addAll(applicationArgs);
+        try {
+            Process process = new ProcessBuilder(command).directory(workingDirectory)
+                                                         .redirectErrorStream(true)
+                                                         .start();
+            try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                output.lines().forEach(log::lifecycle);
+            }
+            int exitValue = process.waitFor();
+            if (exitValue != 0) {
+                log.error(String.format(logFormat, "schemaspy execute error."));
+                throw new GradleException(String.format("Process 'schemaspy' finished with non-zero exit value %d", exitValue));
             }
-            log.lifecycle(String.format(logFormat, "template files download completed: " + templateFolder.getCanonicalFile()));
         } catch (IOException e) {
-            log.error(String.format(logFormat, "download template file error."), e);
+            log.error(String.format(logFormat, "schemaspy execute error."), e);
+            throw new GradleException(e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new GradleException(e.getMessage(), e);
         }
+    }
+
+    private void deleteDirectory(Path directory) {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        } catch (IOException e) {
+            log.debug(String.format(logFormat, "work directory delete error: " + directory), e);
+        }
+    }
+
+    /** H2 (h2url) にテーブルを作る */
+    @FunctionalInterface
+    private interface SchemaLoad {
+        void load(String h2url) throws SQLException, IOException;
+    }
 
-        changeTemplateFile(templateFolderPath, schemaName);
+    /** yaml -> DatabaseDefinition (ddl タスクと同じ変換) */
+    private DatabaseDefinition loadYaml(List<File> yamlFiles) throws IOException {
+        YamlSchemaLoader loader = new YamlSchemaLoader(log);
+        return loader.loadYamlFile(loader.readYamlFiles(yamlFiles));
     }
 
-    private void executeForH2ByMemory(String schemaName, Path ddlFilePath, List<String> applicationArgs, Runnable jarExecutor) {
-        String jarFileName = "h2-1.4.200.jar";
-        org.h2.tools.Server server = null;
-        String driverPath = null;
+    private void executeForH2ByMemory(String schemaName, SchemaLoad schemaLoad, List<String> applicationArgs, Runnable jarExecutor, Path runDirectory, List<Runnable> afterRun) {
         try {
-            org.h2.tools.Server tcpServer = org.h2.tools.Server.createTcpServer("-ifNotExists", "-tcpAllowOthers", "-baseDir", schemaspyExecuteDir.toString()).start();
-            server = tcpServer;
-            String h2url = server.getService().getURL() + "/" + schemaName;
+            // 並列実行・同じマシンの別のビルドとポートが重ならないよう、空いているポートを使う。接続はこのマシンからだけ受け付ける
+            org.h2.tools.Server server = org.h2.tools.Server.createTcpServer("-tcpPort", "0", "-ifNotExists", "-baseDir", runDirectory.toString()).start();
+            afterRun.add(server::stop);
+            // ファイルを書かないよう、インメモリのデータベースにする (Gradle デーモン内で共有されるため、名前は実行ごとに分ける)
+            String h2url = server.getService().getURL() + "/mem:" + schemaName + "_" + UUID.randomUUID().toString().replace("-", "");
+            // インメモリのデータベースは接続が全て閉じると消えるため、schemaspy が終わるまで接続を残す (閉じたら必ず消える)
+            Connection keepAlive = connectH2(h2url, schemaName);
+            afterRun.add(() -> closeQuietly(keepAlive));
             applicationArgs.add("-t");
             applicationArgs.add("h2");
             applicationArgs.add("-s");
@@ -155,26 +450,16 @@ public class ERTask extends JavaExec {
 
             applicationArgs.add("-db");
             applicationArgs.add(h2url);
-            if (getDriverPath(jarFileName).toFile().exists()) {
-                driverPath = schemaspyExecuteDir.resolve(jarFileName).toFile().getCanonicalPath();
-            } else {
-                driverPath = org.h2.Driver.class.getProtectionDomain()
-                                                .getCodeSource()
-                                                .getLocation()
-                                                .toURI()
-                                                .getPath();
-            }
+            String driverPath = org.h2.Driver.class.getProtectionDomain()
+                                            .getCodeSource()
+                                            .getLocation()
+                                            .toURI()
+                                            .getPath();
             applicationArgs.add("-loadjars");
             applicationArgs.add(driverPath);
             applicationArgs.add("-dp");
             applicationArgs.add(driverPath);
-            JdbcDataSource dataSource = new JdbcDataSource();
-            dataSource.setURL("jdbc:h2:" + h2url + ";DATABASE_TO_LOWER=TRUE" + ";INIT\\=CREATE SCHEMA IF NOT EXISTS " + schemaName + "\\;SET SCHEMA " + schemaName + ";");
-            dataSource.setUser("sa");
-            try (Connection connection = dataSource.getConnection();
-                Statement statement = connection.createStatement()) {
-                statement.execute(Files.readString(ddlFilePath));
-            }
+            schemaLoad.load(h2url);
             jarExecutor.run();
         } catch (URISyntaxException e) {
             log.error(String.format(logFormat, "load h2 driver error."), e);
@@ -182,29 +467,44 @@ public class ERTask extends JavaExec {
         } catch (SQLException | IOException e) {
             log.error(String.format(logFormat, "setup database error."), e);
             throw new GradleException(e.getMessage(), e);
-        } catch (ExecException e) {
-            log.warn(String.format(logFormat, String.join(System.lineSeparator(),
-            "If gradle version equal to or greater than 6.6, caused error by Gradle.",
-            "  -> https://github.com/gradle/gradle/issues/14727"
-            )));
-            log.lifecycle(String.format(logFormat, "retry generate er diagram."));
-            log.debug(String.format(logFormat, "Error stacktrace."), e);
+        }
+    }
 
-            try {
-                File h2DriverFile = downloadJarFile(jarFileName, "https://repo1.maven.org/maven2/com/h2database/h2/1.4.200/" + jarFileName);
-                String h2DriverFilePath = h2DriverFile.getCanonicalPath();
-                String alreadySetDriverPath = driverPath;
-                applicationArgs.replaceAll(arg -> arg.equals(alreadySetDriverPath) ? h2DriverFilePath : arg);
-                jarExecutor.run();
-            } catch (IOException ex) {
-                log.error(String.format(logFormat, "H2 driver download failed."));
-                throw new GradleException(ex.getMessage(), ex);
-            }
-        } finally {
-            if (server != null) {
-                server.stop();
-                schemaspyExecuteDir.resolve(schemaName + ".mv.db").toFile().delete();
-            }
+    /** DDL ファイルを H2 (h2url のスキーマ schemaName) に流し込む */
+    static void loadDDL(String h2url, String schemaName, Path ddlFilePath) throws SQLException, IOException {
+        loadDDL(h2url, schemaName, ddlFilePath, Optional.empty());
+    }
+
+    /** @param logger 進捗の出力先 */
+    static void loadDDL(String h2url, String schemaName, Path ddlFilePath, Optional<Logger> logger) throws SQLException, IOException {
+        try (Connection connection = connectH2(h2url, schemaName)) {
+            new SqlScriptLoader(logger, SqlScriptLoader.DEFAULT_BATCH_SIZE).load(connection, ddlFilePath);
+        }
+    }
+
+    /** yaml から読んだ定義のテーブルを、DDL ファイルを経由せずに H2 (h2url のスキーマ schemaName) に作る */
+    static void loadDefinition(String h2url, String schemaName, DatabaseDefinition database, Optional<Logger> logger) throws SQLException, IOException {
+        try (Connection connection = connectH2(h2url, schemaName)) {
+            new SqlScriptLoader(logger, SqlScriptLoader.DEFAULT_BATCH_SIZE).load(connection, "yaml", new DefinitionDDLReader(database, SqlDialect.H2), 0);
+        }
+    }
+
+    /**
+     * MV_STORE=FALSE: 新しく作るデータベースは PageStore にする。
+     * MVStore は DDL のコミットごとに全てのマップを書き出すため、テーブル数が多いと遅い (1000 テーブルで約3倍)
+     */
+    private static Connection connectH2(String h2url, String schemaName) throws SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:" + h2url + ";MV_STORE=FALSE" + ";DATABASE_TO_LOWER=TRUE" + ";INIT\\=CREATE SCHEMA IF NOT EXISTS " + schemaName + "\\;SET SCHEMA " + schemaName + ";");
+        dataSource.setUser("sa");
+        return dataSource.getConnection();
+    }
+
+    private void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.debug(String.format(logFormat, "h2 connection close error."), e);
         }
     }
 
@@ -231,69 +531,6 @@ public class ERTask extends JavaExec {
         jarExecutor.run();
     }
 
-    @SuppressWarnings("unchecked")
-    private String getVersion(Optional<String> version) {
-        return version.orElseGet(() -> {
-            String schemaspyGitInfoUrl = "https://api.github.com/repos/schemaspy/schemaspy/releases/latest";
-            try {
-                URL url = new URL(schemaspyGitInfoUrl);
-                HttpURLConnection http = (HttpURLConnection) url.openConnection();
-                Map<String, List<String>> header = http.getHeaderFields();
-                while (isRedirected(header)) {
-                    URL redirectUrl = new URL(header.get("Location").get(0));
-                    http = (HttpURLConnection) redirectUrl.openConnection();
-                    header = http.getHeaderFields();
-                }
-                try (BufferedInputStream input = new BufferedInputStream(http.getInputStream());
-                        InputStreamReader reader = new InputStreamReader(input);
-                        BufferedReader output = new BufferedReader(reader)) {
-                    String text = output.lines().collect(Collectors.joining());
-                    Map<String, String> jsonData = (Map<String, String>) new JsonSlurper().parseText(text);
-                    String tagName = jsonData.get("tag_name");
-                    return tagName.startsWith("v") ? tagName.split("v")[1] : tagName;
-                }
-            } catch (IOException e) {
-                log.error(String.format(logFormat, "version check error."), e);
-                throw new GradleException(e.getMessage(), e);
-            }
-        });
-
-    }
-
-    private boolean isRedirected(Map<String, List<String>> header) {
-        for (String hv : header.get(null)) {
-            if (hv.contains(" 301 ") || hv.contains(" 302 ")) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private String getSchemaspyJarPath(String version) {
-        log.lifecycle(String.format(logFormat, "use schemaspy version: " + version));
-        File jarFile = schemaspyExecuteDir.resolve("schemaspy-" + version + ".jar").toFile();
-        try {
-            if (!jarFile.exists()) {
-                jarFile.mkdirs();
-                jarFile.createNewFile();
-                log.lifecycle(String.format(logFormat, "schemaspy jar not found."));
-                String downloadJarUrl = "https://github.com/schemaspy/schemaspy/releases/download/v" + version + "/schemaspy-" + version + ".jar";
-                log.lifecycle(String.format(logFormat, "try download schemaspy jar from " + downloadJarUrl));
-                URL url = new URL(downloadJarUrl);
-                Files.copy(url.openStream(), jarFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                log.lifecycle(String.format(logFormat, "schemaspy jar download completed: " + jarFile.getCanonicalPath()));
-            }
-            return jarFile.getCanonicalPath();
-        } catch (FileNotFoundException e) {
-            log.error(String.format(logFormat, "schemaspy version not supported: " + version));
-            log.lifecycle(String.format(logFormat, "check -> https://github.com/schemaspy/schemaspy/releases"));
-            throw new GradleException(e.getMessage(), e);
-        } catch (IOException e) {
-            log.error(String.format(logFormat, "jar file get error."), e);
-            throw new GradleException(e.getMessage(), e);
-        }
-    }
-
     private void changeTemplateFile(Path templateFolderPath, String schemaName) {
         try {
             Files.writeString(templateFolderPath.resolve("container.html"), String.join(System.lineSeparator(),
@@ -877,82 +1114,10 @@ public class ERTask extends JavaExec {
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private List<String> findLayoutFile() {
-        try {
-            URL url = new URL("https://api.github.com/repos/schemaspy/schemaspy/git/trees/master?recursive=1");
-            HttpURLConnection http = (HttpURLConnection) url.openConnection();
-            Map<String, List<String>> header = http.getHeaderFields();
-            while (isRedirected(header)) {
-                URL redirectUrl = new URL(header.get("Location").get(0));
-                http = (HttpURLConnection) redirectUrl.openConnection();
-                header = http.getHeaderFields();
-            }
-            try (BufferedInputStream input = new BufferedInputStream(http.getInputStream());
-                    InputStreamReader reader = new InputStreamReader(input);
-                    BufferedReader output = new BufferedReader(reader)) {
-                String text = output.lines().collect(Collectors.joining());
-                Map<String, Object> jsonData = (Map<String, Object>) new JsonSlurper().parseText(text);
-                List<Map<String, String>> treeData = ((List<Map<String, String>>) jsonData.get("tree"));
-                return treeData.stream()
-                        .filter(tree -> "blob".equals(tree.get("type")))
-                        .map(tree -> tree.get("path"))
-                        .filter(path -> path.startsWith("src/main/resources/layout/"))
-                        .collect(Collectors.toList());
-            }
-        } catch (IOException e) {
-            log.error(e.getMessage(), e);
-            throw new GradleException(e.getMessage(), e); 
-        }
-    }
-
     private String getDriverJarPath(ERDbExtension databaseConnectExtension) {
-        try {
-            return databaseConnectExtension.getDriverFile().orElseGet(() -> {
-                String databaseType = databaseConnectExtension.getDatabaseType();
-                String databaseVersion = databaseConnectExtension.getDatabaseVersion().get();
-                String jarFileName = null;
-                String downloadJarUrl = null;
-                try {
-                    if ("mysql".equals(databaseType)) {
-                        jarFileName = "mysql-connector-java-" + databaseVersion + ".jar";
-                        downloadJarUrl = "https://repo1.maven.org/maven2/mysql/mysql-connector-java/" + databaseVersion + "/" + jarFileName;
-                    } else if ("pgsql".equals(databaseType)) {
-                        jarFileName = "postgresql-" + databaseVersion + ".jar";
-                        downloadJarUrl = "https://repo1.maven.org/maven2/org/postgresql/postgresql/" + databaseVersion + "/" + jarFileName;
-                    } else if ("mariadb".equals(databaseType)) {
-                        jarFileName = "mariadb-java-client-" + databaseVersion + ".jar";
-                        downloadJarUrl = "https://repo1.maven.org/maven2/org/mariadb/jdbc/mariadb-java-client/" + databaseVersion + "/" + jarFileName;
-                    } else {
-                        log.error(String.format(logFormat, "please connecting driver file specify."));
-                        throw new GradleException("driver download not supported.");
-                    }
-                    return downloadJarFile(jarFileName, downloadJarUrl);
-                } catch (IOException e) {
-                    log.error(String.format(logFormat, "jar file get error."), e);
-                    throw new GradleException(e.getMessage(), e);
-                }
-            }).getCanonicalPath();
-        } catch (IOException e) {
-            log.error(String.format(logFormat, "driver jar setup error."), e);
-            throw new GradleException(e.getMessage(), e);
-        }
-    }
-
-    private File downloadJarFile(String jarFileName, String downloadJarUrl) throws MalformedURLException, IOException {
-        Path jarPath = getDriverPath(jarFileName);
-        File jarFile = jarPath.toFile();
-        if (!jarFile.exists()) {
-            log.lifecycle(String.format(logFormat, "database driver jar not found."));
-            log.lifecycle(String.format(logFormat, "try download driver jar from " + downloadJarUrl));
-            Files.copy(new URL(downloadJarUrl).openStream(), jarPath, StandardCopyOption.REPLACE_EXISTING);
-            log.lifecycle(String.format(logFormat, "driver jar download completed: " + jarPath));
-        }
-        return jarFile;
-    }
-
-    private Path getDriverPath(String fileName) {
-        return schemaspyExecuteDir.resolve(fileName);
+        return databaseConnectExtension.getDriverFile()
+                                       .orElseGet(() -> this.dependencies.resolveDriver(databaseConnectExtension))
+                                       .getAbsolutePath();
     }
 
     private String getExtensionRequiredSetting() {
@@ -979,47 +1144,4 @@ public class ERTask extends JavaExec {
         );
     }
 
-
-    @SuppressWarnings("unused")
-    private void executeJarByFile(ERExtension extension, String schemaspyJarPath, List<String> applicationArgs) {
-        String schemaName = extension.getSchema().orElse("dbtest");
-        try {
-            String dbUrl = Path.of(schemaspyJarPath).getParent().resolve("test").toString();
-            applicationArgs.add("-t");
-            applicationArgs.add("h2");
-            applicationArgs.add("-s");
-            applicationArgs.add(schemaName);
-
-            // set connect user
-            applicationArgs.add("-u");
-            applicationArgs.add("sa");
-
-            applicationArgs.add("-db");
-            applicationArgs.add("file:" + dbUrl);
-
-            String driverPath = org.h2.Driver.class.getProtectionDomain()
-                                                   .getCodeSource()
-                                                   .getLocation()
-                                                   .toURI()
-                                                   .getPath();
-            applicationArgs.add("-loadjars");
-            applicationArgs.add(driverPath);
-            applicationArgs.add("-dp");
-            applicationArgs.add(driverPath);
-            JdbcDataSource dataSource = new JdbcDataSource();
-            dataSource.setURL("jdbc:h2:file:" + dbUrl + ";DATABASE_TO_LOWER=TRUE" + ";INIT\\=CREATE SCHEMA IF NOT EXISTS " + schemaName + "\\;SET SCHEMA " + schemaName + ";");
-            dataSource.setUser("sa");
-            try (Connection connection = dataSource.getConnection();
-                Statement statement = connection.createStatement()) {
-                statement.execute(Files.readString(extension.getDDLFile().toPath()));
-            }
-            setMain("-jar");
-            setArgs(applicationArgs);
-            super.exec();
-        } catch (URISyntaxException | SQLException | IOException e) {
-
-        }
-    }
-
-
 }
\ No newline at end of file
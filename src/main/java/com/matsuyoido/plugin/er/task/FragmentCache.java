@@ -0,0 +1,168 @@
+package com.matsuyoido.plugin.er.task;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.matsuyoido.ddl.DatabaseTable;
+
+import org.gradle.api.logging.Logger;
+
+/**
+ * テーブルごとに生成した DDL 断片のキャッシュ。
+ * {@link #render(DatabaseTable)} は複数スレッドから呼べる。
+ * テーブル定義 (FK の参照先を含む) のハッシュが前回と同じテーブルは、前回の断片をそのまま使う。
+ * 出力オプション (lowerAll, existCheck, schema, 改行コード, dialect) が変わった場合は全て作り直す。
+ */
+class FragmentCache {
+
+    /** 保存形式を変えたら上げる */
+    private static final int FORMAT_VERSION = 2;
+
+    private final String logFormat = "[YamlDDL] %s";
+    private final Logger log;
+    private final File indexFile;
+    private final DDLRenderer renderer;
+    private final String header;
+
+    /** テーブル名 -> 前回の断片 */
+    private Map<String, Fragment> previous = new HashMap<>();
+    /** テーブル名 -> 今回の断片 */
+    private final Map<String, Fragment> current = new ConcurrentHashMap<>();
+    private final AtomicInteger renderedCount = new AtomicInteger();
+
+    FragmentCache(Logger logger, File indexFile, DDLRenderer renderer) {
+        this.log = logger;
+        this.indexFile = indexFile;
+        this.renderer = renderer;
+        this.header = FORMAT_VERSION + ":" + DefinitionCache.pluginVersion() + ":" + renderer.options();
+    }
+
+    /** 前回の断片を読み込む。読めない場合は全テーブル作り直す */
+    FragmentCache load() {
+        if (!this.indexFile.isFile()) {
+            return this;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(this.indexFile.toPath())))) {
+            if (!this.header.equals(readText(input))) {
+                return this;
+            }
+            int size = input.readInt();
+            Map<String, Fragment> fragments = new HashMap<>(size * 2);
+            for (int i = 0; i < size; i++) {
+                String tableName = readText(input);
+                byte[] fingerprint = new byte[input.readInt()];
+                input.readFully(fingerprint);
+                fragments.put(tableName, new Fragment(fingerprint, readText(input), readText(input)));
+            }
+            this.previous = fragments;
+        } catch (IOException | RuntimeException e) {
+            log.warn(String.format(logFormat, "ddl fragment cache is broken, ignored: " + this.indexFile.getName()));
+            log.debug(String.format(logFormat, "Error stacktrace."), e);
+        }
+        return this;
+    }
+
+    /** 定義が前回と同じなら前回の断片、違えば生成した断片 */
+    Fragment render(DatabaseTable table) {
+        byte[] fingerprint = fingerprint(table);
+        Fragment fragment = this.previous.get(table.getName());
+        if (fragment == null || !Arrays.equals(fragment.fingerprint, fingerprint)) {
+            fragment = new Fragment(fingerprint, this.renderer.createTable(table), this.renderer.keys(table));
+            this.renderedCount.incrementAndGet();
+        }
+        this.current.put(table.getName(), fragment);
+        return fragment;
+    }
+
+    /** 今回の断片を保存する。保存に失敗しても、タスクは失敗させない */
+    void store() {
+        log.info(String.format(logFormat, "ddl fragments rendered: " + this.renderedCount.get() + " / " + this.current.size() + " tables"));
+        if (this.renderedCount.get() == 0 && this.previous.keySet().equals(this.current.keySet())) {
+            return;
+        }
+        File tempFile = null;
+        try {
+            this.indexFile.getParentFile().mkdirs();
+            tempFile = File.createTempFile(this.indexFile.getName(), ".tmp", this.indexFile.getParentFile());
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile.toPath())))) {
+                writeText(output, this.header);
+                output.writeInt(this.current.size());
+                // 並列に作った場合も同じ内容になるよう、テーブル名順に書く
+                for (Map.Entry<String, Fragment> entry : new TreeMap<>(this.current).entrySet()) {
+                    writeText(output, entry.getKey());
+                    output.writeInt(entry.getValue().fingerprint.length);
+                    output.write(entry.getValue().fingerprint);
+                    writeText(output, entry.getValue().createTable);
+                    writeText(output, entry.getValue().keys);
+                }
+            }
+            Files.move(tempFile.toPath(), this.indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn(String.format(logFormat, "ddl fragment cache save error: " + e.getMessage()));
+            log.debug(String.format(logFormat, "Error stacktrace."), e);
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    private static byte[] fingerprint(DatabaseTable table) {
+        ByteArrayOutputStream definition = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(definition)) {
+            table.writeDefinition(output);
+        } catch (IOException e) {
+            // ByteArrayOutputStream への書き込みでは発生しない
+            throw new IllegalStateException(e);
+        }
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(definition.toByteArray());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** writeUTF は 64KB までのため、長さを int で書く */
+    private static void writeText(DataOutputStream output, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readText(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static class Fragment {
+        private final byte[] fingerprint;
+        /** CREATE TABLE + PK */
+        final String createTable;
+        /** FK + UK + INDEX */
+        final String keys;
+
+        /** @param fingerprint キャッシュしない場合は null */
+        Fragment(byte[] fingerprint, String createTable, String keys) {
+            this.fingerprint = fingerprint;
+            this.createTable = createTable;
+            this.keys = keys;
+        }
+    }
+
+}
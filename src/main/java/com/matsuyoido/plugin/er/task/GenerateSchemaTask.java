@@ -0,0 +1,65 @@
+package com.matsuyoido.plugin.er.task;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.gradle.api.Action;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * 規模の確認用の yaml を生成する。MainPlugin では登録しないため、使う場合は build.gradle で登録する。
+ * <pre>
+ * tasks.register('generateSchema', com.matsuyoido.plugin.er.task.GenerateSchemaTask) {
+ *     outputFile.set(file("$buildDir/schema/large.yml"))
+ *     generator {
+ *         tableCount = 10000
+ *     }
+ * }
+ * </pre>
+ */
+public class GenerateSchemaTask extends DefaultTask {
+
+    private final String logFormat = "[YamlDDL] %s";
+    private final Logger log = getLogger();
+
+    private final SchemaGenerator generator = new SchemaGenerator();
+    private final RegularFileProperty outputFile = getProject().getObjects().fileProperty();
+
+    @Override
+    public String getDescription() {
+        return "Generate a synthetic YAML schema.";
+    }
+
+    @Nested
+    public SchemaGenerator getGenerator() {
+        return this.generator;
+    }
+
+    public void generator(Action<? super SchemaGenerator> action) {
+        action.execute(this.generator);
+    }
+
+    @OutputFile
+    public RegularFileProperty getOutputFile() {
+        return this.outputFile;
+    }
+
+    @TaskAction
+    public void execute() {
+        File file = this.outputFile.get().getAsFile();
+        try {
+            this.generator.write(file);
+            log.lifecycle(String.format(logFormat, "yaml file created: " + file.getCanonicalPath()));
+        } catch (IOException e) {
+            log.error(String.format(logFormat, "yaml file create error: " + file.getName()), e);
+            throw new GradleException(e.getMessage(), e);
+        }
+    }
+
+}
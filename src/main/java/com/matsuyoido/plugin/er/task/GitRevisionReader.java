@@ -0,0 +1,80 @@
+package com.matsuyoido.plugin.er.task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.gradle.api.logging.Logger;
+
+/**
+ * git の指定リビジョン時点の yaml を、作業ディレクトリに書き出す (git show)。
+ * 差分の DDL を作るときの、前のバージョンの yaml として使う。
+ */
+class GitRevisionReader {
+
+    private final String logFormat = "[YamlDDL] %s";
+    private final Logger log;
+
+    GitRevisionReader(Logger logger) {
+        this.log = logger;
+    }
+
+    /**
+     * @param yamlFiles 今の yaml (読み込み順)。同じパスのファイルをリビジョンから読む
+     * @return 書き出したファイル (読み込み順)。そのリビジョンに無いファイルは含まない
+     */
+    List<File> read(String revision, List<File> yamlFiles, File outputDir) throws IOException {
+        List<File> revisionFiles = new ArrayList<>();
+        if (yamlFiles.isEmpty()) {
+            return revisionFiles;
+        }
+        if (git(yamlFiles.get(0).getParentFile(), null, "rev-parse", "--verify", "--quiet", revision + "^{commit}") != 0) {
+            throw new IOException("git revision not found: " + revision);
+        }
+        outputDir.mkdirs();
+        for (int i = 0; i < yamlFiles.size(); i++) {
+            File yamlFile = yamlFiles.get(i);
+            // ./ を付けると、カレントディレクトリ (yaml のディレクトリ) からの相対パスになる
+            String path = revision + ":./" + yamlFile.getName();
+            if (git(yamlFile.getParentFile(), null, "cat-file", "-e", path) != 0) {
+                log.info(String.format(logFormat, "yaml file not found in " + revision + ": " + yamlFile.getName()));
+                continue;
+            }
+            File revisionFile = new File(outputDir, i + "_" + yamlFile.getName());
+            if (git(yamlFile.getParentFile(), revisionFile, "show", path) != 0) {
+                throw new IOException("git show failed: " + path);
+            }
+            revisionFiles.add(revisionFile);
+        }
+        return revisionFiles;
+    }
+
+    /** @param output 標準出力の書き出し先。null なら捨てる */
+    private int git(File directory, File output, String... arguments) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(List.of(arguments));
+        File errorFile = File.createTempFile("git", ".log");
+        try {
+            Process process = new ProcessBuilder(command)
+                .directory(directory)
+                .redirectOutput(output == null ? ProcessBuilder.Redirect.DISCARD : ProcessBuilder.Redirect.to(output))
+                .redirectError(errorFile)
+                .start();
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                log.debug(String.format(logFormat, String.join(" ", command) + ": " + new String(Files.readAllBytes(errorFile.toPath()), StandardCharsets.UTF_8)));
+            }
+            return exitCode;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e.getMessage(), e);
+        } finally {
+            errorFile.delete();
+        }
+    }
+
+}
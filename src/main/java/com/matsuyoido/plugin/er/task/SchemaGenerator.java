@@ -0,0 +1,320 @@
+package com.matsuyoido.plugin.er.task;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.gradle.api.tasks.Input;
+
+/**
+ * 規模の確認用に、このプラグインの yaml 形式でスキーマを生成する。
+ * テーブルごとに seed から乱数を作るため、全テーブルをメモリに持たずに1テーブルずつ書き出せる (数GBのファイルも作れる)。
+ * 同じ設定・seed なら同じ yaml になる。
+ */
+public class SchemaGenerator implements Serializable {
+    private static final long serialVersionUID = -2185406474063154471L;
+
+    private static final String[] COLUMN_TYPES = { "INT", "BIGINT", "VARCHAR(255)", "DECIMAL(10,2)", "DATE", "TIMESTAMP", "BOOLEAN" };
+
+    private String version = "1.0.0";
+    private int tableCount = 100;
+    /** テーブルごとのカラム数 (PK・FK のカラムを除く) は min から max の一様分布 */
+    private int minColumns = 5;
+    private int maxColumns = 20;
+    private int domainCount = 5;
+    /** カラムの型に domain を使う割合 */
+    private double domainRatio = 0.3;
+    private int commonColumnCount = 2;
+    /** pk・uq・idx を複数カラムにする割合 */
+    private double compositeKeyRatio = 0.2;
+    /** テーブルあたりの、前のテーブルへの FK の数 (平均) */
+    private double foreignKeyDensity = 1.0;
+    private double uniqueKeyDensity = 0.5;
+    private double indexDensity = 1.0;
+    /** 1つ前のテーブルを参照する FK の連鎖の長さ。1 以下は連鎖させない */
+    private int chainDepth = 0;
+    /** 連鎖の先頭から末尾への FK を張って循環参照にする連鎖の数 (chainDepth が 2 以上の場合) */
+    private int cycleCount = 0;
+    /** カラムに info (コメント) を付ける割合 */
+    private double commentRatio = 0.0;
+    private long seed = 0;
+
+    /** yaml をファイルに書く */
+    public void write(File outputFile) throws IOException {
+        File parent = outputFile.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        try (Writer out = Files.newBufferedWriter(outputFile.toPath(), StandardCharsets.UTF_8)) {
+            write(out);
+        }
+    }
+
+    public void write(Writer out) throws IOException {
+        out.write("version: " + this.version + "\n");
+        if (this.domainCount > 0) {
+            out.write("domains:\n");
+            for (int i = 0; i < this.domainCount; i++) {
+                out.write("  " + domainName(i) + ": VARCHAR(" + (10 + i * 10) + ")\n");
+            }
+        }
+        if (this.commonColumnCount > 0) {
+            out.write("commonColumns:\n");
+            for (int i = 0; i < this.commonColumnCount; i++) {
+                out.write("  common_" + i + ":\n");
+                out.write("    type: TIMESTAMP\n");
+            }
+        }
+        out.write("tables:\n");
+        for (int i = 0; i < this.tableCount; i++) {
+            writeTable(out, i);
+        }
+    }
+
+    private void writeTable(Writer out, int index) throws IOException {
+        Random random = random(index);
+        List<String> primaryKeys = primaryKeys(random);
+        int columnCount = this.minColumns + random.nextInt(Math.max(this.maxColumns - this.minColumns, 0) + 1);
+        List<Integer> references = references(index, random);
+
+        out.write("  " + tableName(index) + ":\n");
+        out.write("    logicalName: table " + index + "\n");
+        out.write("    columns:\n");
+        for (String primaryKey : primaryKeys) {
+            writeColumn(out, primaryKey, primaryKeyType(primaryKey), "NOT NULL");
+        }
+        for (int i = 0; i < columnCount; i++) {
+            String type = this.domainCount > 0 && random.nextDouble() < this.domainRatio
+                ? domainName(random.nextInt(this.domainCount))
+                : COLUMN_TYPES[random.nextInt(COLUMN_TYPES.length)];
+            String options = random.nextBoolean() ? "NOT NULL" : null;
+            String defaultValue = type.equals("INT") && random.nextBoolean() ? "0" : null;
+            out.write("      col_" + i + ":\n");
+            out.write("        type: " + type + "\n");
+            out.write("        logicalName: column " + i + "\n");
+            if (options != null) {
+                out.write("        options: " + options + "\n");
+            }
+            if (defaultValue != null) {
+                out.write("        defaultValue: " + defaultValue + "\n");
+            }
+            if (random.nextDouble() < this.commentRatio) {
+                out.write("        info: comment " + i + "\n");
+            }
+        }
+        // FK のカラムは、参照先の PK と同じ型
+        for (int i = 0; i < references.size(); i++) {
+            for (String primaryKey : primaryKeys(random(references.get(i)))) {
+                writeColumn(out, "fk" + i + "_" + primaryKey, primaryKeyType(primaryKey), null);
+            }
+        }
+
+        out.write("    pk: " + flowList(primaryKeys) + "\n");
+        if (!references.isEmpty()) {
+            out.write("    fk:\n");
+            for (int i = 0; i < references.size(); i++) {
+                List<String> referencedKeys = primaryKeys(random(references.get(i)));
+                List<String> columns = new ArrayList<>(referencedKeys.size());
+                for (String primaryKey : referencedKeys) {
+                    columns.add("fk" + i + "_" + primaryKey);
+                }
+                out.write("      fk_" + tableName(index) + "_" + i + ":\n");
+                out.write("        relate: " + flowList(columns) + "\n");
+                out.write("        to:\n");
+                out.write("          " + tableName(references.get(i)) + ": " + flowList(referencedKeys) + "\n");
+            }
+        }
+        writeKeys(out, "uq", index, columnCount, count(this.uniqueKeyDensity, random), random);
+        writeKeys(out, "idx", index, columnCount, count(this.indexDensity, random), random);
+    }
+
+    private void writeColumn(Writer out, String name, String type, String options) throws IOException {
+        out.write("      " + name + ":\n");
+        out.write("        type: " + type + "\n");
+        if (options != null) {
+            out.write("        options: " + options + "\n");
+        }
+    }
+
+    /** uq・idx。col_* から選ぶ */
+    private void writeKeys(Writer out, String keyType, int index, int columnCount, int keyCount, Random random) throws IOException {
+        if (keyCount == 0 || columnCount == 0) {
+            return;
+        }
+        out.write("    " + keyType + ":\n");
+        for (int i = 0; i < keyCount; i++) {
+            int first = random.nextInt(columnCount);
+            List<String> columns = new ArrayList<>(2);
+            columns.add("col_" + first);
+            if (columnCount > 1 && random.nextDouble() < this.compositeKeyRatio) {
+                columns.add("col_" + ((first + 1 + random.nextInt(columnCount - 1)) % columnCount));
+            }
+            out.write("      " + keyType + "_" + tableName(index) + "_" + i + ": " + flowList(columns) + "\n");
+        }
+    }
+
+    /** 最初の乱数で決めるため、参照する側からも random(index) で同じ PK が分かる */
+    private List<String> primaryKeys(Random random) {
+        return random.nextDouble() < this.compositeKeyRatio ? List.of("id", "sub_id") : List.of("id");
+    }
+
+    private static String primaryKeyType(String primaryKey) {
+        return primaryKey.equals("id") ? "BIGINT" : "INT";
+    }
+
+    /** 参照先テーブルの番号 */
+    private List<Integer> references(int index, Random random) {
+        List<Integer> references = new ArrayList<>();
+        if (this.chainDepth > 1) {
+            if (index % this.chainDepth != 0) {
+                references.add(index - 1);
+            } else if (index / this.chainDepth < this.cycleCount) {
+                int last = Math.min(index + this.chainDepth - 1, this.tableCount - 1);
+                if (last > index) {
+                    references.add(last);
+                }
+            }
+        }
+        int foreignKeyCount = count(this.foreignKeyDensity, random);
+        for (int i = 0; i < foreignKeyCount && index > 0; i++) {
+            references.add(random.nextInt(index));
+        }
+        return references;
+    }
+
+    /** 平均が density になる個数 */
+    private static int count(double density, Random random) {
+        int count = (int) density;
+        return count + (random.nextDouble() < density - count ? 1 : 0);
+    }
+
+    private Random random(int index) {
+        return new Random(this.seed * 1_000_003L + index);
+    }
+
+    private static String tableName(int index) {
+        return "table_" + index;
+    }
+
+    private static String domainName(int index) {
+        return "domain_" + index;
+    }
+
+    private static String flowList(List<String> values) {
+        return values.size() == 1 ? values.get(0) : "[" + String.join(", ", values) + "]";
+    }
+
+
+    @Input
+    public String getVersion() {
+        return this.version;
+    }
+    public void setVersion(String version) {
+        this.version = version;
+    }
+    @Input
+    public int getTableCount() {
+        return this.tableCount;
+    }
+    public void setTableCount(int tableCount) {
+        this.tableCount = tableCount;
+    }
+    @Input
+    public int getMinColumns() {
+        return this.minColumns;
+    }
+    public void setMinColumns(int minColumns) {
+        this.minColumns = minColumns;
+    }
+    @Input
+    public int getMaxColumns() {
+        return this.maxColumns;
+    }
+    public void setMaxColumns(int maxColumns) {
+        this.maxColumns = maxColumns;
+    }
+    @Input
+    public int getDomainCount() {
+        return this.domainCount;
+    }
+    public void setDomainCount(int domainCount) {
+        this.domainCount = domainCount;
+    }
+    @Input
+    public double getDomainRatio() {
+        return this.domainRatio;
+    }
+    public void setDomainRatio(double domainRatio) {
+        this.domainRatio = domainRatio;
+    }
+    @Input
+    public int getCommonColumnCount() {
+        return this.commonColumnCount;
+    }
+    public void setCommonColumnCount(int commonColumnCount) {
+        this.commonColumnCount = commonColumnCount;
+    }
+    @Input
+    public double getCompositeKeyRatio() {
+        return this.compositeKeyRatio;
+    }
+    public void setCompositeKeyRatio(double compositeKeyRatio) {
+        this.compositeKeyRatio = compositeKeyRatio;
+    }
+    @Input
+    public double getForeignKeyDensity() {
+        return this.foreignKeyDensity;
+    }
+    public void setForeignKeyDensity(double foreignKeyDensity) {
+        this.foreignKeyDensity = foreignKeyDensity;
+    }
+    @Input
+    public double getUniqueKeyDensity() {
+        return this.uniqueKeyDensity;
+    }
+    public void setUniqueKeyDensity(double uniqueKeyDensity) {
+        this.uniqueKeyDensity = uniqueKeyDensity;
+    }
+    @Input
+    public double getIndexDensity() {
+        return this.indexDensity;
+    }
+    public void setIndexDensity(double indexDensity) {
+        this.indexDensity = indexDensity;
+    }
+    @Input
+    public int getChainDepth() {
+        return this.chainDepth;
+    }
+    public void setChainDepth(int chainDepth) {
+        this.chainDepth = chainDepth;
+    }
+    @Input
+    public int getCycleCount() {
+        return this.cycleCount;
+    }
+    public void setCycleCount(int cycleCount) {
+        this.cycleCount = cycleCount;
+    }
+    @Input
+    public double getCommentRatio() {
+        return this.commentRatio;
+    }
+    public void setCommentRatio(double commentRatio) {
+        this.commentRatio = commentRatio;
+    }
+    @Input
+    public long getSeed() {
+        return this.seed;
+    }
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.matsuyoido.plugin.er.task;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.gradle.api.GradleException;
+
+/**
+ * プラグインの jar に入れた schemaspy のテンプレート (schemaspy-layout-<<version>>.zip) を、共有のキャッシュディレクトリに展開する。
+ * zip はプラグインのビルドで schemaspy の jar から作る。展開は1回だけで、ネットワークにはつながない。
+ */
+class SchemaspyLayout {
+
+    private static final String RESOURCE_FORMAT = "schemaspy-layout-%s.zip";
+
+    private SchemaspyLayout() {
+    }
+
+    /**
+     * @param version schemaspy のバージョン。そのバージョンのテンプレートがなければ、デフォルトのバージョンのものを使う
+     * @return 展開したテンプレートのディレクトリ
+     */
+    static Path extract(Path cacheDirectory, Optional<String> version) {
+        String resourceName = version.map(SchemaspyLayout::resourceName)
+                                     .filter(name -> SchemaspyLayout.class.getResource(name) != null)
+                                     .orElse(resourceName(ERDependencyResolver.DEFAULT_SCHEMASPY_VERSION));
+        URL resource = SchemaspyLayout.class.getResource(resourceName);
+        if (resource == null) {
+            throw new GradleException("schemaspy layout not bundled: " + resourceName);
+        }
+        try {
+            // プラグインを更新したら (zip の日時・大きさが変わったら) 別のディレクトリに展開し直す
+            URLConnection connection = resource.openConnection();
+            connection.setUseCaches(false);
+            String key = Long.toHexString(connection.getLastModified()) + "-" + Long.toHexString(connection.getContentLengthLong());
+            Path layoutDirectory = cacheDirectory.resolve(resourceName.replaceAll("\\.zip$", "") + "-" + key);
+            if (Files.isDirectory(layoutDirectory)) {
+                // useCaches=false の jar は、InputStream を閉じると閉じる
+                connection.getInputStream().close();
+                return layoutDirectory;
+            }
+            try (InputStream input = connection.getInputStream()) {
+                unzip(input, layoutDirectory);
+            }
+            return layoutDirectory;
+        } catch (IOException e) {
+            throw new GradleException("schemaspy layout extract error: " + resourceName, e);
+        }
+    }
+
+    static String resourceName(String version) {
+        return String.format(RESOURCE_FORMAT, version);
+    }
+
+    /** 別のビルドと同時に展開しても壊れないよう、一時ディレクトリに展開してから移動する */
+    private static void unzip(InputStream archive, Path layoutDirectory) throws IOException {
+        Files.createDirectories(layoutDirectory.getParent());
+        Path workDirectory = Files.createTempDirectory(layoutDirectory.getParent(), layoutDirectory.getFileName().toString());
+        try (ZipInputStream zip = new ZipInputStream(archive)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                Path entryPath = workDirectory.resolve(entry.getName()).normalize();
+                if (!entryPath.startsWith(workDirectory)) {
+                    continue;
+                }
+                if (entry.isDirectory()) {
+                    Files.createDirectories(entryPath);
+                } else {
+                    Files.createDirectories(entryPath.getParent());
+                    Files.copy(zip, entryPath);
+                }
+            }
+        }
+        try {
+            Files.move(workDirectory, layoutDirectory);
+        } catch (FileAlreadyExistsException e) {
+            deleteDirectory(workDirectory);
+        } catch (IOException e) {
+            // 他のビルドが先に展開し終わった
+            if (!Files.isDirectory(layoutDirectory)) {
+                throw e;
+            }
+            deleteDirectory(workDirectory);
+        }
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+}
@@ -0,0 +1,241 @@
+package com.matsuyoido.plugin.er.task;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Permission;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+
+/**
+ * 常駐する worker プロセスの中で schemaspy を実行する。
+ * schemaspy の jar は Gradle のクラスから切り離した ClassLoader に読み込み、worker プロセスが生きている間は使い回す。
+ * (2回目以降は JVM の起動とクラスロードを省略できる)
+ */
+public abstract class SchemaspyWorkAction implements WorkAction<SchemaspyWorkAction.Parameters> {
+
+    public interface Parameters extends WorkParameters {
+        RegularFileProperty getSchemaspyJar();
+        /** java -jar の jar より後ろの引数 */
+        ListProperty<String> getArguments();
+        /** Spring Boot 形式の jar を展開するディレクトリ */
+        DirectoryProperty getExtractDirectory();
+    }
+
+    /** jar のパス + 更新日時 -> 読み込んだ schemaspy */
+    private static final Map<String, SchemaspyMain> LOADED = new ConcurrentHashMap<>();
+    private static final Pattern CLASSPATH_INDEX_ENTRY = Pattern.compile("\"(.+)\"");
+
+    @Override
+    public void execute() {
+        File jarFile = getParameters().getSchemaspyJar().get().getAsFile();
+        Path extractDirectory = getParameters().getExtractDirectory().get().getAsFile().toPath();
+        SchemaspyMain schemaspy = LOADED.computeIfAbsent(jarFile.getAbsolutePath() + ":" + jarFile.lastModified(),
+            key -> load(jarFile, extractDirectory));
+        schemaspy.run(getParameters().getArguments().get().toArray(new String[0]));
+    }
+
+    /**
+     * java -jar と同じクラスを読み込む。
+     * Spring Boot 形式 (BOOT-INF/lib に jar を含む) の場合は1回だけ展開し、Start-Class を直接呼ぶ。
+     */
+    private static SchemaspyMain load(File jarFile, Path extractDirectory) {
+        try (JarFile jar = new JarFile(jarFile)) {
+            Attributes attributes = jar.getManifest().getMainAttributes();
+            String startClass = attributes.getValue("Start-Class");
+            List<URL> classpath = new ArrayList<>();
+            String mainClass;
+            if (startClass != null && jar.getEntry("BOOT-INF/classes/" + startClass.replace('.', '/') + ".class") != null) {
+                Path exploded = explode(jar, extractDirectory.resolve(jarFile.getName().replaceAll("\\.jar$", "") + "-exploded"));
+                classpath.add(exploded.resolve("BOOT-INF/classes").toUri().toURL());
+                for (Path library : bootLibraries(exploded)) {
+                    classpath.add(library.toUri().toURL());
+                }
+                mainClass = startClass;
+            } else {
+                classpath.add(jarFile.toURI().toURL());
+                mainClass = attributes.getValue("Main-Class");
+            }
+            ClassLoader classLoader = new URLClassLoader(classpath.toArray(new URL[0]), ClassLoader.getPlatformClassLoader());
+            return new SchemaspyMain(classLoader, classLoader.loadClass(mainClass).getMethod("main", String[].class));
+        } catch (IOException | ReflectiveOperationException e) {
+            throw new GradleException("schemaspy load error: " + jarFile, e);
+        }
+    }
+
+    /** 別の worker プロセスと同時に展開しても壊れないよう、一時ディレクトリに展開してから移動する */
+    private static Path explode(JarFile jar, Path explodedDirectory) throws IOException {
+        if (Files.isDirectory(explodedDirectory)) {
+            return explodedDirectory;
+        }
+        Files.createDirectories(explodedDirectory.getParent());
+        Path workDirectory = Files.createTempDirectory(explodedDirectory.getParent(), explodedDirectory.getFileName().toString());
+        Enumeration<JarEntry> entries = jar.entries();
+        while (entries.hasMoreElements()) {
+            JarEntry entry = entries.nextElement();
+            if (!entry.getName().startsWith("BOOT-INF/") || entry.isDirectory()) {
+                continue;
+            }
+            Path entryPath = workDirectory.resolve(entry.getName()).normalize();
+            if (!entryPath.startsWith(workDirectory)) {
+                continue;
+            }
+            Files.createDirectories(entryPath.getParent());
+            try (InputStream input = jar.getInputStream(entry)) {
+                Files.copy(input, entryPath);
+            }
+        }
+        try {
+            Files.move(workDirectory, explodedDirectory);
+        } catch (FileAlreadyExistsException e) {
+            deleteDirectory(workDirectory);
+        } catch (IOException e) {
+            // 他のプロセスが先に展開し終わった
+            if (!Files.isDirectory(explodedDirectory)) {
+                throw e;
+            }
+            deleteDirectory(workDirectory);
+        }
+        return explodedDirectory;
+    }
+
+    /** classpath.idx があればその順番、なければ名前順 */
+    private static List<Path> bootLibraries(Path explodedDirectory) throws IOException {
+        Path classpathIndex = explodedDirectory.resolve("BOOT-INF/classpath.idx");
+        if (Files.exists(classpathIndex)) {
+            List<Path> libraries = new ArrayList<>();
+            for (String line : Files.readAllLines(classpathIndex, StandardCharsets.UTF_8)) {
+                Matcher matcher = CLASSPATH_INDEX_ENTRY.matcher(line);
+                if (matcher.find()) {
+                    String entryName = matcher.group(1);
+                    libraries.add(explodedDirectory.resolve(entryName.startsWith("BOOT-INF/") ? entryName : "BOOT-INF/lib/" + entryName));
+                }
+            }
+            return libraries;
+        }
+        try (Stream<Path> paths = Files.list(explodedDirectory.resolve("BOOT-INF/lib"))) {
+            return paths.filter(path -> path.toString().endsWith(".jar")).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private static class SchemaspyMain {
+        private final ClassLoader classLoader;
+        private final Method main;
+
+        SchemaspyMain(ClassLoader classLoader, Method main) {
+            this.classLoader = classLoader;
+            this.main = main;
+        }
+
+        /** worker プロセスは1度に1つしか実行しないため、実行中の System.exit は schemaspy のもの */
+        void run(String[] args) {
+            Thread thread = Thread.currentThread();
+            ClassLoader contextClassLoader = thread.getContextClassLoader();
+            thread.setContextClassLoader(this.classLoader);
+            try {
+                ExitTrap.enable();
+                this.main.invoke(null, (Object) args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                for (Throwable t = cause; t != null; t = t.getCause()) {
+                    if (t instanceof ExitException) {
+                        int status = ((ExitException) t).status;
+                        if (status != 0) {
+                            throw new GradleException(String.format("schemaspy finished with non-zero exit value %d", status));
+                        }
+                        return;
+                    }
+                }
+                throw new GradleException(cause.getMessage(), cause);
+            } catch (IllegalAccessException e) {
+                throw new GradleException(e.getMessage(), e);
+            } finally {
+                ExitTrap.disable();
+                thread.setContextClassLoader(contextClassLoader);
+            }
+        }
+    }
+
+    /** schemaspy が終わりに呼ぶ System.exit で、worker プロセスを止めないようにする */
+    private static class ExitTrap extends SecurityManager {
+        private static final ExitTrap INSTANCE = new ExitTrap();
+        private volatile boolean trapping;
+
+        static synchronized void enable() {
+            if (System.getSecurityManager() == null) {
+                try {
+                    System.setSecurityManager(INSTANCE);
+                } catch (UnsupportedOperationException e) {
+                    // Java 24 以降、または起動時に許可していない (ERTask で java -jar にするため、通常は来ない)
+                    throw new GradleException("erWorker requires a SecurityManager to stop System.exit of schemaspy."
+                        + " Set erWorker = false, or run the worker with java " + (SchemaspyWorkQueue.SECURITY_MANAGER_REMOVED - 1) + " or earlier.", e);
+                }
+            }
+            INSTANCE.trapping = true;
+        }
+
+        static void disable() {
+            INSTANCE.trapping = false;
+        }
+
+        @Override
+        public void checkExit(int status) {
+            if (this.trapping) {
+                throw new ExitException(status);
+            }
+        }
+
+        @Override
+        public void checkPermission(Permission permission) {
+            // System.exit 以外は制限しない
+        }
+
+        @Override
+        public void checkPermission(Permission permission, Object context) {
+            // System.exit 以外は制限しない
+        }
+    }
+
+    private static class ExitException extends SecurityException {
+        private static final long serialVersionUID = 1L;
+        private final int status;
+
+        ExitException(int status) {
+            super("System.exit(" + status + ")");
+            this.status = status;
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.matsuyoido.plugin.er.task;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
+
+/**
+ * schemaspy の実行を、常駐する worker プロセス (SchemaspyWorkAction) に投げる。
+ * Gradle 5.6 以上の API を使うため、ERTask から切り離している (5.6 未満ではこのクラスを読み込まない)。
+ */
+class SchemaspyWorkQueue {
+
+    /** System.exit を止める SecurityManager を、Java 18 以降は起動時に許可する必要がある */
+    private static final int SECURITY_MANAGER_OPT_IN = 18;
+    /** SecurityManager を使えない (System.setSecurityManager が UnsupportedOperationException) */
+    static final int SECURITY_MANAGER_REMOVED = 24;
+    private static final Pattern RELEASE_VERSION = Pattern.compile("^JAVA_VERSION=\"([^\"]+)\"");
+    private static final Pattern SPECIFICATION_VERSION = Pattern.compile("java\\.specification\\.version = (\\S+)");
+
+    private final WorkQueue workQueue;
+    private final File extractDirectory;
+
+    /**
+     * @param executable worker プロセスの java。empty なら Gradle と同じ java
+     * @param javaVersion worker プロセスの java のバージョン ({@link #javaVersion(Optional)})
+     * @param extractDirectory Spring Boot 形式の jar を展開するディレクトリ
+     */
+    SchemaspyWorkQueue(WorkerExecutor workerExecutor, List<String> jvmArgs, Optional<String> executable, int javaVersion, File extractDirectory) {
+        this.workQueue = workerExecutor.processIsolation(spec -> {
+            spec.getForkOptions().jvmArgs(jvmArgs);
+            // schemaspy の System.exit を止めるため SecurityManager を使う
+            if (javaVersion >= SECURITY_MANAGER_OPT_IN) {
+                spec.getForkOptions().systemProperty("java.security.manager", "allow");
+            }
+            executable.ifPresent(spec.getForkOptions()::setExecutable);
+        });
+        this.extractDirectory = extractDirectory;
+    }
+
+    /**
+     * worker プロセスの java のバージョン (8, 11, 17...)。
+     * JAVA_HOME の release ファイルから読み、なければ java を起動して調べる。
+     * @param executable empty なら Gradle と同じ java
+     */
+    static int javaVersion(Optional<String> executable) throws IOException {
+        if (executable.isEmpty()) {
+            return Runtime.version().feature();
+        }
+        Path javaHome = Path.of(executable.get()).toAbsolutePath().getParent().getParent();
+        Path releaseFile = javaHome == null ? null : javaHome.resolve("release");
+        if (releaseFile != null && Files.isRegularFile(releaseFile)) {
+            for (String line : Files.readAllLines(releaseFile, StandardCharsets.UTF_8)) {
+                Matcher matcher = RELEASE_VERSION.matcher(line);
+                if (matcher.find()) {
+                    return featureVersion(matcher.group(1));
+                }
+            }
+        }
+        Process process = new ProcessBuilder(executable.get(), "-XshowSettings:properties", "-version").redirectErrorStream(true).start();
+        try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            Optional<String> version = output.lines()
+                                             .map(SPECIFICATION_VERSION::matcher)
+                                             .filter(Matcher::find)
+                                             .map(matcher -> matcher.group(1))
+                                             .findFirst();
+            return featureVersion(version.orElseThrow(() -> new IOException("java version not found: " + executable.get())));
+        } finally {
+            process.destroy();
+        }
+    }
+
+    /** 1.8.0_292 -> 8, 17.0.1 -> 17 */
+    static int featureVersion(String version) {
+        String[] numbers = version.split("[._+-]");
+        return Integer.parseInt(numbers[0].equals("1") && numbers.length > 1 ? numbers[1] : numbers[0]);
+    }
+
+    /**
+     * 終わるのは待たない。
+     * @param applicationArgs java -jar に渡す引数 (先頭は schemaspy の jar)
+     * @param workingDirectory worker プロセスでは使わない (引数は絶対パスにする)
+     */
+    void submit(List<String> applicationArgs, File workingDirectory) {
+        this.workQueue.submit(SchemaspyWorkAction.class, parameters -> {
+            parameters.getSchemaspyJar().set(new File(applicationArgs.get(0)));
+            parameters.getArguments().set(applicationArgs.subList(1, applicationArgs.size()));
+            parameters.getExtractDirectory().set(this.extractDirectory);
+        });
+    }
+
+    /** 投げた全ての実行が終わるまで待つ */
+    void await() {
+        this.workQueue.await();
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.matsuyoido.plugin.er.task;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import com.matsuyoido.plugin.er.task.SqlStatementReader.SqlStatement;
+
+import org.gradle.api.logging.Logger;
+
+/**
+ * DDL ファイルを1文ずつ読み、JDBC のバッチでデータベースに流し込む。
+ * メモリに載るのはバッチ1回分の文だけ。失敗した場合は、その文の行番号をエラーにする。
+ */
+class SqlScriptLoader {
+
+    /** 1回の executeBatch で送る文の数 */
+    static final int DEFAULT_BATCH_SIZE = 500;
+    /** 進捗を出す間隔 */
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+    /** エラーに含める文の長さ */
+    private static final int ERROR_SQL_LENGTH = 200;
+
+    private final String logFormat = "[ER] %s";
+    private final Optional<Logger> log;
+    private final int batchSize;
+
+    /**
+     * @param logger 進捗の出力先。empty なら出さない
+     */
+    SqlScriptLoader(Optional<Logger> logger, int batchSize) {
+        this.log = logger;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /** @return 実行した文の数 */
+    int load(Connection connection, Path scriptFile) throws SQLException, IOException {
+        return load(connection, scriptFile.getFileName().toString(), Files.newBufferedReader(scriptFile, StandardCharsets.UTF_8), Files.size(scriptFile));
+    }
+
+    /**
+     * @param sourceName エラーに出す、スクリプトの名前
+     * @param size 進捗表示用の大きさ (文字数の目安)。分からない場合は 0
+     * @return 実行した文の数
+     */
+    int load(Connection connection, String sourceName, Reader script, long size) throws SQLException, IOException {
+        long start = System.nanoTime();
+        long lastProgress = start;
+        int statementCount = 0;
+        List<SqlStatement> batch = new ArrayList<>(this.batchSize);
+        try (SqlStatementReader reader = new SqlStatementReader(script);
+            Statement statement = connection.createStatement()) {
+            Optional<SqlStatement> sql;
+            while ((sql = reader.next()).isPresent()) {
+                statement.addBatch(sql.get().sql);
+                batch.add(sql.get());
+                if (batch.size() == this.batchSize) {
+                    statementCount += executeBatch(statement, batch, sourceName);
+                    long now = System.nanoTime();
+                    if (now - lastProgress >= PROGRESS_INTERVAL_NANOS) {
+                        lastProgress = now;
+                        String progress = size > 0
+                            ? "about " + Math.min(100, reader.getReadCount() * 100 / size) + "%"
+                            : statementCount + " statements";
+                        log.ifPresent(logger -> logger.lifecycle(String.format(logFormat, "ddl loading: " + progress)));
+                    }
+                }
+            }
+            statementCount += executeBatch(statement, batch, sourceName);
+        }
+        int loadedCount = statementCount;
+        log.ifPresent(logger -> logger.info(String.format(logFormat, "ddl loaded: " + loadedCount + " statements, "
+            + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms")));
+        return statementCount;
+    }
+
+    private int executeBatch(Statement statement, List<SqlStatement> batch, String sourceName) throws SQLException {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try {
+            statement.executeBatch();
+        } catch (BatchUpdateException e) {
+            // 失敗した文 (最初の1つ) の場所をエラーにする
+            int[] updateCounts = e.getUpdateCounts();
+            int failedIndex = 0;
+            while (updateCounts != null && failedIndex < updateCounts.length && updateCounts[failedIndex] != Statement.EXECUTE_FAILED) {
+                failedIndex++;
+            }
+            SqlStatement failed = batch.get(Math.min(failedIndex, batch.size() - 1));
+            SQLException cause = Optional.ofNullable(e.getNextException()).orElse(e);
+            throw new SQLException(sourceName + " line " + failed.line + ": " + abbreviate(failed.sql)
+                + System.lineSeparator() + cause.getMessage(), cause.getSQLState(), cause.getErrorCode(), cause);
+        } finally {
+            statement.clearBatch();
+        }
+        int executedCount = batch.size();
+        batch.clear();
+        return executedCount;
+    }
+
+    private static String abbreviate(String sql) {
+        String oneLine = sql.replaceAll("\\s+", " ");
+        return oneLine.length() <= ERROR_SQL_LENGTH ? oneLine : oneLine.substring(0, ERROR_SQL_LENGTH) + "...";
+    }
+
+}
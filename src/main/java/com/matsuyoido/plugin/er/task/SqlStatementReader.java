@@ -0,0 +1,162 @@
+package com.matsuyoido.plugin.er.task;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Optional;
+
+/**
+ * SQL スクリプトを1文ずつ読む (ファイル全体をメモリに載せない)。
+ * 文字列 ('...')・引用符付きの識別子 ("...", `...`)・$$...$$ の中の ; では区切らない。
+ * 行コメント (-- ...)・ブロックコメントは読み飛ばす。
+ */
+class SqlStatementReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    /** 読み込み中の行 (1始まり) */
+    private int line = 1;
+    /** 読み込んだ文字数 */
+    private long readCount;
+
+    SqlStatementReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /** @return 次の文 (末尾の ; は含まない)。空の文 (コメントだけなど) は飛ばす */
+    Optional<SqlStatement> next() throws IOException {
+        StringBuilder sql = new StringBuilder();
+        int startLine = 0;
+        int c;
+        while ((c = read()) != -1) {
+            if (c == ';') {
+                if (startLine > 0) {
+                    return Optional.of(new SqlStatement(sql.toString().trim(), startLine));
+                }
+                continue;
+            }
+            if (c == '-' && peek() == '-') {
+                skipLineComment();
+                sql.append('\n');
+                continue;
+            }
+            if (c == '/' && peek() == '*') {
+                read();
+                skipBlockComment();
+                sql.append(' ');
+                continue;
+            }
+            if (startLine == 0) {
+                if (Character.isWhitespace(c)) {
+                    continue;
+                }
+                startLine = this.line;
+            }
+            sql.append((char) c);
+            if (c == '\'' || c == '"' || c == '`') {
+                readQuoted(sql, (char) c);
+            } else if (c == '$' && peek() == '$') {
+                sql.append((char) read());
+                readDollarQuoted(sql);
+            }
+        }
+        return startLine > 0 ? Optional.of(new SqlStatement(sql.toString().trim(), startLine)) : Optional.empty();
+    }
+
+    /** 読み込んだ文字数 (進捗表示用) */
+    long getReadCount() {
+        return this.readCount;
+    }
+
+    /** 閉じの引用符まで。引用符を2つ重ねたものはエスケープ */
+    private void readQuoted(StringBuilder sql, char quote) throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            sql.append((char) c);
+            if (c == quote) {
+                if (peek() != quote) {
+                    return;
+                }
+                sql.append((char) read());
+            }
+        }
+    }
+
+    private void readDollarQuoted(StringBuilder sql) throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            sql.append((char) c);
+            if (c == '$' && peek() == '$') {
+                sql.append((char) read());
+                return;
+            }
+        }
+    }
+
+    private void skipLineComment() throws IOException {
+        int c;
+        while ((c = read()) != -1 && c != '\n') {
+            // 改行まで読み飛ばす
+        }
+    }
+
+    private void skipBlockComment() throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            if (c == '*' && peek() == '/') {
+                read();
+                return;
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (this.position == this.limit && !fill()) {
+            return -1;
+        }
+        char c = this.buffer[this.position++];
+        this.readCount++;
+        if (c == '\n') {
+            this.line++;
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (this.position == this.limit && !fill()) {
+            return -1;
+        }
+        return this.buffer[this.position];
+    }
+
+    private boolean fill() throws IOException {
+        int count = this.reader.read(this.buffer, 0, this.buffer.length);
+        if (count <= 0) {
+            return false;
+        }
+        this.position = 0;
+        this.limit = count;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.reader.close();
+    }
+
+    static class SqlStatement {
+        final String sql;
+        /** 文の開始行 (1始まり) */
+        final int line;
+
+        SqlStatement(String sql, int line) {
+            this.sql = sql;
+            this.line = line;
+        }
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.matsuyoido.plugin.er.task;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import com.matsuyoido.LineEnd;
+import com.matsuyoido.ddl.DatabaseColumn;
+import com.matsuyoido.ddl.DatabaseTable;
+
+import org.gradle.api.logging.Logger;
+
+/**
+ * yaml を1テーブルずつ読み、読み終わったテーブルから DDL を書き出す。
+ * メモリに残すのは FK 解決と truncate 順序に必要な、テーブル名・カラム名・FK 定義のみ。
+ * CREATE TABLE と UK/INDEX は作業ディレクトリの一時ファイルに溜め、最後にテーブルの順番で出力ファイルへ連結する。
+ */
+class StreamingDDLGenerator {
+
+    private final String logFormat = "[YamlDDL] %s";
+    private final Logger log;
+    private final YamlSchemaLoader loader;
+    private final DDLRenderer renderer;
+    private final boolean truncate;
+    private final File workDir;
+
+    StreamingDDLGenerator(Logger logger, DDLRenderer renderer, boolean truncate, File workDir) {
+        this.log = logger;
+        this.loader = new YamlSchemaLoader(logger);
+        this.renderer = renderer;
+        this.truncate = truncate;
+        this.workDir = workDir;
+    }
+
+    /**
+     * @param outputFileResolver version -> 出力ファイル
+     * @return false: yaml が空
+     */
+    boolean generate(List<File> yamlFiles, Function<Optional<String>, File> outputFileResolver) throws IOException {
+        YamlStreamReader reader = new YamlStreamReader();
+        List<Map<String, Object>> headers = new ArrayList<>();
+        for (File yamlFile : yamlFiles) {
+            headers.add(reader.readHeader(yamlFile));
+        }
+        Map<String, Object> header = this.loader.mergeYamlMaps(yamlFiles, headers);
+        if (header.isEmpty()) {
+            return false;
+        }
+        Optional<String> version = this.loader.loadVersion(header);
+        Map<String, String> domains = this.loader.loadDomains(header);
+        List<DatabaseColumn> commonColumns = this.loader.yamlConvertColumns(Optional.ofNullable(header.get("commonColumns")), domains);
+
+        this.workDir.mkdirs();
+        Path tableSpool = Files.createTempFile(this.workDir.toPath(), "table", ".sql");
+        Path constraintSpool = Files.createTempFile(this.workDir.toPath(), "constraint", ".sql");
+        try {
+            LinkedHashMap<String, DatabaseTable> outlines = new LinkedHashMap<>();
+            Map<String, long[]> tableRanges = new HashMap<>();
+            Map<String, long[]> constraintRanges = new HashMap<>();
+            List<ForeignKeyInfo> foreignKeyInfos = new ArrayList<>();
+            try (OutputStream tableWriter = new BufferedOutputStream(Files.newOutputStream(tableSpool));
+                    OutputStream constraintWriter = new BufferedOutputStream(Files.newOutputStream(constraintSpool))) {
+                long[] tablePosition = { 0 };
+                long[] constraintPosition = { 0 };
+                for (File yamlFile : yamlFiles) {
+                    String fileName = yamlFile.getName();
+                    reader.readTables(yamlFile, (tableName, definition) -> {
+                        // 通常のモード (mergeYamlMaps) と同じく、後のファイルの定義で上書きする。出力の順番は最初の定義の位置
+                        if (outlines.containsKey(tableName)) {
+                            log.warn(String.format(logFormat, "duplicated definition, overwritten by " + fileName + ": tables." + tableName));
+                            foreignKeyInfos.removeIf(info -> tableName.equals(info.parentTableName));
+                        }
+                        DatabaseTable table = this.loader.yamlConvertTable(tableName, definition, domains, foreignKeyInfos);
+                        table.addColumns(commonColumns);
+                        byte[] createTable = this.renderer.createTable(table).getBytes(StandardCharsets.UTF_8);
+                        byte[] constraint = this.renderer.constraints(table).getBytes(StandardCharsets.UTF_8);
+                        try {
+                            tableWriter.write(createTable);
+                            constraintWriter.write(constraint);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        tableRanges.put(tableName, new long[] { tablePosition[0], createTable.length });
+                        tablePosition[0] += createTable.length;
+                        constraintRanges.put(tableName, new long[] { constraintPosition[0], constraint.length });
+                        constraintPosition[0] += constraint.length;
+                        outlines.put(tableName, table.outline());
+                    });
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            foreignKeyInfos.forEach(info -> this.loader.addForeignKey(outlines, info));
+
+            File outputFile = outputFileResolver.apply(version);
+            // renderer が改行コードを付けているため、sink では変換しない
+            try (DDLSink output = new DDLSink(outputFile, LineEnd.LINUX);
+                    FileChannel tables = FileChannel.open(tableSpool, StandardOpenOption.READ);
+                    FileChannel constraints = FileChannel.open(constraintSpool, StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+                if (this.truncate) {
+                    this.renderer.truncate(DDLGenerator.truncateOrder(log, outlines.values()), output);
+                }
+                for (DatabaseTable outline : outlines.values()) {
+                    long[] range = tableRanges.get(outline.getName());
+                    transfer(tables, range[0], range[1], output, buffer);
+                }
+                for (DatabaseTable outline : outlines.values()) {
+                    this.renderer.foreignKeys(outline, output);
+                    long[] range = constraintRanges.get(outline.getName());
+                    transfer(constraints, range[0], range[1], output, buffer);
+                }
+                DDLGenerator.logCommitted(log, outputFile, output.commit());
+            }
+            return true;
+        } finally {
+            Files.deleteIfExists(tableSpool);
+            Files.deleteIfExists(constraintSpool);
+        }
+    }
+
+    private void transfer(FileChannel source, long position, long count, DDLSink target, ByteBuffer buffer) throws IOException {
+        long transferred = 0;
+        while (transferred < count) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), count - transferred));
+            int length = source.read(buffer, position + transferred);
+            if (length < 0) {
+                throw new IOException("spool file is shorter than expected.");
+            }
+            buffer.flip();
+            target.write(buffer);
+            transferred += length;
+        }
+    }
+
+}
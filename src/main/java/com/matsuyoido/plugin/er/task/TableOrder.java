@@ -0,0 +1,101 @@
+package com.matsuyoido.plugin.er.task;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import com.matsuyoido.ddl.DatabaseTable;
+
+/**
+ * FK の参照関係から、truncate/drop するテーブルの順番を決める (トポロジカルソート)。
+ * 参照されるテーブルが先、参照するテーブルが後。同じ深さのテーブルは定義順。
+ */
+class TableOrder {
+
+    /** 依存の深さごとのテーブル名。同じ深さのテーブル同士は依存していない */
+    final List<List<String>> levels;
+    /** 循環参照しているテーブル (と、それを参照しているテーブル)。定義順 */
+    final List<String> cyclicTables;
+    /** 循環参照しているテーブル -> その FK 名。先に消せば、残りは参照の順番で消せる */
+    final Map<String, List<String>> cyclicForeignKeys;
+
+    private TableOrder(List<List<String>> levels, List<String> cyclicTables, Map<String, List<String>> cyclicForeignKeys) {
+        this.levels = Collections.unmodifiableList(levels);
+        this.cyclicTables = Collections.unmodifiableList(cyclicTables);
+        this.cyclicForeignKeys = Collections.unmodifiableMap(cyclicForeignKeys);
+    }
+
+    static TableOrder of(Collection<DatabaseTable> tables) {
+        Map<String, Integer> definitionIndex = new HashMap<>(tables.size() * 2);
+        Map<String, DatabaseTable> tableByName = new HashMap<>(tables.size() * 2);
+        for (DatabaseTable table : tables) {
+            definitionIndex.putIfAbsent(table.getName(), definitionIndex.size());
+            tableByName.putIfAbsent(table.getName(), table);
+        }
+        // 参照されるテーブル -> 参照しているテーブル
+        Map<String, List<String>> referencedBy = new HashMap<>(tables.size() * 2);
+        Map<String, Integer> referenceCount = new LinkedHashMap<>(tables.size() * 2);
+        for (DatabaseTable table : tables) {
+            int count = 0;
+            for (String relationTable : table.getRelationTables()) {
+                // 自己参照と、定義されていないテーブルへの参照は順番に影響しない
+                if (!relationTable.equals(table.getName()) && definitionIndex.containsKey(relationTable)) {
+                    referencedBy.computeIfAbsent(relationTable, key -> new ArrayList<>()).add(table.getName());
+                    count++;
+                }
+            }
+            referenceCount.putIfAbsent(table.getName(), count);
+        }
+
+        List<List<String>> levels = new ArrayList<>();
+        List<String> level = referenceCount.entrySet().stream()
+                                           .filter(entry -> entry.getValue() == 0)
+                                           .map(Map.Entry::getKey)
+                                           .collect(Collectors.toList());
+        int orderedCount = 0;
+        while (!level.isEmpty()) {
+            levels.add(level);
+            orderedCount += level.size();
+            List<String> nextLevel = new ArrayList<>();
+            for (String tableName : level) {
+                for (String referencingTable : referencedBy.getOrDefault(tableName, List.of())) {
+                    if (referenceCount.merge(referencingTable, -1, Integer::sum) == 0) {
+                        nextLevel.add(referencingTable);
+                    }
+                }
+            }
+            nextLevel.sort((a, b) -> Integer.compare(definitionIndex.get(a), definitionIndex.get(b)));
+            level = nextLevel;
+        }
+
+        List<String> cyclicTables = orderedCount == referenceCount.size()
+            ? List.of()
+            : referenceCount.entrySet().stream()
+                            .filter(entry -> entry.getValue() > 0)
+                            .map(Map.Entry::getKey)
+                            .collect(Collectors.toList());
+        Map<String, List<String>> cyclicForeignKeys = new LinkedHashMap<>();
+        for (String tableName : cyclicTables) {
+            cyclicForeignKeys.put(tableName, List.copyOf(tableByName.get(tableName).getForeignKeyNames()));
+        }
+        return new TableOrder(levels, cyclicTables, cyclicForeignKeys);
+    }
+
+    boolean hasCycle() {
+        return !this.cyclicTables.isEmpty();
+    }
+
+    /** 循環参照しているテーブルは最後に並べる (参照されるテーブルが先) */
+    List<String> tableNames() {
+        List<String> tableNames = new ArrayList<>();
+        this.levels.forEach(tableNames::addAll);
+        tableNames.addAll(this.cyclicTables);
+        return tableNames;
+    }
+
+}
@@ -1,363 +1,219 @@
 package com.matsuyoido.plugin.er.task;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.nio.charset.StandardCharsets;
-import java.util.AbstractMap;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.nio.file.Path;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
+import javax.inject.Inject;
+
 import com.matsuyoido.LineEnd;
-import com.matsuyoido.ddl.DatabaseColumn;
-import com.matsuyoido.ddl.DatabaseTable;
+import com.matsuyoido.ddl.SqlDialect;
 import com.matsuyoido.plugin.er.DDLExtension;
-import com.matsuyoido.plugin.er.RootExtension;
 
 import org.gradle.api.DefaultTask;
-import org.gradle.api.GradleException;
-import org.gradle.api.Project;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileCollection;
 import org.gradle.api.logging.Logger;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFiles;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
-import org.yaml.snakeyaml.Yaml;
+import org.gradle.util.GradleVersion;
+import org.gradle.workers.WorkerExecutor;
 
+@CacheableTask
 public class YamlDDLTask extends DefaultTask {
 
+    /** WorkAction が使える Gradle のバージョン */
+    private static final GradleVersion WORK_ACTION_SUPPORTED = GradleVersion.version("5.6");
+
     private final String logFormat = "[YamlDDL] %s";
-    private final Logger log = getProject().getLogger();
-    private final LineEnd lineEnd = getProject().getExtensions().getByType(RootExtension.class).getLineEnd();
+    private final Logger log = getLogger();
+
+    // 設定は MainPlugin で RootExtension から繋ぐ。実行時には Project に触らない (configuration cache のため)
+    private final ListProperty<DDLExtension> ddlConfig = getProject().getObjects().listProperty(DDLExtension.class);
+    private final Property<LineEnd> lineEnd = getProject().getObjects().property(LineEnd.class);
+    /** MB */
+    private final Property<Integer> cacheSize = getProject().getObjects().property(Integer.class);
+    /** 出力結果には影響しない */
+    private final Property<Integer> ddlParallelism = getProject().getObjects().property(Integer.class);
+    private final DirectoryProperty cacheDirectory = getProject().getObjects().directoryProperty();
+    private final DirectoryProperty projectDirectory = getProject().getObjects().directoryProperty();
+    private final ConfigurableFileCollection yamlFiles = getProject().files((Callable<List<File>>) () ->
+        this.ddlConfig.get().stream().flatMap(extension -> extension.getYamlSources().stream()).collect(Collectors.toList()));
+    private final ConfigurableFileCollection previousYamlFiles = getProject().files((Callable<List<File>>) () ->
+        this.ddlConfig.get().stream().flatMap(extension -> extension.getPreviousYamlSources().stream()).collect(Collectors.toList()));
+    private final WorkerExecutor workerExecutor;
+
+    @Inject
+    public YamlDDLTask(WorkerExecutor workerExecutor) {
+        this.workerExecutor = workerExecutor;
+        // git リビジョンの中身 (HEAD~1 など) は入力として追えないため、previousRevision がある場合は毎回実行する
+        getOutputs().doNotCacheIf("previousRevision is set", task -> usesPreviousRevision());
+        getOutputs().upToDateWhen(task -> !usesPreviousRevision());
+    }
+
+    private boolean usesPreviousRevision() {
+        return this.ddlConfig.get().stream().anyMatch(extension -> extension.getPreviousYamlSources().isEmpty() && extension.getPreviousRevision().isPresent());
+    }
 
     @Override
     public String getDescription() {
         return "YAML to DDL.";
     }
 
-    @TaskAction
-    public void execute() {
-        final Project project = getProject();
-        final RootExtension extension = project.getExtensions().getByType(RootExtension.class);
-
-        extension.getDDLConfig()
-                 .forEach(this::action);
+    /** 全 ddl ブロックの yaml */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public FileCollection getYamlFiles() {
+        return this.yamlFiles;
     }
 
-    private void action(DDLExtension extension) {
-        Yaml yaml = new Yaml();
-        try {
-            File yamlFile = extension.getYamlFile();
-            File outputDir = extension.getOutputDir();
-            if (yamlFile == null || outputDir == null) {
-                log.warn(String.format(logFormat, "extension is invalid."));
-                log.warn(getExtensionRequiredSetting());
-                return;
-            }
-            if (!yamlFile.exists()) {
-                log.warn(String.format(logFormat, "yaml file not found: {}"), yamlFile.getCanonicalPath());
-                return;
-            }
-            if (!outputDir.exists()) {
-                outputDir.mkdirs();
-            }
-            try (FileReader reader = new FileReader(yamlFile, StandardCharsets.UTF_8)) {
-                Map<String, Object> yamlMap = yaml.loadAs(reader, MapWrapper.class);
+    /** 全 ddl ブロックの、前のバージョンの yaml */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public FileCollection getPreviousYamlFiles() {
+        return this.previousYamlFiles;
+    }
 
-                if (yamlMap == null || yamlMap.isEmpty()) {
-                    log.warn(String.format(logFormat, "yaml file content is empty."));
-                    return;
-                }
+    /** ddl ブロックごとの、出力結果に影響する設定 (yaml はプロジェクトからの相対パス) */
+    @Input
+    public List<String> getDDLSettings() {
+        Path projectPath = this.projectDirectory.get().getAsFile().toPath();
+        return this.ddlConfig.get().stream().map(extension -> String.join(",",
+            extension.getYamlSources().stream().map(file -> relativePath(projectPath, file)).collect(Collectors.joining(";")),
+            "fileName=" + extension.getFileName().orElse(""),
+            "schema=" + extension.getSchema().orElse(""),
+            "existCheck=" + extension.isIncludeExistCheck(),
+            "truncate=" + extension.isIncludeTruncateTable(),
+            "lowerAll=" + extension.isAllCharacterLowerCase(),
+            "streaming=" + extension.isStreaming(),
+            "dialects=" + String.join(";", extension.getDialects()),
+            "previous=" + extension.getPreviousYamlSources().stream().map(file -> relativePath(projectPath, file)).collect(Collectors.joining(";")),
+            "previousRevision=" + extension.getPreviousRevision().orElse("")
+        )).collect(Collectors.toList());
+    }
 
-                DatabaseDefinition database = loadYamlFile(yamlMap);
-                StringBuilder tableDDL = new StringBuilder();
-                StringBuilder keyDDL = new StringBuilder();
-                database.tables.forEach(table -> {
-                    tableDDL.append(table.createSentence(extension.isIncludeExistCheck(), extension.isAllCharacterLowerCase(), extension.getSchema())
-                                         .stream()
-                                         .collect(Collectors.joining(this.lineEnd.get())))
-                            .append(this.lineEnd.get());
-                    keyDDL.append(this.lineEnd.get())
-                          .append(table.foreignKeySentence(extension.isAllCharacterLowerCase(), extension.getSchema())
-                                      .stream()
-                                      .collect(Collectors.joining(this.lineEnd.get())))
-                          .append(this.lineEnd.get());
-                    keyDDL.append(this.lineEnd.get())
-                          .append(table.uniqueKeySentence(extension.isAllCharacterLowerCase(), extension.getSchema())
-                                       .stream()
-                                       .collect(Collectors.joining(this.lineEnd.get())))
-                          .append(this.lineEnd.get());
-                    keyDDL.append(this.lineEnd.get())
-                          .append(table.indexKeySentence(extension.isAllCharacterLowerCase(), extension.getSchema())
-                                       .stream()
-                                       .collect(Collectors.joining(this.lineEnd.get())))
-                          .append(this.lineEnd.get());
-                });
+    /** 別ドライブなど、相対パスにできない場合は絶対パス */
+    private String relativePath(Path projectPath, File file) {
+        try {
+            return projectPath.relativize(file.toPath()).toString();
+        } catch (IllegalArgumentException e) {
+            return file.getPath();
+        }
+    }
 
-                StringBuilder truncateQuery = new StringBuilder();
-                if (extension.isIncludeTruncateTable()) {
-                    // テーブル一覧から、ForeignKey が付いているものを後回しにしていく
-                    // 1から順に見ていく。ForeignKey があり、その関係テーブルよりも前にあれば、最後に移動させる。
-                    // また、1から順に見ていく。同じことを繰り返し、問題ないようなら、文を作る。
-                    Map<String, DatabaseTable> tableMap = database.tables.stream().collect(Collectors.toMap(DatabaseTable::getName, v -> v));
-                    LinkedList<String> tables = new LinkedList<>(tableMap.keySet());
+    @Input
+    public String getLineEnding() {
+        return this.lineEnd.get().get();
+    }
 
-                    boolean changedOrder;
-                    do {
-                        changedOrder = false;
-                        var iterator = tables.iterator();
-                        while (iterator.hasNext()) {
-                            DatabaseTable table = tableMap.get(iterator.next());
-                            if (table.hasForeignKey()) {
-                                int tableIndex = tables.indexOf(table.getName());
-                                if (table.getRelationTables().stream().anyMatch(tableName -> tableIndex < tables.indexOf(tableName))) {
-                                    tables.remove(table.getName());
-                                    tables.addLast(table.getName());
-                                    changedOrder = true;
-                                    break;
-                                }
-                            }
-                        }
-                    } while(changedOrder);
-                    tables.forEach(tableName -> 
-                            truncateQuery.append(DatabaseTable.toSentence("TRUNCATE TABLE IF EXISTS ", extension.isAllCharacterLowerCase()))
-                                         .append(extension.getSchema().map(v -> v + ".").orElse(""))
-                                         .append(tableName)
-                                         .append(";")
-                                         .append(this.lineEnd.get())
-                    );
-                    truncateQuery.append(this.lineEnd.get());
-                    tables.forEach(tableName ->
-                            truncateQuery.append(DatabaseTable.toSentence("DROP TABLE IF EXISTS ", extension.isAllCharacterLowerCase()))
-                                         .append(extension.getSchema().map(v -> v + ".").orElse(""))
-                                         .append(tableName)
-                                         .append(";")
-                                         .append(this.lineEnd.get())
-                    );
-                    truncateQuery.append(this.lineEnd.get());
+    /** ddl ブロックの順番 -> 出力ファイル。ファイル名は yaml の version で決まる */
+    @OutputFiles
+    public Map<String, File> getDDLFiles() {
+        List<DDLExtension> ddlConfig = this.ddlConfig.get();
+        Map<String, File> outputFiles = new LinkedHashMap<>();
+        for (int i = 0; i < ddlConfig.size(); i++) {
+            DDLExtension extension = ddlConfig.get(i);
+            if (extension.getOutputDir() != null) {
+                Optional<String> version = peekVersion(extension);
+                List<SqlDialect> dialects = extension.isStreaming() ? List.of() : extension.getDialects().stream()
+                    .map(SqlDialect::of).flatMap(Optional::stream).distinct().collect(Collectors.toList());
+                boolean migration = !extension.isStreaming() && extension.isIncludeMigration();
+                if (dialects.isEmpty()) {
+                    outputFiles.put("ddl" + i, DDLGenerator.resolveOutputFile(extension, version));
+                    if (migration) {
+                        outputFiles.put("ddl" + i + "-migration", DDLGenerator.resolveMigrationFile(extension, version, Optional.empty()));
+                    }
                 }
-
-                String outputFileName = extension.getFileName().orElse("ddl") + database.version.map(ver -> "-" + ver).orElse("") + ".sql";
-                File outputFile = outputDir.toPath().resolve(outputFileName).toFile();
-                try (FileOutputStream fos = new FileOutputStream(outputFile);
-                        OutputStreamWriter writer = new OutputStreamWriter(fos, StandardCharsets.UTF_8)) {
-                    writer.write(truncateQuery.toString() + tableDDL.toString() + keyDDL.toString());
+                for (SqlDialect dialect : dialects) {
+                    outputFiles.put("ddl" + i + "-" + dialect.getName(), DDLGenerator.resolveOutputFile(extension, version, Optional.of(dialect)));
+                    if (migration) {
+                        outputFiles.put("ddl" + i + "-" + dialect.getName() + "-migration", DDLGenerator.resolveMigrationFile(extension, version, Optional.of(dialect)));
+                    }
                 }
-                log.lifecycle(String.format(logFormat, "ddl file created: " + outputFile.getCanonicalPath()));
             }
-        } catch (IOException e) {
-            log.error(String.format(logFormat, "yaml file load error: " + extension.getYamlFile().getName()), e);
-            throw new GradleException(e.getMessage(), e);
         }
+        return outputFiles;
     }
 
-    @SuppressWarnings("unchecked")
-    private DatabaseDefinition loadYamlFile(Map<String, Object> yamlMap) {
-        Optional<String> version = Optional.ofNullable(yamlMap.get("version"))
-                                           .map(String::valueOf);
-        Map<String, String> domains = Optional.ofNullable(yamlMap.get("domains"))
-                                              .filter(value -> value instanceof Map)
-                                              .map(value -> (Map<String, String>) value)
-                                              .orElseGet(Map::of);
-        List<DatabaseColumn> commonColumns = yamlConvertColumns(Optional.ofNullable(yamlMap.get("commonColumns")), domains);
-                                                     
+    @Internal
+    public ListProperty<DDLExtension> getDDLConfig() {
+        return this.ddlConfig;
+    }
 
-        List<ForeignKeyInfo> foreignKeyInfos = new ArrayList<>();
-        LinkedHashMap<String, DatabaseTable> tables = Optional.ofNullable(yamlMap.get("tables")).filter(value -> value instanceof Map)
-                .map(value -> {
-                    Map<String, Object> tableMap = (Map<String, Object>) value;
-                    return tableMap.entrySet().stream().map(entry -> {
-                        String tableName = entry.getKey();
-                        Object entryValue = entry.getValue();
-                        if (entryValue instanceof Map) {
-                            Map<String, Object> tableDefinition = (Map<String, Object>) entryValue;
-                            String tableComment = Optional.ofNullable(tableDefinition.get("info"))
-                                                          .map(String::valueOf)
-                                                          .orElse(null);
-                            List<String> primaryKeys = Optional.ofNullable(tableDefinition.get("pk"))
-                                                               .map(pkValue -> {
-                                                                   if (pkValue instanceof List) {
-                                                                    return (List<String>) pkValue;
-                                                                   } else {
-                                                                    return List.of(String.valueOf(pkValue));
-                                                                   }
-                                                               }).orElseGet(List::of);
-                            Optional.ofNullable(tableDefinition.get("fk"))
-                                    .filter(fkValue -> fkValue instanceof Map)
-                                    .ifPresent(fkValue -> {
-                                        Map<String, Object> foreignKeyMap = (Map<String, Object>) fkValue;
-                                        foreignKeyMap.forEach((foreignKeyName, foreignKeyInfo) -> {
-                                            if (foreignKeyInfo instanceof Map) {
-                                                Map<String, Object> foreignKeyDefinition = (Map<String, Object>) foreignKeyInfo;
-                                                Optional<List<String>> parentInfo = Optional.ofNullable(foreignKeyDefinition.get("relate"))
-                                                        .map(parentColumnName -> {
-                                                            if (parentColumnName instanceof List) {
-                                                                return (List<String>) parentColumnName;
-                                                            } else {
-                                                                return List.of(String.valueOf(parentColumnName));
-                                                            }
-                                                        });
-                                                Optional<AbstractMap.SimpleEntry<String, List<String>>> childInfo = Optional.ofNullable(foreignKeyDefinition.get("to"))
-                                                        .flatMap(childRelation -> {
-                                                            if (childRelation instanceof Map) {
-                                                                Map<String, Object> childDefinition = (Map<String, Object>) childRelation;
-                                                                return childDefinition.entrySet().stream()
-                                                                               .map(childEntry -> {
-                                                                                   String childTableName = childEntry.getKey();
-                                                                                   if (childEntry.getValue() instanceof List) {
-                                                                                       return new AbstractMap.SimpleEntry<>(childTableName, ((List<String>) childEntry.getValue()));
-                                                                                   } else {
-                                                                                       return new AbstractMap.SimpleEntry<>(childTableName, List.of(String.valueOf(childEntry.getValue())));
-                                                                                   }
-                                                                               }).findFirst();
-                                                            } else {
-                                                                return null;
-                                                            }
-                                                        }).filter(Objects::nonNull);
-                                                if (parentInfo.isPresent() && childInfo.isPresent()) {
-                                                    String childTableName = childInfo.get().getKey();
-                                                    List<String> childRelationColumns = childInfo.get().getValue();
-                                                    foreignKeyInfos.add(new ForeignKeyInfo(foreignKeyName, tableName, parentInfo.get(), childTableName, childRelationColumns));
-                                                }
-                                            }
-                                        });
-                                    });
-                            DatabaseTable table = new DatabaseTable(tableName, tableComment);
-                            Optional.ofNullable(tableDefinition.get("logicalName"))
-                                    .map(String::valueOf)
-                                    .ifPresent(logicalName -> table.logicalName(logicalName));
-                            table.addColumns(yamlConvertColumns(Optional.ofNullable(tableDefinition.get("columns")), domains));
-                            if (!table.addPrimaryKey(primaryKeys.toArray(String[]::new))) {
-                                log.warn(String.format(logFormat, "PK: columns not found. [" + primaryKeys.stream().collect(Collectors.joining(" | ")) + "]"));
-                            }
-                            Optional.ofNullable(tableDefinition.get("uq"))
-                                    .filter(uqValue -> uqValue instanceof Map)
-                                    .ifPresent(uqValue -> {
-                                        Map<String, Object> uniqueKeyDefinition = (Map<String, Object>) uqValue;
-                                        uniqueKeyDefinition.forEach((uniqueKeyName, uniqueColumnValue) -> {
-                                            if (uniqueColumnValue instanceof List) {
-                                                List<String> uniqueColumns = (List<String>) uniqueColumnValue;
-                                                if (!table.addUniqueKey(uniqueKeyName, uniqueColumns.toArray(String[]::new))) {
-                                                    log.warn(String.format(logFormat, "UK: columns not found. [" + uniqueColumns.stream().collect(Collectors.joining(" | ")) + "]"));
-                                                }
-                                            } else {
-                                                if (!table.addUniqueKey(uniqueKeyName, String.valueOf(uniqueColumnValue))) {
-                                                    log.warn(String.format(logFormat, "UK: columns not found. [" + uniqueColumnValue + "]"));
-                                                }
-                                            }
-                                        });
-                                    });
-                            Optional.ofNullable(tableDefinition.get("idx"))
-                                    .filter(idxValue -> idxValue instanceof Map)
-                                    .ifPresent(idxValue -> {
-                                        Map<String, Object> indexDefinition = (Map<String, Object>) idxValue;
-                                        indexDefinition.forEach((indexName, indexColumnValue) -> {
-                                            if (indexColumnValue instanceof List) {
-                                                List<String> indexColumns = (List<String>) indexColumnValue;
-                                                if (!table.addIndexKey(indexName, indexColumns.toArray(String[]::new))) {
-                                                    log.warn(String.format(logFormat, "IDX: columns not found. [" + indexColumns.stream().collect(Collectors.joining(" | ")) + "]"));
-                                                }
-                                            } else {
-                                                if (!table.addIndexKey(indexName, String.valueOf(indexColumnValue))) {
-                                                    log.warn(String.format(logFormat, "IDX: columns not found. [" + indexColumnValue + "]"));
-                                                }
-                                            }
-                                        });
-                                    });
-                            return table;
-                        } else {
-                            return new DatabaseTable(tableName);
-                        }
-                    }).collect(Collectors.toMap(
-                        DatabaseTable::getName,
-                        v -> v,
-                        (a, b) -> b,
-                        LinkedHashMap::new
-                    ));
-                }).orElseGet(LinkedHashMap::new);
-        tables.values().forEach(table -> table.addColumns(commonColumns));
-        foreignKeyInfos.forEach(info -> {
-            DatabaseTable foreignKeyAddTable = tables.get(info.parentTableName);
-            if (tables.containsKey(info.childTableName)) {
-                boolean addSuccessed = foreignKeyAddTable.addForeignKey(info.keyName, info.parentRelationColumnNames, tables.get(info.childTableName), info.childRelationColumnNames);
-                if (!addSuccessed) {
-                    log.warn(String.format(logFormat, "FK: [" + info.keyName + "] relation column not found, reconfirm. Parent: [" + info.parentRelationColumnNames.stream().collect(Collectors.joining(" | ")), "] Child: [" + info.childRelationColumnNames.stream().collect(Collectors.joining(" | ")) + "]"));    
-                }
-            } else {
-                log.warn(String.format(logFormat, "FK: [" + info.keyName + "] child table not found. " + info.childTableName));
-            }
-        });
-        return new DatabaseDefinition(version, new ArrayList<>(tables.values()));
+    @Internal
+    public Property<LineEnd> getLineEnd() {
+        return this.lineEnd;
     }
 
+    @Internal
+    public Property<Integer> getCacheSize() {
+        return this.cacheSize;
+    }
 
-    @SuppressWarnings("unchecked")
-    private List<DatabaseColumn> yamlConvertColumns(Optional<Object> columnValue, Map<String, String> domains) {
-        return columnValue.filter(value -> value instanceof Map)
-        .map(value -> {
-            Map<String, Object> columnMap = (Map<String, Object>) value;
-            return columnMap.entrySet()
-                            .stream()
-                            .map(entry -> {
-                                String columnName = entry.getKey();
-                                Object entryValue = entry.getValue();
-                                if (entryValue instanceof Map) {
-                                    Map<String, Object> columnDefinition = (Map<String, Object>) entryValue;
+    @Internal
+    public Property<Integer> getDdlParallelism() {
+        return this.ddlParallelism;
+    }
 
-                                    String type = Optional.ofNullable(columnDefinition.get("type"))
-                                                          .map(columnType -> {
-                                                              String definition = String.valueOf(columnType);
-                                                              return domains.getOrDefault(definition, definition);
-                                                          }).orElse(null);
-                                    String logicalName = Optional.ofNullable(columnDefinition.get("logicalName"))
-                                                                 .map(String::valueOf)
-                                                                 .orElse(null);
-                                    String comment = Optional.ofNullable(columnDefinition.get("info"))
-                                                             .map(String::valueOf)
-                                                             .orElse(null);
-                                    String constraints = Optional.ofNullable(columnDefinition.get("options"))
-                                                                 .filter(optionValue -> optionValue instanceof String)
-                                                                 .map(String::valueOf)
-                                                                 .orElse(null);
-                                    String defaultValue = Optional.ofNullable(columnDefinition.get("defaultValue"))
-                                                                  .map(String::valueOf)
-                                                                  .orElse(null);
-                                    return new DatabaseColumn(columnName, type)
-                                       .logicalName(logicalName)
-                                       .comment(comment)
-                                       .constraints(constraints)
-                                       .defaultValue(defaultValue);
-                                } else {
-                                    return null;
-                                }
-                            }).filter(Objects::nonNull)
-                            .collect(Collectors.toList());
-        }).orElseGet(List::of);
+    @Internal
+    public DirectoryProperty getCacheDirectory() {
+        return this.cacheDirectory;
     }
 
+    /** yaml の相対パス計算用 */
+    @Internal
+    public DirectoryProperty getProjectDirectory() {
+        return this.projectDirectory;
+    }
 
-    class MapWrapper extends HashMap<String, Object> {
-        private static final long serialVersionUID = 1L;
+    /** 複数ファイルの場合は、後のファイルの version が優先 */
+    private Optional<String> peekVersion(DDLExtension extension) {
+        YamlStreamReader reader = new YamlStreamReader();
+        Optional<String> version = Optional.empty();
+        for (File yamlFile : extension.getYamlSources()) {
+            try {
+                Optional<String> fileVersion = yamlFile.isFile() ? reader.readVersion(yamlFile) : Optional.empty();
+                if (fileVersion.isPresent()) {
+                    version = fileVersion;
+                }
+            } catch (IOException | RuntimeException e) {
+                // 読めない yaml は、タスク実行時にエラーとして扱う
+                log.debug(String.format(logFormat, "yaml version read error: " + yamlFile.getName()), e);
+            }
+        }
+        return version;
     }
 
-    private String getExtensionRequiredSetting() {
-        return String.join(System.lineSeparator(),
-            "ddl task extension required minimum setting.",
-            "******************************************************",
-            "yamlER {",
-            "    ddl {",
-            "      yaml = file('database yaml file path')",
-            "      outDir = file('ddl file output directory path')",
-            "    }",
-            "}",
-            "******************************************************"
-        );
+    @TaskAction
+    public void execute() {
+        final List<DDLExtension> ddlConfig = this.ddlConfig.get();
+        final LineEnd lineEnd = this.lineEnd.get();
+        final File cacheDir = this.cacheDirectory.get().getAsFile();
+        final long cacheSize = this.cacheSize.get() * 1024L * 1024L;
+        final int parallelism = Math.max(1, this.ddlParallelism.get());
+
+        if (ddlConfig.size() > 1 && GradleVersion.current().compareTo(WORK_ACTION_SUPPORTED) >= 0) {
+            // WorkAction を参照するのは DDLWorkAction 内だけにする (5.6 未満でもタスククラスを読み込めるように)
+            DDLWorkAction.submitAll(this.workerExecutor, ddlConfig, lineEnd, cacheDir, cacheSize, getTemporaryDir(), parallelism);
+        } else {
+            DDLGenerator generator = new DDLGenerator(log, lineEnd, cacheDir, cacheSize, getTemporaryDir(), parallelism);
+            ddlConfig.forEach(generator::generate);
+        }
     }
 
 }
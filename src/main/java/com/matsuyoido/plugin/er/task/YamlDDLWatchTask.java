@@ -0,0 +1,87 @@
+package com.matsuyoido.plugin.er.task;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+import com.matsuyoido.LineEnd;
+import com.matsuyoido.plugin.er.DDLExtension;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * yaml を監視し、保存のたびに DDL を出力し直す (Ctrl+C で止める)。
+ * Gradle の起動と yaml 全体のパースは最初の1回だけで、以降は変更のあった yaml だけパースし直す。
+ */
+public class YamlDDLWatchTask extends DefaultTask {
+
+    private final String logFormat = "[YamlDDL] %s";
+    private final Logger log = getLogger();
+
+    // 設定は ddl タスクと同じものを MainPlugin で繋ぐ
+    private final ListProperty<DDLExtension> ddlConfig = getProject().getObjects().listProperty(DDLExtension.class);
+    private final Property<LineEnd> lineEnd = getProject().getObjects().property(LineEnd.class);
+    /** MB */
+    private final Property<Integer> cacheSize = getProject().getObjects().property(Integer.class);
+    private final Property<Integer> ddlParallelism = getProject().getObjects().property(Integer.class);
+    private final DirectoryProperty cacheDirectory = getProject().getObjects().directoryProperty();
+
+    @Override
+    public String getDescription() {
+        return "Watch YAML and regenerate DDL on change.";
+    }
+
+    @Internal
+    public ListProperty<DDLExtension> getDDLConfig() {
+        return this.ddlConfig;
+    }
+
+    @Internal
+    public Property<LineEnd> getLineEnd() {
+        return this.lineEnd;
+    }
+
+    @Internal
+    public Property<Integer> getCacheSize() {
+        return this.cacheSize;
+    }
+
+    @Internal
+    public Property<Integer> getDdlParallelism() {
+        return this.ddlParallelism;
+    }
+
+    @Internal
+    public DirectoryProperty getCacheDirectory() {
+        return this.cacheDirectory;
+    }
+
+    @TaskAction
+    public void execute() {
+        final List<DDLExtension> ddlConfig = this.ddlConfig.get();
+        final LineEnd lineEnd = this.lineEnd.get();
+        final File cacheDir = this.cacheDirectory.get().getAsFile();
+        final long cacheSize = this.cacheSize.get() * 1024L * 1024L;
+        final int parallelism = Math.max(1, this.ddlParallelism.get());
+
+        DDLWatcher watcher = new DDLWatcher(log, ddlConfig, yamlFileCache ->
+            new DDLGenerator(log, lineEnd, cacheDir, cacheSize, getTemporaryDir(), parallelism, Optional.of(yamlFileCache)));
+        try {
+            watcher.watch();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.error(String.format(logFormat, "yaml watch error."), e);
+            throw new GradleException(e.getMessage(), e);
+        }
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.matsuyoido.plugin.er.task;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * watch 中に、yaml ファイルごとのパース結果をメモリに持つ。
+ * 更新日時・サイズが前回と同じファイルはパースし直さない。
+ */
+class YamlFileCache {
+
+    /** yaml -> 前回のパース結果 */
+    private final Map<File, ParsedYaml> parsedFiles = new HashMap<>();
+    private int lastParsedCount;
+
+    /**
+     * 変更のあったファイルだけパースし、読み込み順にマージする。
+     * @param yamlFiles 読み込み順に並んだ yaml
+     */
+    synchronized Map<String, Object> read(YamlSchemaLoader loader, List<File> yamlFiles) throws IOException {
+        List<Map<String, Object>> yamlMaps = new ArrayList<>(yamlFiles.size());
+        int parsedCount = 0;
+        for (File yamlFile : yamlFiles) {
+            long lastModified = yamlFile.lastModified();
+            long length = yamlFile.length();
+            ParsedYaml parsed = this.parsedFiles.get(yamlFile);
+            if (parsed == null || parsed.lastModified != lastModified || parsed.length != length) {
+                parsed = new ParsedYaml(lastModified, length, loader.readYamlFile(yamlFile));
+                this.parsedFiles.put(yamlFile, parsed);
+                parsedCount++;
+            }
+            yamlMaps.add(parsed.yamlMap);
+        }
+        this.parsedFiles.keySet().retainAll(yamlFiles);
+        this.lastParsedCount = parsedCount;
+        return yamlFiles.size() == 1 ? yamlMaps.get(0) : loader.mergeYamlMaps(yamlFiles, yamlMaps);
+    }
+
+    /** 更新日時の精度が粗い場合に備えて、変更を検知したファイルは必ずパースし直す */
+    synchronized void invalidate(Collection<File> yamlFiles) {
+        this.parsedFiles.keySet().removeAll(yamlFiles);
+    }
+
+    /** 直前の {@link #read} でパースしたファイル数 */
+    synchronized int getLastParsedCount() {
+        return this.lastParsedCount;
+    }
+
+    private static class ParsedYaml {
+        private final long lastModified;
+        private final long length;
+        private final Map<String, Object> yamlMap;
+
+        private ParsedYaml(long lastModified, long length, Map<String, Object> yamlMap) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.yamlMap = yamlMap;
+        }
+    }
+
+}
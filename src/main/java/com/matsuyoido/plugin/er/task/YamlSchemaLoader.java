@@ -0,0 +1,375 @@
+package com.matsuyoido.plugin.er.task;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+
+import com.matsuyoido.ddl.DatabaseColumn;
+import com.matsuyoido.ddl.DatabaseTable;
+import com.matsuyoido.ddl.SqlDialect;
+
+import org.gradle.api.logging.Logger;
+import org.yaml.snakeyaml.Yaml;
+
+/**
+ * yaml -> DatabaseDefinition 変換
+ */
+class YamlSchemaLoader {
+
+    private final String logFormat = "[YamlDDL] %s";
+    private final Logger log;
+    /** 出力した warn (キャッシュから読んだときに出し直す) */
+    private final List<String> warnings = Collections.synchronizedList(new ArrayList<>());
+
+    YamlSchemaLoader(Logger logger) {
+        this.log = logger;
+    }
+
+    /** @return これまでに出力した warn (出力順) */
+    List<String> getWarnings() {
+        synchronized (this.warnings) {
+            return new ArrayList<>(this.warnings);
+        }
+    }
+
+    /**
+     * 複数の yaml を ForkJoinPool で並列に読み、ファイル順にマージする。
+     * @param yamlFiles 読み込み順に並んだ yaml
+     */
+    Map<String, Object> readYamlFiles(List<File> yamlFiles) throws IOException {
+        if (yamlFiles.size() == 1) {
+            return readYamlFile(yamlFiles.get(0));
+        }
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, Math.min(yamlFiles.size(), Runtime.getRuntime().availableProcessors())));
+        try {
+            List<ForkJoinTask<Map<String, Object>>> tasks = yamlFiles.stream()
+                    .map(file -> pool.submit(() -> {
+                        try {
+                            return readYamlFile(file);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })).collect(Collectors.toList());
+            List<Map<String, Object>> yamlMaps = new ArrayList<>();
+            for (ForkJoinTask<Map<String, Object>> task : tasks) {
+                yamlMaps.add(task.join());
+            }
+            return mergeYamlMaps(yamlFiles, yamlMaps);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    Map<String, Object> readYamlFile(File yamlFile) throws IOException {
+        try (Reader reader = Files.newBufferedReader(yamlFile.toPath(), StandardCharsets.UTF_8)) {
+            Object yamlContent = new Yaml().load(reader);
+            if (yamlContent != null && !(yamlContent instanceof Map)) {
+                warn("yaml root is not mapping, ignored: " + yamlFile.getName());
+            }
+            return yamlContent instanceof Map ? (Map<String, Object>) yamlContent : Map.of();
+        }
+    }
+
+    /**
+     * version などのスカラー値は後のファイルで上書き、domains/commonColumns/tables などの Map はキー単位でマージする。
+     * 同じキーが複数ファイルにある場合は、後のファイルの定義を使う。
+     */
+    @SuppressWarnings("unchecked")
+    Map<String, Object> mergeYamlMaps(List<File> yamlFiles, List<Map<String, Object>> yamlMaps) {
+        Map<String, Object> merged = new LinkedHashMap<>();
+        for (int i = 0; i < yamlMaps.size(); i++) {
+            String fileName = yamlFiles.get(i).getName();
+            yamlMaps.get(i).forEach((key, value) -> {
+                Object current = merged.get(key);
+                if (value instanceof Map) {
+                    Map<Object, Object> section = current instanceof Map ? (Map<Object, Object>) current : new LinkedHashMap<>();
+                    ((Map<Object, Object>) value).forEach((name, definition) -> {
+                        if (section.containsKey(name)) {
+                            warn("duplicated definition, overwritten by " + fileName + ": " + key + "." + name);
+                        }
+                        section.put(name, definition);
+                    });
+                    merged.put(key, section);
+                } else {
+                    if (current != null && !current.equals(value)) {
+                        warn("duplicated definition, overwritten by " + fileName + ": " + key);
+                    }
+                    merged.put(key, value);
+                }
+            });
+        }
+        return merged;
+    }
+
+    @SuppressWarnings("unchecked")
+    DatabaseDefinition loadYamlFile(Map<String, Object> yamlMap) {
+        Optional<String> version = loadVersion(yamlMap);
+        Map<String, String> domains = loadDomains(yamlMap);
+        List<DatabaseColumn> commonColumns = yamlConvertColumns(Optional.ofNullable(yamlMap.get("commonColumns")), domains);
+
+        List<ForeignKeyInfo> foreignKeyInfos = new ArrayList<>();
+        LinkedHashMap<String, DatabaseTable> tables = Optional.ofNullable(yamlMap.get("tables")).filter(value -> value instanceof Map)
+                .map(value -> {
+                    Map<String, Object> tableMap = (Map<String, Object>) value;
+                    return tableMap.entrySet().stream()
+                                   .map(entry -> yamlConvertTable(entry.getKey(), entry.getValue(), domains, foreignKeyInfos))
+                                   .collect(Collectors.toMap(
+                                       DatabaseTable::getName,
+                                       v -> v,
+                                       (a, b) -> b,
+                                       LinkedHashMap::new
+                                   ));
+                }).orElseGet(LinkedHashMap::new);
+        tables.values().forEach(table -> table.addColumns(commonColumns));
+        foreignKeyInfos.forEach(info -> addForeignKey(tables, info));
+        return new DatabaseDefinition(version, new ArrayList<>(tables.values()), loadDialectDomains(yamlMap));
+    }
+
+    Optional<String> loadVersion(Map<String, Object> yamlMap) {
+        return Optional.ofNullable(yamlMap.get("version"))
+                       .map(String::valueOf);
+    }
+
+    /**
+     * domain 名 -> 型。
+     * dialect ごとに型を変える domain は、type と dialect 名をキーにした Map で書く。
+     * <pre>
+     * domains:
+     *   json_doc:
+     *     type: TEXT
+     *     postgresql: JSONB
+     * </pre>
+     */
+    @SuppressWarnings("unchecked")
+    Map<String, String> loadDomains(Map<String, Object> yamlMap) {
+        Map<String, String> domains = new LinkedHashMap<>();
+        domainMap(yamlMap).forEach((name, value) -> {
+            if (value instanceof Map) {
+                Optional.ofNullable(((Map<String, Object>) value).get("type"))
+                        .ifPresentOrElse(type -> domains.put(name, String.valueOf(type)),
+                                         () -> warn("domain type not found: " + name));
+            } else if (value != null) {
+                domains.put(name, String.valueOf(value));
+            }
+        });
+        return domains;
+    }
+
+    /** dialect -> (domain 名 -> 型)。dialect ごとの型を指定した domain だけ持つ */
+    @SuppressWarnings("unchecked")
+    Map<SqlDialect, Map<String, String>> loadDialectDomains(Map<String, Object> yamlMap) {
+        Map<SqlDialect, Map<String, String>> dialectDomains = new EnumMap<>(SqlDialect.class);
+        domainMap(yamlMap).forEach((name, value) -> {
+            if (!(value instanceof Map)) {
+                return;
+            }
+            ((Map<String, Object>) value).forEach((key, type) -> {
+                if (key.equals("type") || type == null) {
+                    return;
+                }
+                Optional<SqlDialect> dialect = SqlDialect.of(key);
+                if (dialect.isPresent()) {
+                    dialectDomains.computeIfAbsent(dialect.get(), k -> new LinkedHashMap<>()).put(name, String.valueOf(type));
+                } else {
+                    warn("domain [" + name + "] unknown dialect: " + key);
+                }
+            });
+        });
+        return dialectDomains;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> domainMap(Map<String, Object> yamlMap) {
+        return Optional.ofNullable(yamlMap.get("domains"))
+                       .filter(value -> value instanceof Map)
+                       .map(value -> (Map<String, Object>) value)
+                       .orElseGet(Map::of);
+    }
+
+    /** tables.<<table name>> を変換。FK は全テーブル揃ってから解決するため、foreignKeyInfos に積む */
+    @SuppressWarnings("unchecked")
+    DatabaseTable yamlConvertTable(String tableName, Object entryValue, Map<String, String> domains, List<ForeignKeyInfo> foreignKeyInfos) {
+        if (!(entryValue instanceof Map)) {
+            return new DatabaseTable(tableName);
+        }
+        Map<String, Object> tableDefinition = (Map<String, Object>) entryValue;
+        String tableComment = Optional.ofNullable(tableDefinition.get("info"))
+                                      .map(String::valueOf)
+                                      .orElse(null);
+        List<String> primaryKeys = Optional.ofNullable(tableDefinition.get("pk"))
+                                           .map(pkValue -> {
+                                               if (pkValue instanceof List) {
+                                                return (List<String>) pkValue;
+                                               } else {
+                                                return List.of(String.valueOf(pkValue));
+                                               }
+                                           }).orElseGet(List::of);
+        Optional.ofNullable(tableDefinition.get("fk"))
+                .filter(fkValue -> fkValue instanceof Map)
+                .ifPresent(fkValue -> {
+                    Map<String, Object> foreignKeyMap = (Map<String, Object>) fkValue;
+                    foreignKeyMap.forEach((foreignKeyName, foreignKeyInfo) -> {
+                        if (foreignKeyInfo instanceof Map) {
+                            Map<String, Object> foreignKeyDefinition = (Map<String, Object>) foreignKeyInfo;
+                            Optional<List<String>> parentInfo = Optional.ofNullable(foreignKeyDefinition.get("relate"))
+                                    .map(parentColumnName -> {
+                                        if (parentColumnName instanceof List) {
+                                            return (List<String>) parentColumnName;
+                                        } else {
+                                            return List.of(String.valueOf(parentColumnName));
+                                        }
+                                    });
+                            Optional<AbstractMap.SimpleEntry<String, List<String>>> childInfo = Optional.ofNullable(foreignKeyDefinition.get("to"))
+                                    .flatMap(childRelation -> {
+                                        if (childRelation instanceof Map) {
+                                            Map<String, Object> childDefinition = (Map<String, Object>) childRelation;
+                                            return childDefinition.entrySet().stream()
+                                                           .map(childEntry -> {
+                                                               String childTableName = childEntry.getKey();
+                                                               if (childEntry.getValue() instanceof List) {
+                                                                   return new AbstractMap.SimpleEntry<>(childTableName, ((List<String>) childEntry.getValue()));
+                                                               } else {
+                                                                   return new AbstractMap.SimpleEntry<>(childTableName, List.of(String.valueOf(childEntry.getValue())));
+                                                               }
+                                                           }).findFirst();
+                                        } else {
+                                            return null;
+                                        }
+                                    }).filter(Objects::nonNull);
+                            if (parentInfo.isPresent() && childInfo.isPresent()) {
+                                String childTableName = childInfo.get().getKey();
+                                List<String> childRelationColumns = childInfo.get().getValue();
+                                foreignKeyInfos.add(new ForeignKeyInfo(foreignKeyName, tableName, parentInfo.get(), childTableName, childRelationColumns));
+                            }
+                        }
+                    });
+                });
+        DatabaseTable table = new DatabaseTable(tableName, tableComment);
+        Optional.ofNullable(tableDefinition.get("logicalName"))
+                .map(String::valueOf)
+                .ifPresent(logicalName -> table.logicalName(logicalName));
+        table.addColumns(yamlConvertColumns(Optional.ofNullable(tableDefinition.get("columns")), domains));
+        if (!table.addPrimaryKey(primaryKeys.toArray(String[]::new))) {
+            warn("PK: columns not found. [" + primaryKeys.stream().collect(Collectors.joining(" | ")) + "]");
+        }
+        Optional.ofNullable(tableDefinition.get("uq"))
+                .filter(uqValue -> uqValue instanceof Map)
+                .ifPresent(uqValue -> {
+                    Map<String, Object> uniqueKeyDefinition = (Map<String, Object>) uqValue;
+                    uniqueKeyDefinition.forEach((uniqueKeyName, uniqueColumnValue) -> {
+                        List<String> uniqueColumns = keyColumnNames(uniqueColumnValue);
+                        if (table.hasUniqueKey(uniqueKeyName)) {
+                            warn("UK: duplicated key name, ignored. [" + uniqueKeyName + "]");
+                        } else if (!table.addUniqueKey(uniqueKeyName, uniqueColumns.toArray(String[]::new))) {
+                            warn("UK: columns not found. [" + uniqueColumns.stream().collect(Collectors.joining(" | ")) + "]");
+                        }
+                    });
+                });
+        Optional.ofNullable(tableDefinition.get("idx"))
+                .filter(idxValue -> idxValue instanceof Map)
+                .ifPresent(idxValue -> {
+                    Map<String, Object> indexDefinition = (Map<String, Object>) idxValue;
+                    indexDefinition.forEach((indexName, indexColumnValue) -> {
+                        List<String> indexColumns = keyColumnNames(indexColumnValue);
+                        if (table.hasIndexKey(indexName)) {
+                            warn("IDX: duplicated key name, ignored. [" + indexName + "]");
+                        } else if (!table.addIndexKey(indexName, indexColumns.toArray(String[]::new))) {
+                            warn("IDX: columns not found. [" + indexColumns.stream().collect(Collectors.joining(" | ")) + "]");
+                        }
+                    });
+                });
+        return table;
+    }
+
+    /** UK・INDEX のカラム (1つならリストでなくてもよい) */
+    @SuppressWarnings("unchecked")
+    private static List<String> keyColumnNames(Object columnValue) {
+        return columnValue instanceof List ? (List<String>) columnValue : List.of(String.valueOf(columnValue));
+    }
+
+    /** @return FK追加成功 */
+    boolean addForeignKey(Map<String, DatabaseTable> tables, ForeignKeyInfo info) {
+        DatabaseTable foreignKeyAddTable = tables.get(info.parentTableName);
+        if (tables.containsKey(info.childTableName)) {
+            boolean addSuccessed = foreignKeyAddTable.addForeignKey(info.keyName, info.parentRelationColumnNames, tables.get(info.childTableName), info.childRelationColumnNames);
+            if (!addSuccessed) {
+                warn("FK: [" + info.keyName + "] relation column not found, reconfirm. Parent: [" + info.parentRelationColumnNames.stream().collect(Collectors.joining(" | ")) + "] Child: [" + info.childRelationColumnNames.stream().collect(Collectors.joining(" | ")) + "]");
+            }
+            return addSuccessed;
+        } else {
+            warn("FK: [" + info.keyName + "] child table not found. " + info.childTableName);
+            return false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    List<DatabaseColumn> yamlConvertColumns(Optional<Object> columnValue, Map<String, String> domains) {
+        return columnValue.filter(value -> value instanceof Map)
+        .map(value -> {
+            Map<String, Object> columnMap = (Map<String, Object>) value;
+            return columnMap.entrySet()
+                            .stream()
+                            .map(entry -> {
+                                String columnName = entry.getKey();
+                                Object entryValue = entry.getValue();
+                                if (entryValue instanceof Map) {
+                                    Map<String, Object> columnDefinition = (Map<String, Object>) entryValue;
+
+                                    Optional<String> definition = Optional.ofNullable(columnDefinition.get("type"))
+                                                                          .map(String::valueOf);
+                                    String type = definition.map(columnType -> domains.getOrDefault(columnType, columnType))
+                                                            .orElse(null);
+                                    String domain = definition.filter(domains::containsKey)
+                                                              .orElse(null);
+                                    String logicalName = Optional.ofNullable(columnDefinition.get("logicalName"))
+                                                                 .map(String::valueOf)
+                                                                 .orElse(null);
+                                    String comment = Optional.ofNullable(columnDefinition.get("info"))
+                                                             .map(String::valueOf)
+                                                             .orElse(null);
+                                    String constraints = Optional.ofNullable(columnDefinition.get("options"))
+                                                                 .filter(optionValue -> optionValue instanceof String)
+                                                                 .map(String::valueOf)
+                                                                 .orElse(null);
+                                    String defaultValue = Optional.ofNullable(columnDefinition.get("defaultValue"))
+                                                                  .map(String::valueOf)
+                                                                  .orElse(null);
+                                    return new DatabaseColumn(columnName, type)
+                                       .logicalName(logicalName)
+                                       .comment(comment)
+                                       .constraints(constraints)
+                                       .defaultValue(defaultValue)
+                                       .domain(domain);
+                                } else {
+                                    return null;
+                                }
+                            }).filter(Objects::nonNull)
+                            .collect(Collectors.toList());
+        }).orElseGet(List::of);
+    }
+
+    private void warn(String message) {
+        String warning = String.format(logFormat, message);
+        this.warnings.add(warning);
+        log.warn(warning);
+    }
+
+}
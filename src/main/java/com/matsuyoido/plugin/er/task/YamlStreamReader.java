@@ -0,0 +1,236 @@
+package com.matsuyoido.plugin.er.task;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+import org.yaml.snakeyaml.composer.Composer;
+import org.yaml.snakeyaml.constructor.Constructor;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.DocumentEndEvent;
+import org.yaml.snakeyaml.events.DocumentStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.NodeEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.events.StreamEndEvent;
+import org.yaml.snakeyaml.events.StreamStartEvent;
+import org.yaml.snakeyaml.nodes.Node;
+import org.yaml.snakeyaml.parser.Parser;
+import org.yaml.snakeyaml.parser.ParserImpl;
+import org.yaml.snakeyaml.reader.StreamReader;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+/**
+ * SnakeYAML の Event API で yaml を読む。
+ * tables 配下は1テーブルずつ Map に組み立てて渡すため、ファイル全体をメモリに載せない。
+ */
+class YamlStreamReader {
+
+    private static final String TABLES_KEY = "tables";
+    private static final String VERSION_KEY = "version";
+
+    private final NodeConstructor constructor = new NodeConstructor();
+    /** anchor名 -> anchor 付き node のイベント列 (テーブルを跨いだ alias 用。ファイルごとに作り直す) */
+    private final Map<String, List<Event>> anchors = new HashMap<>();
+
+    /**
+     * tables 以外のトップレベル要素 (version, domains, commonColumns) を読む。
+     * tables は中身を読み飛ばし、存在する場合のみ空 Map を入れる。
+     */
+    Map<String, Object> readHeader(File yamlFile) throws IOException {
+        Map<String, Object> header = new LinkedHashMap<>();
+        try (Reader reader = Files.newBufferedReader(yamlFile.toPath(), StandardCharsets.UTF_8)) {
+            Parser parser = openDocument(reader);
+            if (parser == null) {
+                return header;
+            }
+            while (!parser.checkEvent(Event.ID.MappingEnd)) {
+                String key = readKey(parser);
+                if (TABLES_KEY.equals(key)) {
+                    skipNode(parser);
+                    header.put(TABLES_KEY, Map.of());
+                } else if (key != null) {
+                    header.put(key, construct(readNode(parser)));
+                } else {
+                    skipNode(parser);
+                }
+            }
+        }
+        return header;
+    }
+
+    /**
+     * トップレベルの version だけを読む (出力ファイル名の決定用)。
+     * version を見つけた時点で読むのをやめる。
+     */
+    Optional<String> readVersion(File yamlFile) throws IOException {
+        try (Reader reader = Files.newBufferedReader(yamlFile.toPath(), StandardCharsets.UTF_8)) {
+            Parser parser = openDocument(reader);
+            if (parser == null) {
+                return Optional.empty();
+            }
+            while (!parser.checkEvent(Event.ID.MappingEnd)) {
+                String key = readKey(parser);
+                if (VERSION_KEY.equals(key)) {
+                    return Optional.ofNullable(construct(readNode(parser))).map(String::valueOf);
+                }
+                skipNode(parser);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * tables の各エントリを、読み終わった順に consumer へ渡す。
+     */
+    void readTables(File yamlFile, BiConsumer<String, Object> consumer) throws IOException {
+        try (Reader reader = Files.newBufferedReader(yamlFile.toPath(), StandardCharsets.UTF_8)) {
+            Parser parser = openDocument(reader);
+            if (parser == null) {
+                return;
+            }
+            while (!parser.checkEvent(Event.ID.MappingEnd)) {
+                String key = readKey(parser);
+                if (!TABLES_KEY.equals(key)) {
+                    // tables から参照される anchor を拾うため、読み捨てではなく記録する
+                    readNode(parser);
+                } else if (parser.checkEvent(Event.ID.MappingStart)) {
+                    parser.getEvent();
+                    while (!parser.checkEvent(Event.ID.MappingEnd)) {
+                        String tableName = readKey(parser);
+                        Object tableDefinition = construct(readNode(parser));
+                        if (tableName != null) {
+                            consumer.accept(tableName, tableDefinition);
+                        }
+                    }
+                    parser.getEvent();
+                } else {
+                    readNode(parser);
+                }
+            }
+        }
+    }
+
+    /** @return トップレベルが Mapping の場合、MappingStart を読み終えた parser。それ以外は null */
+    private Parser openDocument(Reader reader) {
+        // anchor は文書の中でだけ有効 (別のファイルの anchor は参照させない。記録したイベント列も残さない)
+        this.anchors.clear();
+        Parser parser = new ParserImpl(new StreamReader(reader));
+        parser.getEvent(); // StreamStart
+        if (!parser.checkEvent(Event.ID.DocumentStart)) {
+            return null;
+        }
+        parser.getEvent();
+        if (!parser.checkEvent(Event.ID.MappingStart)) {
+            return null;
+        }
+        parser.getEvent();
+        return parser;
+    }
+
+    /** @return スカラーのキー。それ以外のキーは読み飛ばして null */
+    private String readKey(Parser parser) {
+        if (parser.checkEvent(Event.ID.Scalar)) {
+            return ((ScalarEvent) parser.getEvent()).getValue();
+        }
+        skipNode(parser);
+        return null;
+    }
+
+    private void skipNode(Parser parser) {
+        int depth = 0;
+        do {
+            Event event = parser.getEvent();
+            if (event.is(Event.ID.MappingStart) || event.is(Event.ID.SequenceStart)) {
+                depth++;
+            } else if (event.is(Event.ID.MappingEnd) || event.is(Event.ID.SequenceEnd)) {
+                depth--;
+            }
+        } while (depth > 0);
+    }
+
+    private List<Event> readNode(Parser parser) {
+        List<Event> events = new ArrayList<>();
+        readNode(parser, events);
+        return events;
+    }
+
+    private void readNode(Parser parser, List<Event> events) {
+        Event event = parser.getEvent();
+        if (event instanceof AliasEvent) {
+            List<Event> anchored = this.anchors.get(((AliasEvent) event).getAnchor());
+            if (anchored != null) {
+                events.addAll(anchored);
+            } else {
+                events.add(event);
+            }
+            return;
+        }
+        int start = events.size();
+        events.add(event);
+        if (event.is(Event.ID.MappingStart) || event.is(Event.ID.SequenceStart)) {
+            Event.ID end = event.is(Event.ID.MappingStart) ? Event.ID.MappingEnd : Event.ID.SequenceEnd;
+            while (!parser.checkEvent(end)) {
+                readNode(parser, events);
+            }
+            events.add(parser.getEvent());
+        }
+        String anchor = ((NodeEvent) event).getAnchor();
+        if (anchor != null) {
+            this.anchors.put(anchor, new ArrayList<>(events.subList(start, events.size())));
+        }
+    }
+
+    /** 1 node 分のイベント列を、通常の load と同じ Resolver/Constructor で Java オブジェクトにする */
+    private Object construct(List<Event> nodeEvents) {
+        List<Event> document = new ArrayList<>(nodeEvents.size() + 4);
+        document.add(new StreamStartEvent(null, null));
+        document.add(new DocumentStartEvent(null, null, false, null, null));
+        document.addAll(nodeEvents);
+        document.add(new DocumentEndEvent(null, null, false));
+        document.add(new StreamEndEvent(null, null));
+        Composer composer = new Composer(new EventListParser(document), new Resolver());
+        return this.constructor.construct(composer.getSingleNode());
+    }
+
+
+    private static class NodeConstructor extends Constructor {
+        Object construct(Node node) {
+            return constructDocument(node);
+        }
+    }
+
+    private static class EventListParser implements Parser {
+        private final List<Event> events;
+        private int index = 0;
+
+        EventListParser(List<Event> events) {
+            this.events = events;
+        }
+
+        @Override
+        public boolean checkEvent(Event.ID choice) {
+            return index < events.size() && events.get(index).is(choice);
+        }
+
+        @Override
+        public Event peekEvent() {
+            return index < events.size() ? events.get(index) : null;
+        }
+
+        @Override
+        public Event getEvent() {
+            return index < events.size() ? events.get(index++) : null;
+        }
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.matsuyoido.ddl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+public class DatabaseTableTest {
+
+    @Test
+    public void addKey_columnOrder() throws Exception {
+        DatabaseTable table = new DatabaseTable("sample");
+        table.addColumns(List.of(new DatabaseColumn("a", "INT"), new DatabaseColumn("b", "INT"), new DatabaseColumn("c", "INT")));
+
+        assertTrue(table.addPrimaryKey("b", "a"));
+        assertTrue(table.addUniqueKey("uk_01", "c", "a"));
+        assertTrue(table.hasUniqueKey("uk_01"));
+        assertFalse(table.addUniqueKey("uk_01", "b"), "same key name");
+        assertFalse(table.addIndexKey("idx_01", "a", "x"), "column not found");
+        assertFalse(table.addIndexKey("idx_01", "a", "a"), "same column");
+        assertFalse(table.hasIndexKey("idx_01"));
+
+        SqlKeywords keywords = SqlKeywords.of(false);
+        StringBuilder createSentence = new StringBuilder();
+        table.appendCreateSentence(createSentence, keywords, false, Optional.empty(), "\n");
+        // PK は指定順、UK はカラムの定義順
+        assertTrue(createSentence.toString().endsWith("\nALTER TABLE sample ADD CONSTRAINT sample_PK PRIMARY KEY (b, a);"), createSentence.toString());
+        StringBuilder uniqueKeySentence = new StringBuilder();
+        table.appendUniqueKeySentence(uniqueKeySentence, keywords, Optional.empty(), "\n");
+        assertEquals("ALTER TABLE sample ADD CONSTRAINT uk_01 UNIQUE (a, c);", uniqueKeySentence.toString());
+        StringBuilder indexKeySentence = new StringBuilder();
+        table.appendIndexKeySentence(indexKeySentence, keywords, Optional.empty(), "\n");
+        assertEquals("", indexKeySentence.toString());
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.matsuyoido.ddl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class ERDiagramTest {
+
+    @Test
+    public void writeSvg_tableContents() throws Exception {
+        DatabaseTable user = new DatabaseTable("user").logicalName("ユーザー");
+        user.addColumns(List.of(new DatabaseColumn("id", "INT").logicalName("ID"),
+                                new DatabaseColumn("name", "VARCHAR(50)").logicalName("名前")));
+        user.addPrimaryKey("id");
+        user.addUniqueKey("uq_user_01", "name");
+        DatabaseTable shop = new DatabaseTable("shop");
+        shop.addColumns(List.of(new DatabaseColumn("id", "INT"), new DatabaseColumn("user_id", "INT")));
+        shop.addPrimaryKey("id");
+        shop.addIndexKey("idx_shop_01", "user_id");
+        shop.addForeignKey("fk_shop_01", List.of("user_id"), user, List.of("id"));
+
+        StringBuilder svg = new StringBuilder();
+        new ERDiagram("sample <1.0>", List.of(user, shop)).writeSvg(svg);
+        String output = svg.toString();
+        assertTrue(output.contains("ユーザー"), "table logical name");
+        assertTrue(output.contains("名前"), "column logical name");
+        assertTrue(output.contains("VARCHAR(50)"));
+        assertTrue(output.contains("UK uq_user_01 (name)"));
+        assertTrue(output.contains("IX idx_shop_01 (user_id)"));
+        assertTrue(output.contains(">PK<"));
+        assertTrue(output.contains("FK IX"));
+        assertTrue(output.contains("fk_shop_01"), "relation title");
+        assertFalse(output.contains("<1.0>"), "escaped");
+
+        // 同じ定義なら同じ出力
+        StringBuilder again = new StringBuilder();
+        new ERDiagram("sample <1.0>", List.of(user, shop)).writeSvg(again);
+        assertEquals(output, again.toString());
+    }
+
+    @Test
+    public void layout_parentAboveChild() {
+        Random random = new Random(1);
+        ERLayout layout = new ERLayout();
+        int nodeSize = 300;
+        for (int i = 0; i < nodeSize; i++) {
+            layout.addNode(150 + random.nextInt(200), 60 + random.nextInt(300));
+        }
+        List<ERLayout.Edge> edges = new ArrayList<>();
+        for (int i = 1; i < nodeSize; i++) {
+            // 参照先は自分より前のテーブル (循環なし)
+            for (int j = random.nextInt(3); j > 0; j--) {
+                edges.add(layout.addEdge(i, random.nextInt(i)));
+            }
+        }
+        layout.addNode(100, 100);
+
+        long start = System.nanoTime();
+        layout.layout();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(elapsedMillis < 5_000, elapsedMillis + "ms");
+
+        for (ERLayout.Edge edge : edges) {
+            ERLayout.Node child = layout.node(edge.from);
+            ERLayout.Node parent = layout.node(edge.to);
+            if (edge.from != edge.to) {
+                assertTrue(parent.y + parent.height < child.y, edge.from + " -> " + edge.to);
+            }
+            assertFalse(edge.points.isEmpty());
+        }
+        for (int i = 0; i <= nodeSize; i++) {
+            ERLayout.Node a = layout.node(i);
+            assertTrue(0 <= a.x && a.x + a.width <= layout.width() && 0 <= a.y && a.y + a.height <= layout.height(), "node " + i);
+            for (int j = i + 1; j <= nodeSize; j++) {
+                ERLayout.Node b = layout.node(j);
+                boolean overlap = a.x < b.x + b.width && b.x < a.x + a.width && a.y < b.y + b.height && b.y < a.y + a.height;
+                assertFalse(overlap, "node " + i + " and " + j);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.matsuyoido.ddl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+public class SchemaDiffTest {
+
+    @Test
+    public void append_noChanges() throws Exception {
+        StringBuilder out = new StringBuilder();
+        SchemaDiff diff = new SchemaDiff(schema("INT"), Map.of(), schema("INT"), Map.of(), SqlKeywords.of(false), Optional.empty(), "\n");
+
+        assertFalse(diff.append(out));
+        assertEquals("", out.toString());
+    }
+
+    @Test
+    public void append_referencedColumnModified() throws Exception {
+        StringBuilder out = new StringBuilder();
+        SchemaDiff diff = new SchemaDiff(schema("INT"), Map.of(), schema("BIGINT"), Map.of(), SqlKeywords.of(false), Optional.empty(), "\n");
+
+        assertTrue(diff.append(out));
+        // 型を変えるカラムを参照している FK は、変更前に消して変更後に作り直す
+        assertEquals(String.join("\n",
+            "ALTER TABLE child DROP FOREIGN KEY fk_child_01;",
+            "",
+            "ALTER TABLE parent MODIFY id BIGINT NOT NULL;",
+            "ALTER TABLE child MODIFY parent_id BIGINT;",
+            "",
+            "ALTER TABLE child ADD CONSTRAINT fk_child_01 FOREIGN KEY(parent_id) REFERENCES parent (id);",
+            "",
+            ""), out.toString());
+    }
+
+    private static List<DatabaseTable> schema(String idType) {
+        DatabaseTable parent = new DatabaseTable("parent");
+        parent.addColumns(List.of(new DatabaseColumn("id", idType).constraints("NOT NULL")));
+        assertTrue(parent.addPrimaryKey("id"));
+        DatabaseTable child = new DatabaseTable("child");
+        child.addColumns(List.of(new DatabaseColumn("id", "INT").constraints("NOT NULL"), new DatabaseColumn("parent_id", idType)));
+        assertTrue(child.addPrimaryKey("id"));
+        assertTrue(child.addForeignKey("fk_child_01", List.of("parent_id"), parent, List.of("id")));
+        return List.of(parent, child);
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.matsuyoido.plugin.er;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ネットワークにつながないテスト用の schemaspy。
+ * テンプレート (-template) を受け取ったことを確かめて、出力先 (-o) に index.html を書く。
+ */
+public class FakeSchemaspy {
+
+    public static void main(String[] args) throws IOException {
+        List<String> arguments = Arrays.asList(args);
+        Path template = Path.of(arguments.get(arguments.indexOf("-template") + 1));
+        if (!Files.exists(template.resolve("container.html"))) {
+            throw new IllegalStateException("template not found: " + template);
+        }
+        Path outputDirectory = Path.of(arguments.get(arguments.indexOf("-o") + 1));
+        Files.createDirectories(outputDirectory);
+        Files.writeString(outputDirectory.resolve("index.html"), "<html></html>");
+    }
+
+}
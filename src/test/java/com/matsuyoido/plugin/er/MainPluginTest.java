@@ -1,21 +1,30 @@
 package com.matsuyoido.plugin.er;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.List;
 import java.util.function.Predicate;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
 import java.util.stream.Collectors;
 
 import org.gradle.testkit.runner.BuildResult;
 import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.TaskOutcome;
 import org.gradle.testkit.runner.UnexpectedBuildFailure;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Disabled;
@@ -209,6 +218,286 @@ public class MainPluginTest {
             testCase + " DDL content equals.");
     }
 
+    @Test
+    public void ddlTaskExecute_truncateCycle() throws Exception {
+        String yamlFileName = classpathResourcePath("testcase/46_truncateCycle.yml");
+        setup(
+            "yamlER {",
+            "    lineEnding = 'linux'",
+            "    ddl {",
+            "      yaml = file('" + yamlFileName + "')",
+            "      outDir = file('./')",
+            "      truncate = true",
+            "    }",
+            "}"
+        );
+
+        String output = run("5.0", "ddl").getOutput();
+
+        File resultFile = projectDir.resolve("ddl.sql").toFile();
+        assertTrue(resultFile.exists(), "create ddl file exist?");
+        assertTrue(output.contains("circular foreign key reference"), "circular reference warning?");
+        Assertions.assertArrayEquals(
+            Files.readAllLines(Path.of(classpathResourcePath("testcase/47_result.sql"))).stream().filter(Predicate.not(String::isBlank)).toArray(),
+            Files.readAllLines(resultFile.toPath()).stream().filter(Predicate.not(String::isBlank)).toArray(),
+            "DDL content equals.");
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        ",testcase/00_all.yml,ddl-1.0.0.sql,testcase/01_result.sql,false",
+        ",testcase/10_simple.yml,ddl.sql,testcase/11_result.sql,false",
+        ",testcase/20_containsDomain.yml,ddl.sql,testcase/21_result.sql,false",
+        ",testcase/30_containsKeys.yml,ddl.sql,testcase/31_result.sql,false",
+        ",testcase/40_truncateTest.yml,ddl.sql,testcase/45_result.sql,true",
+        ",testcase/46_truncateCycle.yml,ddl.sql,testcase/47_result.sql,true"
+    })
+    public void ddlTaskExecute_streaming(String testCase, String yamlFilePath, String expectFileName, String expectResultFilePath, boolean truncate) throws Exception {
+        String yamlFileName = classpathResourcePath(yamlFilePath);
+        setup(
+            "yamlER {",
+            "    lineEnding = 'linux'",
+            "    ddl {",
+            "      yaml = file('" + yamlFileName + "')",
+            "      outDir = file('./')",
+            "      truncate = " + truncate,
+            "      streaming = true",
+            "    }",
+            "}"
+        );
+
+        run("5.0", "ddl").getOutput();
+
+        File resultFile = projectDir.resolve(expectFileName).toFile();
+        assertTrue(resultFile.exists(), testCase + " create ddl file exist?");
+        Assertions.assertArrayEquals(
+            Files.readAllLines(Path.of(classpathResourcePath(expectResultFilePath))).stream().filter(Predicate.not(String::isBlank)).toArray(),
+            Files.readAllLines(resultFile.toPath()).stream().filter(Predicate.not(String::isBlank)).toArray(),
+            testCase + " DDL content equals.");
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        ",yaml,file,false",
+        ",yamlFiles,fileTree,false",
+        ",yaml,file,true"
+    })
+    public void ddlTaskExecute_splitFiles(String testCase, String settingName, String fileMethod, boolean streaming) throws Exception {
+        String yamlDirName = classpathResourcePath("testcase/50_split");
+        setup(
+            "yamlER {",
+            "    lineEnding = 'linux'",
+            "    ddl {",
+            "      " + settingName + " = " + fileMethod + "('" + yamlDirName + "')",
+            "      outDir = file('./')",
+            "      streaming = " + streaming,
+            "    }",
+            "}"
+        );
+
+        run("5.0", "ddl").getOutput();
+
+        File resultFile = projectDir.resolve("ddl-1.0.0.sql").toFile();
+        assertTrue(resultFile.exists(), testCase + " create ddl file exist?");
+        Assertions.assertArrayEquals(
+            Files.readAllLines(Path.of(classpathResourcePath("testcase/01_result.sql"))).stream().filter(Predicate.not(String::isBlank)).toArray(),
+            Files.readAllLines(resultFile.toPath()).stream().filter(Predicate.not(String::isBlank)).toArray(),
+            testCase + " DDL content equals.");
+    }
+
+    @Test
+    public void ddlTaskExecute_dialects() throws Exception {
+        String yamlFileName = classpathResourcePath("testcase/48_dialects.yml");
+        setup(
+            "yamlER {",
+            "    lineEnding = 'linux'",
+            "    ddl {",
+            "      yaml = file('" + yamlFileName + "')",
+            "      outDir = file('./')",
+            "      truncate = true",
+            "      dialects = ['mysql', 'postgresql', 'h2']",
+            "    }",
+            "}"
+        );
+
+        run("5.0", "ddl").getOutput();
+
+        assertFalse(projectDir.resolve("ddl.sql").toFile().exists(), "no ddl file without dialect?");
+        for (String dialect : List.of("mysql", "postgresql", "h2")) {
+            File resultFile = projectDir.resolve(dialect).resolve("ddl.sql").toFile();
+            assertTrue(resultFile.exists(), dialect + " create ddl file exist?");
+            Assertions.assertArrayEquals(
+                Files.readAllLines(Path.of(classpathResourcePath("testcase/49_" + dialect + "_result.sql"))).stream().filter(Predicate.not(String::isBlank)).toArray(),
+                Files.readAllLines(resultFile.toPath()).stream().filter(Predicate.not(String::isBlank)).toArray(),
+                dialect + " DDL content equals.");
+        }
+    }
+
+    @Test
+    public void ddlTaskExecute_migration() throws Exception {
+        String previousYamlFileName = classpathResourcePath("testcase/60_migrationPrevious.yml");
+        String yamlFileName = classpathResourcePath("testcase/61_migrationCurrent.yml");
+        setup(
+            "yamlER {",
+            "    lineEnding = 'linux'",
+            "    ddl {",
+            "      yaml = file('" + yamlFileName + "')",
+            "      previousYaml = file('" + previousYamlFileName + "')",
+            "      outDir = file('./')",
+            "    }",
+            "}"
+        );
+
+        run("5.0", "ddl").getOutput();
+
+        assertTrue(projectDir.resolve("ddl-1.1.0.sql").toFile().exists(), "create ddl file exist?");
+        File resultFile = projectDir.resolve("ddl-1.1.0-migration.sql").toFile();
+        assertTrue(resultFile.exists(), "create migration ddl file exist?");
+        Assertions.assertArrayEquals(
+            Files.readAllLines(Path.of(classpathResourcePath("testcase/62_result.sql"))).stream().filter(Predicate.not(String::isBlank)).toArray(),
+            Files.readAllLines(resultFile.toPath()).stream().filter(Predicate.not(String::isBlank)).toArray(),
+            "migration DDL content equals.");
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        ",testcase/00_all.yml,ddl-1.0.0.sql,testcase/01_result.sql",
+        ",testcase/30_containsKeys.yml,ddl.sql,testcase/31_result.sql"
+    })
+    public void ddlTaskExecute_cached(String testCase, String yamlFilePath, String expectFileName, String expectResultFilePath) throws Exception {
+        String yamlFileName = classpathResourcePath(yamlFilePath);
+        setup(
+            "yamlER {",
+            "    lineEnding = 'linux'",
+            "    ddl {",
+            "      yaml = file('" + yamlFileName + "')",
+            "      outDir = file('./')",
+            "    }",
+            "}"
+        );
+
+        run("5.0", "ddl").getOutput();
+        File resultFile = projectDir.resolve(expectFileName).toFile();
+        resultFile.delete();
+        String output = run("5.0", "ddl", "--info").getOutput();
+
+        assertTrue(output.contains("parsed yaml loaded from cache"), testCase + " second run uses cache?");
+        assertTrue(output.contains("ddl fragments rendered: 0 /"), testCase + " second run reuses ddl fragments?");
+        assertTrue(resultFile.exists(), testCase + " create ddl file exist?");
+        Assertions.assertArrayEquals(
+            Files.readAllLines(Path.of(classpathResourcePath(expectResultFilePath))).stream().filter(Predicate.not(String::isBlank)).toArray(),
+            Files.readAllLines(resultFile.toPath()).stream().filter(Predicate.not(String::isBlank)).toArray(),
+            testCase + " DDL content equals.");
+    }
+
+    @Test
+    public void ddlTaskExecute_unchangedFileNotRewritten() throws Exception {
+        String yamlFileName = classpathResourcePath("testcase/10_simple.yml");
+        setup(
+            "yamlER {",
+            "    lineEnding = 'windows'",
+            "    ddl {",
+            "      yaml = file('" + yamlFileName + "')",
+            "      outDir = file('./')",
+            "    }",
+            "}"
+        );
+
+        run("6.6", "ddl").getOutput();
+        File resultFile = projectDir.resolve("ddl.sql").toFile();
+        long lastModified = 1000000000000L;
+        resultFile.setLastModified(lastModified);
+        String output = run("6.6", "ddl", "--rerun-tasks").getOutput();
+
+        assertTrue(output.contains("ddl file not changed"), "same content is not written?");
+        assertEquals(lastModified, resultFile.lastModified(), "last modified is kept?");
+        assertTrue(Files.readString(resultFile.toPath()).contains("\r\n"), "line end is windows?");
+    }
+
+    @Test
+    public void ddlTaskExecute_configurationCache() throws Exception {
+        String yamlFileName = classpathResourcePath("testcase/10_simple.yml");
+        setup(
+            "yamlER {",
+            "    lineEnding = 'linux'",
+            "    ddl {",
+            "      yaml = file('" + yamlFileName + "')",
+            "      outDir = file('./')",
+            "    }",
+            "}"
+        );
+
+        run("6.6", "ddl", "--configuration-cache").getOutput();
+        projectDir.resolve("ddl.sql").toFile().delete();
+        String output = run("6.6", "ddl", "--configuration-cache").getOutput();
+
+        assertTrue(output.contains("Reusing configuration cache."), "configuration cache reused?");
+        Assertions.assertArrayEquals(
+            Files.readAllLines(Path.of(classpathResourcePath("testcase/11_result.sql"))).stream().filter(Predicate.not(String::isBlank)).toArray(),
+            Files.readAllLines(projectDir.resolve("ddl.sql")).stream().filter(Predicate.not(String::isBlank)).toArray(),
+            "DDL content equals.");
+    }
+
+    @ParameterizedTest
+    @CsvSource({"5.0", "6.6"})
+    public void ddlTaskExecute_multipleBlocks(String gradleVersion) throws Exception {
+        setup(
+            "yamlER {",
+            "    lineEnding = 'linux'",
+            "    ddl {",
+            "      yaml = file('" + classpathResourcePath("testcase/10_simple.yml") + "')",
+            "      outDir = file('./simple')",
+            "    }",
+            "    ddl {",
+            "      yaml = file('" + classpathResourcePath("testcase/30_containsKeys.yml") + "')",
+            "      outDir = file('./keys')",
+            "    }",
+            "}"
+        );
+
+        run(gradleVersion, "ddl").getOutput();
+
+        assertAll(
+            () -> Assertions.assertArrayEquals(
+                Files.readAllLines(Path.of(classpathResourcePath("testcase/11_result.sql"))).stream().filter(Predicate.not(String::isBlank)).toArray(),
+                Files.readAllLines(projectDir.resolve("simple/ddl.sql")).stream().filter(Predicate.not(String::isBlank)).toArray(),
+                "10_simple.yml DDL content equals."),
+            () -> Assertions.assertArrayEquals(
+                Files.readAllLines(Path.of(classpathResourcePath("testcase/31_result.sql"))).stream().filter(Predicate.not(String::isBlank)).toArray(),
+                Files.readAllLines(projectDir.resolve("keys/ddl.sql")).stream().filter(Predicate.not(String::isBlank)).toArray(),
+                "30_containsKeys.yml DDL content equals.")
+        );
+    }
+
+    @ParameterizedTest
+    @CsvSource({"5.0", "6.6"})
+    public void ddlTaskExecute_upToDate(String gradleVersion) throws Exception {
+        Path yamlFile = projectDir.resolve("schema.yml");
+        Files.copy(Path.of(classpathResourcePath("testcase/10_simple.yml")), yamlFile);
+        setup(
+            "yamlER {",
+            "    lineEnding = 'linux'",
+            "    ddl {",
+            "      yaml = file('schema.yml')",
+            "      outDir = file('./ddl')",
+            "    }",
+            "}"
+        );
+        // TestKit の Gradle ユーザーホームを共有しないよう、テストごとのキャッシュを使う
+        Files.writeString(projectDir.resolve("settings.gradle"), "buildCache { local { directory = new File(rootDir, 'build-cache') } }");
+
+        assertEquals(TaskOutcome.SUCCESS, run(gradleVersion, "ddl", "--build-cache").task(":ddl").getOutcome(), "first run");
+        assertEquals(TaskOutcome.UP_TO_DATE, run(gradleVersion, "ddl", "--build-cache").task(":ddl").getOutcome(), "no change");
+
+        File resultFile = projectDir.resolve("ddl/ddl.sql").toFile();
+        resultFile.delete();
+        assertEquals(TaskOutcome.FROM_CACHE, run(gradleVersion, "ddl", "--build-cache").task(":ddl").getOutcome(), "output deleted");
+        assertTrue(resultFile.exists(), "ddl file restored from build cache?");
+
+        Files.writeString(yamlFile, Files.readString(yamlFile) + System.lineSeparator() + "# changed" + System.lineSeparator());
+        assertEquals(TaskOutcome.SUCCESS, run(gradleVersion, "ddl", "--build-cache").task(":ddl").getOutcome(), "yaml changed");
+    }
+
     @ParameterizedTest
     @CsvSource({"5.0", "6.5.1", "6.6"})
     public void erTaskExecute_minimum(String gradleVersion) throws Exception {
@@ -230,6 +519,128 @@ public class MainPluginTest {
         assertTrue(resultFile.exists(), "ER html file exist?");
     }
 
+    @Test
+    public void erTaskExecute_yaml() throws Exception {
+        String yamlFileName = classpathResourcePath("testcase/48_dialects.yml");
+
+        setup(
+            "yamlER {",
+            "    lineEnding = 'linux'",
+            "    er {",
+            "      yaml = file('" + yamlFileName + "')",
+            "      outDir = file('./er')",
+            "    }",
+            "}"
+        );
+
+        run("5.0", "er").getOutput();
+
+        File resultFile = projectDir.resolve("er/index.html").toFile();
+        assertTrue(resultFile.exists(), "ER html file exist?");
+        assertFalse(projectDir.resolve("ddl.sql").toFile().exists(), "no ddl file written?");
+    }
+
+    @Test
+    public void erTaskExecute_native() throws Exception {
+        String yamlFileName = classpathResourcePath("testcase/30_containsKeys.yml");
+
+        setup(
+            "yamlER {",
+            "    lineEnding = 'linux'",
+            "    er {",
+            "      yaml = file('" + yamlFileName + "')",
+            "      renderer = 'native'",
+            "      outDir = file('./er')",
+            "    }",
+            "}"
+        );
+
+        run("5.0", "er").getOutput();
+
+        assertTrue(projectDir.resolve("er/index.html").toFile().exists(), "ER html file exist?");
+        String svg = new String(Files.readAllBytes(projectDir.resolve("er/er.svg")), StandardCharsets.UTF_8);
+        assertTrue(svg.contains("uq_user_01"), svg);
+    }
+
+    @Test
+    public void erTaskExecute_native_configurationCache() throws Exception {
+        String yamlFileName = classpathResourcePath("testcase/30_containsKeys.yml");
+        setup(
+            "yamlER {",
+            "    lineEnding = 'linux'",
+            "    er {",
+            "      yaml = file('" + yamlFileName + "')",
+            "      renderer = 'native'",
+            "      outDir = file('./er')",
+            "    }",
+            "}"
+        );
+
+        run("6.6", "er", "--configuration-cache").getOutput();
+        projectDir.resolve("er/er.svg").toFile().delete();
+        String output = run("6.6", "er", "--configuration-cache").getOutput();
+
+        assertTrue(output.contains("Reusing configuration cache."), "configuration cache reused?");
+        assertTrue(projectDir.resolve("er/index.html").toFile().exists(), "ER html file exist?");
+        String svg = new String(Files.readAllBytes(projectDir.resolve("er/er.svg")), StandardCharsets.UTF_8);
+        assertTrue(svg.contains("uq_user_01"), svg);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"5.0", "6.6"})
+    public void erTaskExecute_worker(String gradleVersion) throws Exception {
+        String ddlFileName = classpathResourcePath("testcase/31_result.sql");
+
+        setup(
+            "yamlER {",
+            "    lineEnding = 'linux'",
+            "    erWorker = true",
+            "    er {",
+            "      ddl = file('" + ddlFileName + "')",
+            "      outDir = file('./er1')",
+            "    }",
+            "    er {",
+            "      ddl = file('" + ddlFileName + "')",
+            "      outDir = file('./er2')",
+            "    }",
+            "}"
+        );
+
+        // 2回目は worker プロセスと読み込み済みの schemaspy を使い回す
+        for (int i = 0; i < 2; i++) {
+            run(gradleVersion, "er").getOutput();
+
+            assertTrue(projectDir.resolve("er1/index.html").toFile().exists(), "ER html file exist?");
+            assertTrue(projectDir.resolve("er2/index.html").toFile().exists(), "ER html file exist?");
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({"5.0", "6.6"})
+    public void erTaskExecute_multipleBlocks(String gradleVersion) throws Exception {
+        setup(
+            "yamlER {",
+            "    lineEnding = 'linux'",
+            "    erParallelism = 2",
+            "    er {",
+            "      ddl = file('" + classpathResourcePath("testcase/31_result.sql") + "')",
+            "      outDir = file('./er1')",
+            "    }",
+            "    er {",
+            "      ddl = file('" + classpathResourcePath("testcase/11_result.sql") + "')",
+            "      outDir = file('./er2')",
+            "    }",
+            "}"
+        );
+
+        run(gradleVersion, "er").getOutput();
+
+        assertAll(
+            () -> assertTrue(projectDir.resolve("er1/index.html").toFile().exists(), "ER html file exist? (1)"),
+            () -> assertTrue(projectDir.resolve("er2/index.html").toFile().exists(), "ER html file exist? (2)")
+        );
+    }
+
     @Test
     public void erTaskExecute_schemaspyVersion() throws Exception {
         String ddlFileName = classpathResourcePath("testcase/31_result.sql");
@@ -269,6 +680,53 @@ public class MainPluginTest {
         assertThrows(UnexpectedBuildFailure.class, () -> run("5.0", "er"));
     }
 
+    @Test
+    public void erTaskExecute_localRepository_notFound() throws Exception {
+        String ddlFileName = classpathResourcePath("testcase/31_result.sql");
+
+        setup(
+            "repositories {",
+            "    maven { url file('offline-repo') }",
+            "}",
+            "yamlER {",
+            "    lineEnding = 'linux'",
+            "    er {",
+            "      ddl = file('" + ddlFileName + "')",
+            "      outDir = file('./er')",
+            "    }",
+            "}"
+        );
+
+        // 宣言したリポジトリだけを使い、ネットワークにはつながない
+        UnexpectedBuildFailure failure = assertThrows(UnexpectedBuildFailure.class, () -> run("5.0", "er", "--offline"));
+        assertTrue(failure.getBuildResult().getOutput().contains("org.schemaspy:schemaspy:6.1.0"), failure.getBuildResult().getOutput());
+    }
+
+    @Test
+    public void erTaskExecute_offline() throws Exception {
+        String ddlFileName = classpathResourcePath("testcase/31_result.sql");
+        publishFakeSchemaspy(projectDir.resolve("offline-repo"), "6.1.0");
+
+        setup(
+            "repositories {",
+            "    maven { url file('offline-repo') }",
+            "}",
+            "yamlER {",
+            "    lineEnding = 'linux'",
+            "    er {",
+            "      ddl = file('" + ddlFileName + "')",
+            "      outDir = file('./er')",
+            "    }",
+            "}"
+        );
+
+        // schemaspy はローカルのリポジトリから、テンプレートはプラグインの jar から取り出す
+        run("5.0", "er", "--offline");
+
+        File resultFile = projectDir.resolve("er/index.html").toFile();
+        assertTrue(resultFile.exists(), "ER html file exist?");
+    }
+
     @Disabled("実際のDB環境が必要なため")
     @Test
     public void erTaskExecute_connectMysql() throws Exception {
@@ -353,6 +811,60 @@ public class MainPluginTest {
         assertTrue(resultFile.exists(), "ER html file exist?");
     }
 
+    @Test
+    public void generateSchemaTaskExecute() throws Exception {
+        setup(
+            "tasks.register('generateSchema', com.matsuyoido.plugin.er.task.GenerateSchemaTask) {",
+            "    outputFile.set(file('schema/generated.yml'))",
+            "    generator {",
+            "        tableCount = 500",
+            "        chainDepth = 50",
+            "        cycleCount = 1",
+            "    }",
+            "}",
+            "yamlER {",
+            "    lineEnding = 'linux'",
+            "    ddl {",
+            "      yaml = file('schema/generated.yml')",
+            "      outDir = file('./')",
+            "      truncate = true",
+            "    }",
+            "}"
+        );
+
+        run("5.0", "generateSchema");
+        assertTrue(projectDir.resolve("schema/generated.yml").toFile().exists(), "create yaml file exist?");
+        run("5.0", "ddl");
+
+        File resultFile = projectDir.resolve("ddl-1.0.0.sql").toFile();
+        assertTrue(resultFile.exists(), "create ddl file exist?");
+        assertEquals(500, Files.readAllLines(resultFile.toPath()).stream().filter(line -> line.startsWith("CREATE TABLE ")).count());
+    }
+
+    /** FakeSchemaspy を schemaspy の jar として、Maven 形式のリポジトリに置く */
+    private void publishFakeSchemaspy(Path repository, String version) throws IOException {
+        Path moduleDirectory = repository.resolve("org/schemaspy/schemaspy/" + version);
+        Files.createDirectories(moduleDirectory);
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, FakeSchemaspy.class.getName());
+        String classFileName = FakeSchemaspy.class.getName().replace('.', '/') + ".class";
+        try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(moduleDirectory.resolve("schemaspy-" + version + ".jar")), manifest);
+            InputStream classFile = FakeSchemaspy.class.getClassLoader().getResourceAsStream(classFileName)) {
+            jar.putNextEntry(new JarEntry(classFileName));
+            classFile.transferTo(jar);
+            jar.closeEntry();
+        }
+        Files.writeString(moduleDirectory.resolve("schemaspy-" + version + ".pom"), String.join(System.lineSeparator(),
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>",
+            "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">",
+            "  <modelVersion>4.0.0</modelVersion>",
+            "  <groupId>org.schemaspy</groupId>",
+            "  <artifactId>schemaspy</artifactId>",
+            "  <version>" + version + "</version>",
+            "</project>"));
+    }
+
     private void setup(String... extensionText) throws IOException {
         projectDir.resolve("settings.gradle").toFile().createNewFile();
         File buildGradle = projectDir.resolve("build.gradle").toFile();
@@ -0,0 +1,187 @@
+package com.matsuyoido.plugin.er.task;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import com.matsuyoido.LineEnd;
+import com.matsuyoido.ddl.DatabaseTable;
+import com.matsuyoido.plugin.er.DDLExtension;
+
+import org.gradle.api.logging.Logger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DDLGeneratorTest {
+
+    @TempDir
+    Path workDir;
+
+    /** warn・error の出力 */
+    private final List<String> warnings = new ArrayList<>();
+
+    /** 手書きの testcase では届かない規模・構成で、通常の生成と streaming の結果が同じ */
+    @Test
+    public void generate_streamingEqualsNormal() throws Exception {
+        SchemaGenerator generator = new SchemaGenerator();
+        generator.setTableCount(300);
+        generator.setCompositeKeyRatio(0.5);
+        generator.setChainDepth(20);
+        generator.setCycleCount(2);
+        File yaml = write(generator, "schema.yml");
+        DDLRenderer renderer = new DDLRenderer(new DDLExtension(), LineEnd.LINUX);
+
+        String expected = renderNormal(renderer, List.of(yaml));
+
+        File output = this.workDir.resolve("ddl.sql").toFile();
+        new StreamingDDLGenerator(logger(), renderer, true, this.workDir.resolve("work").toFile())
+            .generate(List.of(yaml), version -> output);
+
+        assertEquals(expected, Files.readString(output.toPath()));
+    }
+
+    /** 並列に作っても、テーブルの定義順で同じ DDL になる */
+    @Test
+    public void generate_parallelEqualsSequential() throws Exception {
+        SchemaGenerator generator = new SchemaGenerator();
+        generator.setTableCount(DDLGenerator.PARALLEL_THRESHOLD * 4);
+        YamlSchemaLoader loader = new YamlSchemaLoader(logger());
+        List<DatabaseTable> tables = loader.loadYamlFile(loader.readYamlFiles(List.of(write(generator, "schema.yml")))).tables;
+        DDLRenderer renderer = new DDLRenderer(new DDLExtension(), LineEnd.LINUX);
+        Function<DatabaseTable, FragmentCache.Fragment> render = table -> new FragmentCache.Fragment(null, renderer.createTable(table), renderer.keys(table));
+        File work = this.workDir.toFile();
+
+        List<FragmentCache.Fragment> sequential = new DDLGenerator(logger(), LineEnd.LINUX, work, 0, work, 1).renderTables(tables, render);
+        List<FragmentCache.Fragment> parallel = new DDLGenerator(logger(), LineEnd.LINUX, work, 0, work, 4).renderTables(tables, render);
+
+        assertEquals(tables.size(), parallel.size());
+        for (int i = 0; i < tables.size(); i++) {
+            assertEquals(sequential.get(i).createTable, parallel.get(i).createTable);
+            assertEquals(sequential.get(i).keys, parallel.get(i).keys);
+        }
+    }
+
+    /** ディレクトリに分けた yaml で同じテーブルを2回定義しても、通常の生成と streaming で同じ DDL (後のファイルの定義) になる */
+    @Test
+    public void generate_splitDirectory_streamingEqualsNormal() throws Exception {
+        Path schemaDir = Files.createDirectories(this.workDir.resolve("schema"));
+        File first = Files.writeString(schemaDir.resolve("01_base.yml"), String.join("\n",
+            "tables:",
+            "  author:",
+            "    columns:",
+            "      id:",
+            "        type: INT",
+            "    pk: id",
+            "  article:",
+            "    columns:",
+            "      id:",
+            "        type: INT",
+            "      author_id:",
+            "        type: INT",
+            "    pk: id",
+            "    fk:",
+            "      fk_article_01:",
+            "        relate: author_id",
+            "        to:",
+            "          author: id",
+            "")).toFile();
+        File second = Files.writeString(schemaDir.resolve("02_override.yml"), String.join("\n",
+            "tables:",
+            "  article:",
+            "    columns:",
+            "      id:",
+            "        type: INT",
+            "      title:",
+            "        type: VARCHAR(100)",
+            "    pk: id",
+            "  comment:",
+            "    columns:",
+            "      id:",
+            "        type: INT",
+            "    pk: id",
+            "")).toFile();
+        List<File> yamlFiles = List.of(first, second);
+        DDLRenderer renderer = new DDLRenderer(new DDLExtension(), LineEnd.LINUX);
+
+        String expected = renderNormal(renderer, yamlFiles);
+        assertTrue(expected.contains("title VARCHAR(100)"), "later definition used?");
+        assertTrue(!expected.contains("fk_article_01"), "fk of the overwritten definition removed?");
+        assertTrue(expected.indexOf("CREATE TABLE article") < expected.indexOf("CREATE TABLE comment"), "first definition order?");
+
+        File output = this.workDir.resolve("ddl.sql").toFile();
+        new StreamingDDLGenerator(logger(), renderer, true, this.workDir.resolve("work").toFile())
+            .generate(yamlFiles, version -> output);
+
+        assertEquals(expected, Files.readString(output.toPath()));
+        assertEquals(2, this.warnings.stream().filter(warning -> warning.contains("overwritten by 02_override.yml: tables.article")).count(),
+            "both modes warn the same? " + this.warnings);
+    }
+
+    /** キャッシュから読んだときも、パース時の warn を出す */
+    @Test
+    public void definitionCache_replaysWarnings() throws Exception {
+        File yaml = Files.writeString(this.workDir.resolve("schema.yml"), String.join("\n",
+            "tables:",
+            "  author:",
+            "    columns:",
+            "      id:",
+            "        type: INT",
+            "    pk: author_id",
+            "")).toFile();
+        List<File> yamlFiles = List.of(yaml);
+        DefinitionCache cache = new DefinitionCache(logger(), this.workDir.resolve("cache").toFile(), Long.MAX_VALUE);
+        String key = cache.key(yamlFiles);
+
+        YamlSchemaLoader loader = new YamlSchemaLoader(logger());
+        DatabaseDefinition database = loader.loadYamlFile(loader.readYamlFiles(yamlFiles));
+        cache.store(key, database, loader.getWarnings());
+        List<String> parsedWarnings = new ArrayList<>(this.warnings);
+        assertTrue(parsedWarnings.stream().anyMatch(warning -> warning.contains("PK: columns not found. [author_id]")), "warn on parse? " + parsedWarnings);
+
+        this.warnings.clear();
+        assertTrue(cache.load(key).isPresent(), "cache hit?");
+        assertEquals(parsedWarnings, this.warnings);
+    }
+
+    /** 通常のモード (全ての yaml を読んでから出力する) の DDL */
+    static String renderNormal(DDLRenderer renderer, YamlSchemaLoader loader, List<File> yamlFiles) throws Exception {
+        DatabaseDefinition database = loader.loadYamlFile(loader.readYamlFiles(yamlFiles));
+        StringBuilder ddl = new StringBuilder();
+        renderer.truncate(TableOrder.of(database.tables), ddl);
+        for (DatabaseTable table : database.tables) {
+            renderer.createTable(table, ddl);
+        }
+        for (DatabaseTable table : database.tables) {
+            renderer.keys(table, ddl);
+        }
+        return ddl.toString();
+    }
+
+    private String renderNormal(DDLRenderer renderer, List<File> yamlFiles) throws Exception {
+        return renderNormal(renderer, new YamlSchemaLoader(logger()), yamlFiles);
+    }
+
+    private File write(SchemaGenerator generator, String fileName) throws Exception {
+        File file = this.workDir.resolve(fileName).toFile();
+        generator.write(file);
+        return file;
+    }
+
+    /** warn・error だけ記録する Logger */
+    private Logger logger() {
+        return (Logger) Proxy.newProxyInstance(Logger.class.getClassLoader(), new Class<?>[] { Logger.class }, (proxy, method, args) -> {
+            if ((method.getName().equals("warn") || method.getName().equals("error")) && args != null && args.length > 0) {
+                this.warnings.add(String.valueOf(args[0]));
+            }
+            return method.getReturnType() == boolean.class ? false : null;
+        });
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.matsuyoido.plugin.er.task;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import com.matsuyoido.ddl.DatabaseTable;
+
+import org.gradle.api.logging.Logger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SchemaGeneratorTest {
+
+    @TempDir
+    Path workDir;
+
+    /** warn・error の出力 */
+    private final List<String> warnings = new ArrayList<>();
+
+    @Test
+    public void generate_loadWithoutWarning() throws Exception {
+        SchemaGenerator generator = new SchemaGenerator();
+        generator.setTableCount(200);
+        generator.setCompositeKeyRatio(0.5);
+        generator.setForeignKeyDensity(2.0);
+        generator.setChainDepth(10);
+        generator.setCycleCount(3);
+        generator.setCommentRatio(0.2);
+
+        YamlSchemaLoader loader = new YamlSchemaLoader(logger());
+        DatabaseDefinition database = loader.loadYamlFile(loader.readYamlFiles(List.of(write(generator, "schema.yml"))));
+
+        assertEquals(List.of(), this.warnings, "all columns and keys resolved?");
+        assertEquals(Optional.of("1.0.0"), database.version);
+        assertEquals(200, database.tables.size());
+        // 3つの連鎖の 10 テーブルずつが循環参照 (とそれを参照するテーブル)
+        TableOrder order = TableOrder.of(database.tables);
+        assertTrue(order.cyclicTables.size() >= 30, "cyclic tables: " + order.cyclicTables.size());
+    }
+
+    @Test
+    public void generate_deepChain() throws Exception {
+        SchemaGenerator generator = new SchemaGenerator();
+        generator.setTableCount(500);
+        generator.setForeignKeyDensity(0);
+        generator.setChainDepth(500);
+
+        YamlSchemaLoader loader = new YamlSchemaLoader(logger());
+        List<DatabaseTable> tables = loader.loadYamlFile(loader.readYamlFiles(List.of(write(generator, "schema.yml")))).tables;
+
+        assertEquals(500, TableOrder.of(tables).levels.size());
+    }
+
+    @Test
+    public void generate_sameSeedSameYaml() throws Exception {
+        SchemaGenerator generator = new SchemaGenerator();
+        StringWriter first = new StringWriter();
+        generator.write(first);
+        StringWriter second = new StringWriter();
+        generator.write(second);
+        assertEquals(first.toString(), second.toString());
+
+        generator.setSeed(1);
+        StringWriter other = new StringWriter();
+        generator.write(other);
+        assertTrue(!first.toString().equals(other.toString()), "seed changes yaml?");
+    }
+
+    /** 全テーブルをメモリに持たずに書き出せる */
+    @Test
+    public void generate_streaming() throws Exception {
+        SchemaGenerator generator = new SchemaGenerator();
+        generator.setTableCount(100_000);
+        long[] length = { 0 };
+        generator.write(new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int count) {
+                length[0] += count;
+            }
+            @Override
+            public void flush() {
+            }
+            @Override
+            public void close() {
+            }
+        });
+        assertTrue(length[0] > 100_000_000L, "yaml length: " + length[0]);
+    }
+
+    private File write(SchemaGenerator generator, String fileName) throws Exception {
+        File file = this.workDir.resolve(fileName).toFile();
+        generator.write(file);
+        return file;
+    }
+
+    /** warn・error だけ記録する Logger */
+    private Logger logger() {
+        return (Logger) Proxy.newProxyInstance(Logger.class.getClassLoader(), new Class<?>[] { Logger.class }, (proxy, method, args) -> {
+            if ((method.getName().equals("warn") || method.getName().equals("error")) && args != null && args.length > 0) {
+                this.warnings.add(String.valueOf(args[0]));
+            }
+            return method.getReturnType() == boolean.class ? false : null;
+        });
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.matsuyoido.plugin.er.task;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SchemaspyLayoutTest {
+
+    @TempDir
+    Path cacheDir;
+
+    @Test
+    public void extract_once() throws Exception {
+        Path layoutDir = SchemaspyLayout.extract(cacheDir, Optional.empty());
+        assertTrue(Files.exists(layoutDir.resolve("container.html")), "template extracted?");
+
+        // 展開済みなら、そのまま使う
+        Files.writeString(layoutDir.resolve("container.html"), "changed");
+        assertEquals(layoutDir, SchemaspyLayout.extract(cacheDir, Optional.empty()));
+        assertEquals("changed", Files.readString(layoutDir.resolve("container.html")));
+    }
+
+    @Test
+    public void extract_unknownVersion() throws Exception {
+        // 入れていないバージョンは、デフォルトのバージョンのテンプレートを使う
+        assertEquals(SchemaspyLayout.extract(cacheDir, Optional.of(ERDependencyResolver.DEFAULT_SCHEMASPY_VERSION)),
+                     SchemaspyLayout.extract(cacheDir, Optional.of("0.0.1")));
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.matsuyoido.plugin.er.task;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SchemaspyWorkQueueTest {
+
+    @TempDir
+    Path javaHome;
+
+    @Test
+    public void featureVersion() {
+        assertEquals(8, SchemaspyWorkQueue.featureVersion("1.8.0_292"));
+        assertEquals(11, SchemaspyWorkQueue.featureVersion("11.0.21"));
+        assertEquals(21, SchemaspyWorkQueue.featureVersion("21-ea"));
+        assertEquals(24, SchemaspyWorkQueue.featureVersion("24"));
+    }
+
+    @Test
+    public void javaVersion_gradleJava() throws Exception {
+        assertEquals(Runtime.version().feature(), SchemaspyWorkQueue.javaVersion(Optional.empty()));
+    }
+
+    /** Gradle の java ではなく、worker プロセスの java のバージョン */
+    @Test
+    public void javaVersion_releaseFile() throws Exception {
+        Path executable = Files.createDirectories(this.javaHome.resolve("bin")).resolve("java");
+        Files.writeString(executable, "");
+        Files.writeString(this.javaHome.resolve("release"), String.join("\n",
+            "IMPLEMENTOR=\"Eclipse Adoptium\"",
+            "JAVA_VERSION=\"24.0.1\"",
+            ""));
+
+        assertEquals(24, SchemaspyWorkQueue.javaVersion(Optional.of(executable.toString())));
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.matsuyoido.plugin.er.task;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import com.matsuyoido.plugin.er.task.SqlStatementReader.SqlStatement;
+
+import org.junit.jupiter.api.Test;
+
+public class SqlStatementReaderTest {
+
+    @Test
+    public void next_splitOutsideQuotesAndComments() throws Exception {
+        String script = String.join("\n",
+            "SET REFERENTIAL_INTEGRITY FALSE;",
+            "-- user; comment",
+            "CREATE TABLE user(",
+            "  name VARCHAR(10) COMMENT \"名前;表示名\",",
+            "  memo VARCHAR(10) DEFAULT 'it''s; ok' /* block; comment */",
+            ");",
+            ";",
+            "CREATE ALIAS f AS $$ String f() { return \";\"; } $$;",
+            "-- last",
+            "DROP TABLE `a;b`");
+
+        List<SqlStatement> statements = new ArrayList<>();
+        try (SqlStatementReader reader = new SqlStatementReader(new StringReader(script))) {
+            Optional<SqlStatement> statement;
+            while ((statement = reader.next()).isPresent()) {
+                statements.add(statement.get());
+            }
+        }
+
+        assertEquals(4, statements.size());
+        assertEquals("SET REFERENTIAL_INTEGRITY FALSE", statements.get(0).sql);
+        assertEquals(1, statements.get(0).line);
+        assertEquals(String.join("\n",
+            "CREATE TABLE user(",
+            "  name VARCHAR(10) COMMENT \"名前;表示名\",",
+            "  memo VARCHAR(10) DEFAULT 'it''s; ok'  ",
+            ")"), statements.get(1).sql);
+        // 文の前のコメント行は含めない
+        assertEquals(3, statements.get(1).line);
+        assertEquals("CREATE ALIAS f AS $$ String f() { return \";\"; } $$", statements.get(2).sql);
+        assertEquals(8, statements.get(2).line);
+        assertEquals("DROP TABLE `a;b`", statements.get(3).sql);
+        assertEquals(10, statements.get(3).line);
+    }
+
+}
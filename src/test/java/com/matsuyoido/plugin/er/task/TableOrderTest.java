@@ -0,0 +1,74 @@
+package com.matsuyoido.plugin.er.task;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import com.matsuyoido.ddl.DatabaseColumn;
+import com.matsuyoido.ddl.DatabaseTable;
+
+import org.junit.jupiter.api.Test;
+
+public class TableOrderTest {
+
+    @Test
+    public void of_levels() {
+        DatabaseTable master = table("master");
+        DatabaseTable user = table("user");
+        DatabaseTable item = table("item");
+        DatabaseTable order = table("orders");
+        // 参照するテーブルを先に定義しても、参照されるテーブルが先
+        reference(order, "fk_orders_01", user);
+        reference(order, "fk_orders_02", item);
+        reference(item, "fk_item_01", master);
+        // 自己参照は順番に影響しない
+        reference(user, "fk_user_01", user);
+
+        TableOrder tableOrder = TableOrder.of(List.of(order, item, user, master));
+
+        assertFalse(tableOrder.hasCycle());
+        assertEquals(List.of(List.of("user", "master"), List.of("item"), List.of("orders")), tableOrder.levels);
+        assertEquals(List.of("user", "master", "item", "orders"), tableOrder.tableNames());
+    }
+
+    @Test
+    public void of_cycle() {
+        DatabaseTable parent = table("parent");
+        DatabaseTable child = table("child");
+        DatabaseTable master = table("master");
+        DatabaseTable detail = table("detail");
+        DatabaseTable other = table("other");
+        reference(parent, "fk_parent_01", child);
+        reference(child, "fk_child_01", parent);
+        // 循環に入っているテーブルを参照するテーブル
+        reference(detail, "fk_detail_01", parent);
+        reference(detail, "fk_detail_02", master);
+        // 循環に関係ないテーブルを参照するテーブル
+        reference(other, "fk_other_01", master);
+
+        TableOrder tableOrder = TableOrder.of(List.of(parent, child, master, detail, other));
+
+        assertTrue(tableOrder.hasCycle());
+        assertEquals(List.of("parent", "child", "detail"), tableOrder.cyclicTables);
+        assertEquals(List.of(List.of("master"), List.of("other")), tableOrder.levels);
+        assertEquals(Map.of("parent", List.of("fk_parent_01"),
+                            "child", List.of("fk_child_01"),
+                            "detail", List.of("fk_detail_01", "fk_detail_02")), tableOrder.cyclicForeignKeys);
+        assertEquals(List.of("master", "other", "parent", "child", "detail"), tableOrder.tableNames());
+    }
+
+    private static DatabaseTable table(String tableName) {
+        DatabaseTable table = new DatabaseTable(tableName);
+        table.addColumns(List.of(new DatabaseColumn("id", "INT"), new DatabaseColumn("relation_id", "INT")));
+        table.addPrimaryKey("id");
+        return table;
+    }
+
+    private static void reference(DatabaseTable table, String keyName, DatabaseTable referencedTable) {
+        assertTrue(table.addForeignKey(keyName, List.of("relation_id"), referencedTable, List.of("id")), keyName);
+    }
+
+}
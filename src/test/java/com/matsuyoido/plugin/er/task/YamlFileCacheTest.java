@@ -0,0 +1,58 @@
+package com.matsuyoido.plugin.er.task;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.gradle.api.logging.Logger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class YamlFileCacheTest {
+
+    @TempDir
+    Path workDir;
+
+    @Test
+    public void read_parseChangedFileOnly() throws Exception {
+        File first = write("01.yml", "version: 1.0.0\ntables:\n  a:\n    columns:\n      id:\n        type: INT\n");
+        File second = write("02.yml", "tables:\n  b:\n    columns:\n      id:\n        type: INT\n");
+        List<File> yamlFiles = List.of(first, second);
+        YamlSchemaLoader loader = new YamlSchemaLoader(quietLogger());
+        YamlFileCache cache = new YamlFileCache();
+
+        Map<String, Object> yamlMap = cache.read(loader, yamlFiles);
+        assertEquals(2, cache.getLastParsedCount());
+        assertEquals(loader.readYamlFiles(yamlFiles), yamlMap);
+
+        cache.read(loader, yamlFiles);
+        assertEquals(0, cache.getLastParsedCount(), "unchanged files are not parsed?");
+
+        write("02.yml", "tables:\n  b:\n    columns:\n      id:\n        type: INT\n      name:\n        type: VARCHAR(20)\n");
+        yamlMap = cache.read(loader, yamlFiles);
+        assertEquals(1, cache.getLastParsedCount(), "only changed file is parsed?");
+        assertEquals(loader.readYamlFiles(yamlFiles), yamlMap);
+
+        // 更新日時・サイズが変わらない書き換えも、変更を検知したファイルはパースし直す
+        cache.invalidate(List.of(first));
+        cache.read(loader, yamlFiles);
+        assertEquals(1, cache.getLastParsedCount());
+    }
+
+    private File write(String fileName, String content) throws Exception {
+        File file = this.workDir.resolve(fileName).toFile();
+        Files.writeString(file.toPath(), content);
+        return file;
+    }
+
+    private static Logger quietLogger() {
+        return (Logger) Proxy.newProxyInstance(Logger.class.getClassLoader(), new Class<?>[] { Logger.class },
+            (proxy, method, args) -> method.getReturnType() == boolean.class ? false : null);
+    }
+
+}
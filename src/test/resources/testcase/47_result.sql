@@ -0,0 +1,36 @@
+-- circular foreign key reference: parent, child, detail
+ALTER TABLE IF EXISTS parent DROP CONSTRAINT IF EXISTS fk_parent_01;
+ALTER TABLE IF EXISTS child DROP CONSTRAINT IF EXISTS fk_child_01;
+ALTER TABLE IF EXISTS detail DROP CONSTRAINT IF EXISTS fk_detail_01;
+ALTER TABLE IF EXISTS detail DROP CONSTRAINT IF EXISTS fk_detail_02;
+
+DROP TABLE IF EXISTS detail;
+DROP TABLE IF EXISTS child;
+DROP TABLE IF EXISTS parent;
+DROP TABLE IF EXISTS master;
+
+-- parent
+CREATE TABLE parent(
+  id INT NOT NULL,
+  child_id INT
+);
+-- child
+CREATE TABLE child(
+  id INT NOT NULL,
+  parent_id INT NOT NULL
+);
+-- master
+CREATE TABLE master(
+  id INT NOT NULL
+);
+-- detail
+CREATE TABLE detail(
+  id INT NOT NULL,
+  parent_id INT NOT NULL,
+  master_id INT NOT NULL
+);
+
+ALTER TABLE parent ADD CONSTRAINT fk_parent_01 FOREIGN KEY(child_id) REFERENCES child (id);
+ALTER TABLE child ADD CONSTRAINT fk_child_01 FOREIGN KEY(parent_id) REFERENCES parent (id);
+ALTER TABLE detail ADD CONSTRAINT fk_detail_01 FOREIGN KEY(parent_id) REFERENCES parent (id);
+ALTER TABLE detail ADD CONSTRAINT fk_detail_02 FOREIGN KEY(master_id) REFERENCES master (id);
\ No newline at end of file
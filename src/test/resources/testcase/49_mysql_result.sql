@@ -0,0 +1,30 @@
+DROP TABLE IF EXISTS article;
+DROP TABLE IF EXISTS author;
+
+-- author : 著者
+CREATE TABLE author(
+  id INT UNSIGNED NOT NULL,
+  name VARCHAR(50) NOT NULL COMMENT '名前:it''s display name',
+  profile JSON,
+  active BOOLEAN NOT NULL DEFAULT true
+) COMMENT='記事を書く人';
+ALTER TABLE author ADD CONSTRAINT author_PK PRIMARY KEY (id);
+-- article
+CREATE TABLE article(
+  id INT UNSIGNED NOT NULL,
+  author_id INT NOT NULL,
+  body JSON
+);
+ALTER TABLE article ADD CONSTRAINT article_PK PRIMARY KEY (id);
+
+
+
+ALTER TABLE author ADD CONSTRAINT uq_author_01 UNIQUE (name);
+
+
+
+ALTER TABLE article ADD CONSTRAINT fk_article_01 FOREIGN KEY(author_id) REFERENCES author (id);
+
+
+
+CREATE INDEX idx_article_01 ON article (author_id);
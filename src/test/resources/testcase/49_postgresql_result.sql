@@ -0,0 +1,32 @@
+DROP TABLE IF EXISTS article;
+DROP TABLE IF EXISTS author;
+
+-- author : 著者
+CREATE TABLE author(
+  id SERIAL NOT NULL,
+  name VARCHAR(50) NOT NULL,
+  profile JSONB,
+  active BOOLEAN NOT NULL DEFAULT true
+);
+ALTER TABLE author ADD CONSTRAINT author_PK PRIMARY KEY (id);
+COMMENT ON TABLE author IS '記事を書く人';
+COMMENT ON COLUMN author.name IS '名前:it''s display name';
+-- article
+CREATE TABLE article(
+  id SERIAL NOT NULL,
+  author_id INT NOT NULL,
+  body JSONB
+);
+ALTER TABLE article ADD CONSTRAINT article_PK PRIMARY KEY (id);
+
+
+
+ALTER TABLE author ADD CONSTRAINT uq_author_01 UNIQUE (name);
+
+
+
+ALTER TABLE article ADD CONSTRAINT fk_article_01 FOREIGN KEY(author_id) REFERENCES author (id);
+
+
+
+CREATE INDEX idx_article_01 ON article (author_id);
@@ -0,0 +1,26 @@
+-- migration: 1.0.0 -> 1.1.0
+
+ALTER TABLE access_log DROP FOREIGN KEY fk_access_log_01;
+
+DROP INDEX idx_article_01 ON article;
+
+DROP TABLE IF EXISTS access_log;
+
+-- tag
+CREATE TABLE tag(
+  article_id INT NOT NULL,
+  name VARCHAR(20) NOT NULL
+);
+ALTER TABLE tag ADD CONSTRAINT tag_PK PRIMARY KEY (article_id, name);
+
+ALTER TABLE author MODIFY name VARCHAR(100) NOT NULL;
+ALTER TABLE author ADD COLUMN email VARCHAR(256);
+ALTER TABLE author DROP COLUMN profile;
+ALTER TABLE author COMMENT "記事を書く人";
+ALTER TABLE article ADD COLUMN title VARCHAR(100) NOT NULL DEFAULT '';
+
+ALTER TABLE author ADD CONSTRAINT uq_author_01 UNIQUE (email);
+CREATE INDEX idx_article_01 ON article (author_id, title);
+
+ALTER TABLE tag ADD CONSTRAINT fk_tag_01 FOREIGN KEY(article_id) REFERENCES article (id);
+